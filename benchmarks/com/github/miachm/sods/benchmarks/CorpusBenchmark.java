@@ -0,0 +1,44 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.SpreadSheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Loads and saves the files of the resources folder, which cover the features found in real documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CorpusBenchmark {
+    @Param({"CAS.ods", "TestDate.ods", "Timelog.ods", "Top5Browsers.ods", "cellEmptyValues.ods",
+            "conditionalFormatting.ods", "floatingpoint.ods", "hiddenItems.ods", "nullvalues.ods"})
+    public String file;
+
+    private byte[] content;
+    private SpreadSheet spread;
+
+    @Setup
+    public void setup() throws IOException {
+        content = Files.readAllBytes(Paths.get("resources", file));
+        spread = new SpreadSheet(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public SpreadSheet load() throws IOException {
+        return new SpreadSheet(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        return Generator.toBytes(spread);
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.Sheet;
+import com.github.miachm.sods.SpreadSheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Recalculates a sheet where every row is an independent chain of formulas over its first column,
+    in the calling thread and in the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormulaBenchmark {
+    @Param({"10000", "50000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private SpreadSheet spread;
+    private Sheet sheet;
+
+    @Setup
+    public void setup() {
+        sheet = new Sheet("Formulas", rows, 5);
+        double[][] numbers = new double[rows][1];
+        String[][] formulas = new String[rows][4];
+        for (int i = 0; i < rows; i++) {
+            int row = i + 1;
+            numbers[i][0] = i;
+            formulas[i][0] = "=A" + row + "*2";
+            formulas[i][1] = "=B" + row + "+A" + row;
+            formulas[i][2] = "=IF(C" + row + ">100;C" + row + "/3;C" + row + "^2)";
+            formulas[i][3] = "=SUM(A" + row + ":D" + row + ")";
+        }
+        sheet.getRange(0, 0, rows, 1).setDoubles(numbers);
+        sheet.getRange(0, 1, rows, 4).setFormulas(formulas);
+        spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+    }
+
+    @Benchmark
+    public SpreadSheet recalculate() {
+        spread.recalculate(parallel ? ForkJoinPool.commonPool() : null);
+        return spread;
+    }
+}
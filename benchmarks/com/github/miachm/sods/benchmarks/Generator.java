@@ -0,0 +1,102 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.Color;
+import com.github.miachm.sods.Range;
+import com.github.miachm.sods.Sheet;
+import com.github.miachm.sods.SpreadSheet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/*
+    Builds the generated inputs of the benchmarks. A fixed seed keeps them equal between runs.
+ */
+final class Generator {
+    private static final long SEED = 42;
+
+    private Generator() {}
+
+    static Object[][] randomValues(int rows, int columns) {
+        Random random = new Random(SEED);
+        Object[][] values = new Object[rows][columns];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < columns; j++) {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        values[i][j] = random.nextDouble();
+                        break;
+                    case 1:
+                        values[i][j] = "Text " + random.nextInt(1000);
+                        break;
+                    default:
+                        values[i][j] = null;
+                }
+            }
+        }
+        return values;
+    }
+
+    static Sheet randomSheet(int rows, int columns, int styleDensity) {
+        Sheet sheet = new Sheet("Benchmark", rows, columns);
+        sheet.getDataRange().setValues(randomValues(rows, columns));
+        applyRandomStyles(sheet, styleDensity);
+        return sheet;
+    }
+
+    private static final String[] WORDS = {
+            "steel", "bracket", "with", "mounting", "kit", "for", "outdoor", "use", "black", "finish",
+            "compatible", "models", "warranty", "years", "pack", "of", "screws", "included", "size", "cm"
+    };
+
+    // A catalogue: a name, a description of wordsPerCell words and a price in each row
+    static Sheet textSheet(int rows, int wordsPerCell) {
+        Random random = new Random(SEED);
+        Sheet sheet = new Sheet("Catalogue", rows, 3);
+        Object[][] values = new Object[rows][3];
+        for (int i = 0; i < rows; i++) {
+            values[i][0] = "Product " + i;
+            StringBuilder description = new StringBuilder();
+            for (int word = 0; word < wordsPerCell; word++) {
+                if (word > 0)
+                    description.append(random.nextInt(20) == 0 ? '\n' : ' ');
+                description.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            values[i][1] = description.toString();
+            values[i][2] = random.nextInt(10000) / 100.0;
+        }
+        sheet.getDataRange().setValues(values);
+        return sheet;
+    }
+
+    // styleDensity is the percentage of cells which receive a custom style
+    static void applyRandomStyles(Sheet sheet, int styleDensity) {
+        Random random = new Random(SEED);
+        for (int i = 0; i < sheet.getMaxRows(); i++) {
+            for (int j = 0; j < sheet.getMaxColumns(); j++) {
+                if (random.nextInt(100) >= styleDensity)
+                    continue;
+
+                Range range = sheet.getRange(i, j);
+                range.setFontBold(random.nextBoolean());
+                range.setFontItalic(random.nextBoolean());
+                if (random.nextBoolean())
+                    range.setBackgroundColor(new Color(random.nextInt(4) * 64, 0, 0));
+                if (random.nextBoolean())
+                    range.setFontSize(8 + random.nextInt(4) * 2);
+            }
+        }
+    }
+
+    static SpreadSheet spreadSheet(Sheet sheet) {
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        return spread;
+    }
+
+    static byte[] toBytes(SpreadSheet spread) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        return out.toByteArray();
+    }
+}
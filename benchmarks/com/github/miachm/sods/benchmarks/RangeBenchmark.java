@@ -0,0 +1,80 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.Range;
+import com.github.miachm.sods.RangeStatistics;
+import com.github.miachm.sods.Sheet;
+import com.github.miachm.sods.SortSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+    Reads and writes values through ranges and edits the rows of a generated sheet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RangeBenchmark {
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"10", "40"})
+    public int columns;
+
+    @Param({"100"})
+    public int editedRows;
+
+    private Sheet sheet;
+    private Object[][] values;
+
+    @Setup
+    public void setup() {
+        sheet = Generator.randomSheet(rows, columns, 0);
+        values = Generator.randomValues(rows, columns);
+    }
+
+    @Benchmark
+    public Object[][] getValues() {
+        return sheet.getDataRange().getValues();
+    }
+
+    @Benchmark
+    public Sheet setValues() {
+        sheet.getDataRange().setValues(values);
+        return sheet;
+    }
+
+    @Benchmark
+    public Object getCellByCell() {
+        Object last = null;
+        for (int i = 0; i < rows; i++) {
+            Range range = sheet.getRange(i, 0, 1, columns);
+            last = range.getValues();
+        }
+        return last;
+    }
+
+    @Benchmark
+    public RangeStatistics stats() {
+        return sheet.getDataRange().stats();
+    }
+
+    // Sorted in both directions, so every invocation moves the rows
+    @Benchmark
+    public Sheet sort() {
+        sheet.getDataRange().sort(new SortSpec(0));
+        sheet.getDataRange().sort(new SortSpec(0, false));
+        return sheet;
+    }
+
+    // The rows are deleted after being inserted, so every invocation sees the same sheet
+    @Benchmark
+    public Sheet insertAndDeleteRows() {
+        sheet.insertRowsBefore(rows / 2, editedRows);
+        sheet.deleteRows(rows / 2, editedRows);
+        return sheet;
+    }
+}
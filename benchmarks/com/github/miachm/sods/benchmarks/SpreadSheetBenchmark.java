@@ -0,0 +1,48 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.SpreadSheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Loads and saves generated spreadsheets of different sizes and style densities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpreadSheetBenchmark {
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"10", "40"})
+    public int columns;
+
+    // Percentage of cells with a custom style
+    @Param({"0", "35"})
+    public int styleDensity;
+
+    private SpreadSheet spread;
+    private byte[] content;
+
+    @Setup
+    public void setup() throws IOException {
+        spread = Generator.spreadSheet(Generator.randomSheet(rows, columns, styleDensity));
+        content = Generator.toBytes(spread);
+    }
+
+    @Benchmark
+    public SpreadSheet load() throws IOException {
+        return new SpreadSheet(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        return Generator.toBytes(spread);
+    }
+}
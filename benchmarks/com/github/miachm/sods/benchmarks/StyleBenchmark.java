@@ -0,0 +1,50 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.Sheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Formats the cells of a sheet and saves it, for different amounts of styled cells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StyleBenchmark {
+    @Param({"1000", "10000"})
+    public int rows;
+
+    @Param({"20"})
+    public int columns;
+
+    // Percentage of cells with a custom style
+    @Param({"10", "50", "100"})
+    public int styleDensity;
+
+    @Benchmark
+    public Sheet formatCells() {
+        Sheet sheet = new Sheet("Styles", rows, columns);
+        Generator.applyRandomStyles(sheet, styleDensity);
+        return sheet;
+    }
+
+    @Benchmark
+    public Sheet formatWholeRange() {
+        Sheet sheet = new Sheet("Styles", rows, columns);
+        sheet.getDataRange().setFontBold(true);
+        sheet.getRange(0, 0, rows, columns / 2).setFontItalic(true);
+        return sheet;
+    }
+
+    @Benchmark
+    public byte[] formatAndSave() throws IOException {
+        Sheet sheet = new Sheet("Styles", rows, columns);
+        Generator.applyRandomStyles(sheet, styleDensity);
+        return Generator.toBytes(Generator.spreadSheet(sheet));
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.miachm.sods.benchmarks;
+
+import com.github.miachm.sods.SpreadSheet;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Saves text-heavy sheets, like a product catalogue, where most of the time goes to the text of the cells.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextBenchmark {
+    @Param({"10000", "50000"})
+    public int rows;
+
+    // Words in the description of each row
+    @Param({"5", "50"})
+    public int wordsPerCell;
+
+    private SpreadSheet spread;
+
+    @Setup
+    public void setup() {
+        spread = Generator.spreadSheet(Generator.textSheet(rows, wordsPerCell));
+    }
+
+    @Benchmark
+    public byte[] save() throws IOException {
+        return Generator.toBytes(spread);
+    }
+}
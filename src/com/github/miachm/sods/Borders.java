@@ -100,6 +100,14 @@ public class Borders {
 		this.borderRightProperties = borderRightProperties;
 	}
 
+	Borders copy() {
+		Borders copy = new Borders(borderTop, borderTopProperties, borderBottom, borderBottomProperties,
+				borderLeft, borderLeftProperties, borderRight, borderRightProperties);
+		copy.border = border;
+		copy.borderProperties = borderProperties;
+		return copy;
+	}
+
 	/**
 	 * Determines if the style has all borders or not.
 	 * 
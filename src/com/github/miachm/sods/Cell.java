@@ -9,11 +9,19 @@ class Cell extends TableField {
     private Style style = Style.default_style;
     private GroupCell group;
     private OfficeAnnotation annotation;
+    // The references of the formula are out of date, see FormulaEngine.freeze()
+    private boolean frozen;
 
     Cell()
     {
     }
 
+    // A cell with a plain value, without style
+    Cell(Object value)
+    {
+        this.value = value;
+    }
+
     GroupCell getGroup() {
         return group;
     }
@@ -22,11 +30,9 @@ class Cell extends TableField {
         this.group = group;
     }
 
-    Style getStyle()
+    /** The returned style object must not be mutated. */
+    Style getStyleDangerous()
     {
-        if (style.isDefault())
-            style = new Style();
-
         return style;
     }
 
@@ -39,21 +45,21 @@ class Cell extends TableField {
         }
     }
 
+    /*
+        The style is shared with other cells, it must be interned in the StylePool of the sheet.
+     */
     void setStyle(Style style)
     {
         if (style == null)
             throw new IllegalArgumentException("Style can not be null");
-        try {
-            this.style = (Style) style.clone();
-        } catch (CloneNotSupportedException e) {
-            throw new AssertionError("Style is not cloneable");
-        }
+        this.style = style;
     }
 
     void clear()
     {
         value = null;
         formula = null;
+        frozen = false;
         style = Style.default_style;
         annotation = null;
     }
@@ -65,35 +71,73 @@ class Cell extends TableField {
     Object getValue(){
         return value;
     }
-    void setValue(Object value)
+    /*
+        Sets the value and updates the date data style of the cell, interning the new style in the pool.
+     */
+    void setValue(Object value, StylePool pool)
     {
         this.value = value;
         if (value instanceof LocalDate) {
             if (style.getDataStyle() == null) {
-                style.setDataStyle(Style.ISO_DATE_DATA_STYLE);
+                style = pool.modify(style, s -> s.setDataStyle(Style.ISO_DATE_DATA_STYLE));
             }
         } else if (Style.ISO_DATE_DATA_STYLE.equals(style.getDataStyle())) {
-            style.setDataStyle(null);
+            style = pool.modify(style, s -> s.setDataStyle(null));
         }
     }
 
     public void setFormula(String formula) {
+        this.formula = parseFormula(formula);
+        frozen = false;
+    }
+
+    boolean isFrozen() {
+        return frozen;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    static String parseFormula(String formula) {
         if (formula != null && formula.startsWith("of:")) {
             formula = convertFormula(formula);
         }
-        this.formula = formula;
+        return formula;
     }
 
-    private String convertFormula(String formula) {
+    /*
+        OpenFormula writes the references between brackets, with a dot before the cell: "of:=SUM([.A1:.B2])+[Sheet2.C3]".
+        The brackets and those dots are removed, "=SUM(A1:B2)+Sheet2.C3". The strings and the numbers are kept as they are.
+     */
+    private static String convertFormula(String formula) {
         formula = formula.trim();
         formula = formula.substring("of:".length());
 
         StringBuilder result = new StringBuilder();
+        boolean inString = false;
+        boolean inReference = false;
         for (int i = 0;i < formula.length();i++) {
             char character = formula.charAt(i);
-            if (character != '[' && character != ']' && character != '.') {
-                result.append(character);
+            if (inString) {
+                if (character == '"')
+                    inString = false;
+            }
+            else if (character == '"' && !inReference) {
+                inString = true;
+            }
+            else if (character == '[') {
+                inReference = true;
+                continue;
+            }
+            else if (character == ']') {
+                inReference = false;
+                continue;
+            }
+            else if (inReference && character == '.' && (formula.charAt(i - 1) == '[' || formula.charAt(i - 1) == ':')) {
+                continue;
             }
+            result.append(character);
         }
 
         return result.toString();
@@ -130,7 +174,7 @@ class Cell extends TableField {
         if (!Objects.equals(formula, cell.formula)) return false;
         if (!Objects.equals(annotation, cell.annotation)) return false;
         if (!Objects.equals(num_repeated, cell.num_repeated)) return false;
-        return style.equals(cell.getStyle());
+        return style.equals(cell.style);
     }
 
     @Override
@@ -144,7 +188,7 @@ class Cell extends TableField {
         result = 31 * result + (formula != null ? formula.hashCode() : 0);
         result = 31 * result + style.hashCode();
         result = 31 * result + (group != null ? group.hashCode() : 0);
-        result = 31 * result + annotation.hashCode();
+        result = 31 * result + (annotation != null ? annotation.hashCode() : 0);
         return result;
     }
 
@@ -0,0 +1,252 @@
+package com.github.miachm.sods;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A read-only cursor over the cells of a Range, row by row and from left to right.
+ *
+ * Consecutive cells of a row with the same content are stored as a single run, and the cursor stops once in each run,
+ * so it reads a range without creating any object per cell. repeatCount() tells how many cells the current position covers.
+ *
+ * <pre>
+ *     CellCursor cursor = sheet.getDataRange().cursor();
+ *     double total = 0;
+ *     while (cursor.next()) {
+ *         double value = cursor.doubleValue();
+ *         if (!Double.isNaN(value))
+ *             total += value * cursor.repeatCount();
+ *     }
+ * </pre>
+ *
+ * The sheet must not be modified while a cursor is used, the result of the cursor is undefined after a change.
+ *
+ * @see Range#cursor()
+ */
+public final class CellCursor {
+    private final Sheet sheet;
+    private final int firstRow;
+    private final int endRow;
+    private final int firstColumn;
+    private final int endColumn;
+    // Copies of the styles given by style(), one for each different style
+    private final Map<Style, Style> styles = new IdentityHashMap<>();
+
+    // -1 before the first call to next()
+    private int row = -1;
+    private int column;
+    private int repeat;
+    private Row currentRow;
+
+    // Unpacked rows: the run of the current position. cell is null after the last run of the row
+    private TableFieldList<Cell> cells;
+    private int runIndex;
+    private int runStart;
+    private Cell cell;
+
+    // Packed rows: the number of the current position, if it has one
+    private boolean hasNumber;
+    private double number;
+
+    CellCursor(Sheet sheet, int row, int column, int numRows, int numColumns)
+    {
+        this.sheet = sheet;
+        this.firstRow = row;
+        this.endRow = row + numRows;
+        this.firstColumn = column;
+        this.endColumn = column + numColumns;
+    }
+
+    /**
+     * Moves the cursor to the next run of cells.
+     *
+     * @return False if there aren't more cells in the range
+     */
+    public boolean next()
+    {
+        if (row >= endRow)
+            return false;
+
+        if (row < 0) {
+            if (firstRow >= endRow || firstColumn >= endColumn) {
+                row = endRow;
+                return false;
+            }
+            enterRow(firstRow);
+        } else {
+            column += repeat;
+            if (column >= endColumn) {
+                if (row + 1 >= endRow) {
+                    row = endRow;
+                    return false;
+                }
+                enterRow(row + 1);
+            } else if (cells != null && cell != null) {
+                runStart += cell.num_repeated;
+                runIndex++;
+            }
+        }
+        load();
+        return true;
+    }
+
+    private void enterRow(int index)
+    {
+        row = index;
+        column = firstColumn;
+        currentRow = sheet.getRowForReading(index);
+        cells = currentRow.getCellsForReading();
+        if (cells != null) {
+            runIndex = cells.runIndexOf(column);
+            runStart = runIndex < cells.size() ? cells.offsetOf(runIndex) : column;
+        }
+    }
+
+    private void load()
+    {
+        if (cells != null) {
+            if (runIndex < cells.size()) {
+                cell = cells.get(runIndex);
+                repeat = Math.min(runStart + cell.num_repeated, endColumn) - column;
+            } else {
+                cell = null;
+                repeat = endColumn - column;
+            }
+        } else {
+            hasNumber = currentRow.isPresent(column);
+            if (hasNumber) {
+                number = currentRow.getPackedNumber(column);
+                repeat = 1;
+            } else {
+                // The empty columns are joined, up to the next number
+                int length = Math.min(currentRow.getPackedLength(), endColumn);
+                int end = column + 1;
+                while (end < length && !currentRow.isPresent(end))
+                    end++;
+                repeat = (end < length ? end : endColumn) - column;
+            }
+        }
+    }
+
+    private void checkPosition()
+    {
+        if (row < 0 || row >= endRow)
+            throw new IllegalStateException("The cursor is not in a cell, next() must return true first");
+    }
+
+    // The cell of the current position, the owner of the group for merged cells. Null if it's empty or packed
+    private Cell currentCell()
+    {
+        checkPosition();
+        if (cell == null || cells == null)
+            return null;
+        GroupCell group = cell.getGroup();
+        return group != null ? group.getCell() : cell;
+    }
+
+    /**
+     * Returns the row of the current position, in coordinates of the sheet
+     *
+     * @return The index of the row
+     */
+    public int row()
+    {
+        checkPosition();
+        return row;
+    }
+
+    /**
+     * Returns the first column of the current position, in coordinates of the sheet
+     *
+     * @return The index of the column
+     */
+    public int column()
+    {
+        checkPosition();
+        return column;
+    }
+
+    /**
+     * Returns the number of cells of the current position, from column(), which have the same content.
+     * It's at least 1.
+     *
+     * @return The number of consecutive cells in the row
+     */
+    public int repeatCount()
+    {
+        checkPosition();
+        return repeat;
+    }
+
+    /**
+     * Returns the value of the current cells, like Range.getValue()
+     *
+     * @return The value, null if the cells are empty
+     */
+    public Object value()
+    {
+        if (cells == null) {
+            checkPosition();
+            return hasNumber ? number : null;
+        }
+        Cell current = currentCell();
+        return current != null ? current.getValue() : null;
+    }
+
+    /**
+     * Returns the numeric value of the current cells, without boxing it
+     *
+     * @return The number, NaN if the cells are empty or they don't contain a number
+     */
+    public double doubleValue()
+    {
+        if (cells == null) {
+            checkPosition();
+            return hasNumber ? number : Double.NaN;
+        }
+        Cell current = currentCell();
+        Object value = current != null ? current.getValue() : null;
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Returns the text of the current cells
+     *
+     * @return The text, null if the cells are empty or they don't contain a String
+     */
+    public String stringValue()
+    {
+        Object value = value();
+        return value instanceof String ? (String) value : null;
+    }
+
+    /**
+     * Returns the formula of the current cells
+     *
+     * @return The formula, it can be null
+     */
+    public String formula()
+    {
+        Cell current = currentCell();
+        return current != null ? current.getFormula() : null;
+    }
+
+    /**
+     * Returns the style of the current cells.
+     * The cursor returns the same object for all the cells with the same style, it shouldn't be modified.
+     * Modifying it doesn't change the sheet.
+     *
+     * @return The style, it can not be null
+     */
+    public Style style()
+    {
+        Cell current = currentCell();
+        Style style = current != null ? current.getStyleDangerous() : Style.default_style;
+        Style copy = styles.get(style);
+        if (copy == null) {
+            copy = current != null ? current.getStyleCopy() : new Cell().getStyleCopy();
+            styles.put(style, copy);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,340 @@
+package com.github.miachm.sods;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/*
+    Index of the values of a column of a sheet, see Sheet.createIndex().
+
+    Every value points to the runs of rows which contain it. A run of repeated rows is indexed once.
+    Numbers and texts are kept sorted, so they can be searched by range. The other values are hashed.
+    Numbers are compared as doubles, whatever their class is. Empty cells are not indexed.
+    The columns without an index are searched with the static scan methods instead.
+
+    The sheet keeps it up to date: the values of an area are removed before it's edited and added
+    again after it, see Sheet.removeFromIndexes() and Sheet.addToIndexes(). Inserting or deleting rows
+    shifts the runs of every value.
+ */
+final class ColumnIndex {
+    private final TreeMap<Object, RowRuns> numbers = new TreeMap<>();
+    private final TreeMap<Object, RowRuns> texts = new TreeMap<>();
+    private final Map<Object, RowRuns> others = new HashMap<>();
+
+    ColumnIndex(Sheet sheet, int column)
+    {
+        add(sheet, column, 0, sheet.getMaxRows());
+    }
+
+    // Indexes the values of the rows [row, row + numRows) of the column
+    void add(Sheet sheet, int column, int row, int numRows)
+    {
+        update(sheet, column, row, numRows, true);
+    }
+
+    // Removes the values of the rows [row, row + numRows) of the column, before they are modified
+    void remove(Sheet sheet, int column, int row, int numRows)
+    {
+        update(sheet, column, row, numRows, false);
+    }
+
+    // Walks the runs of rows of the area, the value of a run is read once
+    private void update(Sheet sheet, int column, int row, int numRows, boolean adding)
+    {
+        TableFieldList<Row> rows = sheet.rows;
+        int end = row + numRows;
+        int index = rows.runIndexOf(row);
+        if (index == rows.size())
+            return;
+        int start = rows.offsetOf(index);
+        for (; index < rows.size() && start < end; index++) {
+            Row item = rows.get(index);
+            int next = start + item.num_repeated;
+            Object key = key(item.getValue(column));
+            if (key != null) {
+                Map<Object, RowRuns> map = mapOf(key);
+                RowRuns runs = map.get(key);
+                if (adding) {
+                    if (runs == null) {
+                        runs = new RowRuns();
+                        map.put(key, runs);
+                    }
+                    runs.add(Math.max(start, row), Math.min(next, end));
+                } else if (runs != null) {
+                    runs.remove(Math.max(start, row), Math.min(next, end));
+                    if (runs.isEmpty())
+                        map.remove(key);
+                }
+            }
+            start = next;
+        }
+    }
+
+    void insertRows(int row, int howmany)
+    {
+        for (RowRuns runs : allRuns())
+            runs.insert(row, howmany);
+    }
+
+    void deleteRows(int row, int howmany)
+    {
+        for (Map<Object, RowRuns> map : Arrays.asList(numbers, texts, others)) {
+            map.values().removeIf(runs -> {
+                runs.delete(row, howmany);
+                return runs.isEmpty();
+            });
+        }
+    }
+
+    // The rows which contain the value, in ascending order
+    int[] find(Object value)
+    {
+        Object key = key(value);
+        RowRuns runs = mapOf(key).get(key);
+        return runs != null ? runs.toArray() : new int[0];
+    }
+
+    // The first row which contains the value, -1 if there isn't any
+    int findFirst(Object value)
+    {
+        Object key = key(value);
+        RowRuns runs = mapOf(key).get(key);
+        return runs != null ? runs.first() : -1;
+    }
+
+    // The rows which contain a number of the interval [from, to], in ascending order
+    int[] findNumbers(double from, double to)
+    {
+        return collect(numbers.subMap(key(from), true, key(to), true));
+    }
+
+    // The rows which contain a text of the interval [from, to], in ascending order
+    int[] findTexts(String from, String to)
+    {
+        return collect(texts.subMap(from, true, to, true));
+    }
+
+    /*
+        The same searches for a column without an index. The runs of rows are read once and their values
+        are compared with the same keys than the index, so both ways find the same rows.
+     */
+    static int[] scan(Sheet sheet, int column, Object value)
+    {
+        Object key = key(value);
+        return scan(sheet, column, key::equals, false).toArray();
+    }
+
+    static int scanFirst(Sheet sheet, int column, Object value)
+    {
+        Object key = key(value);
+        RowRuns runs = scan(sheet, column, key::equals, true);
+        return runs.isEmpty() ? -1 : runs.first();
+    }
+
+    static int[] scanNumbers(Sheet sheet, int column, double from, double to)
+    {
+        Double low = (Double) key(from);
+        Double high = (Double) key(to);
+        return scan(sheet, column, key -> key instanceof Double
+                && low.compareTo((Double) key) <= 0 && high.compareTo((Double) key) >= 0, false).toArray();
+    }
+
+    static int[] scanTexts(Sheet sheet, int column, String from, String to)
+    {
+        return scan(sheet, column, key -> key instanceof String
+                && from.compareTo((String) key) <= 0 && to.compareTo((String) key) >= 0, false).toArray();
+    }
+
+    // The runs of rows whose key matches, or only the first one if first is true
+    private static RowRuns scan(Sheet sheet, int column, Predicate<Object> matches, boolean first)
+    {
+        RowRuns result = new RowRuns();
+        int start = 0;
+        for (Row item : sheet.rows) {
+            Object key = key(item.getValue(column));
+            if (key != null && matches.test(key)) {
+                result.add(start, start + item.num_repeated);
+                if (first)
+                    break;
+            }
+            start += item.num_repeated;
+        }
+        return result;
+    }
+
+    private static int[] collect(NavigableMap<Object, RowRuns> values)
+    {
+        if (values.size() == 1)
+            return values.firstEntry().getValue().toArray();
+
+        int total = 0;
+        for (RowRuns runs : values.values())
+            total += runs.count();
+        int[] result = new int[total];
+        int position = 0;
+        for (RowRuns runs : values.values())
+            position = runs.copyTo(result, position);
+        Arrays.sort(result);
+        return result;
+    }
+
+    private List<RowRuns> allRuns()
+    {
+        List<RowRuns> result = new ArrayList<>(numbers.size() + texts.size() + others.size());
+        result.addAll(numbers.values());
+        result.addAll(texts.values());
+        result.addAll(others.values());
+        return result;
+    }
+
+    private Map<Object, RowRuns> mapOf(Object key)
+    {
+        if (key instanceof Double)
+            return numbers;
+        if (key instanceof String)
+            return texts;
+        return others;
+    }
+
+    // Numbers are indexed as doubles, -0.0 as 0.0
+    static Object key(Object value)
+    {
+        if (value instanceof Number)
+            return ((Number) value).doubleValue() + 0.0;
+        return value;
+    }
+
+    /*
+        Sorted and disjoint runs of rows. The run i covers the rows [runs[2 * i], runs[2 * i + 1]).
+     */
+    static final class RowRuns {
+        private int[] runs = new int[2];
+        private int length;
+
+        boolean isEmpty()
+        {
+            return length == 0;
+        }
+
+        int first()
+        {
+            return runs[0];
+        }
+
+        int count()
+        {
+            int total = 0;
+            for (int i = 0; i < length; i += 2)
+                total += runs[i + 1] - runs[i];
+            return total;
+        }
+
+        int[] toArray()
+        {
+            int[] result = new int[count()];
+            copyTo(result, 0);
+            return result;
+        }
+
+        int copyTo(int[] result, int position)
+        {
+            for (int i = 0; i < length; i += 2) {
+                for (int row = runs[i]; row < runs[i + 1]; row++)
+                    result[position++] = row;
+            }
+            return position;
+        }
+
+        // Adds the rows [start, end), joining the runs which overlap or touch them
+        void add(int start, int end)
+        {
+            int first = firstEndingAtOrAfter(start);
+            int last = first;
+            while (last < length && runs[last] <= end)
+                last += 2;
+            if (first < last) {
+                start = Math.min(start, runs[first]);
+                end = Math.max(end, runs[last - 1]);
+            }
+            replace(first, last, start, end);
+        }
+
+        // Removes the rows [start, end), splitting the runs which cover them partially
+        void remove(int start, int end)
+        {
+            int first = firstEndingAtOrAfter(start + 1);
+            int last = first;
+            while (last < length && runs[last] < end)
+                last += 2;
+            if (first == last)
+                return;
+
+            int before = runs[first];
+            int after = runs[last - 1];
+            if (before < start && after > end)
+                replace(first, last, before, start, end, after);
+            else if (before < start)
+                replace(first, last, before, start);
+            else if (after > end)
+                replace(first, last, end, after);
+            else
+                replace(first, last);
+        }
+
+        // howmany empty rows are inserted before the row
+        void insert(int row, int howmany)
+        {
+            int first = firstEndingAtOrAfter(row + 1);
+            if (first < length && runs[first] < row) {
+                int end = runs[first + 1];
+                replace(first, first + 2, runs[first], row, row, end);
+                first += 2;
+            }
+            for (int i = first; i < length; i++)
+                runs[i] += howmany;
+        }
+
+        // The rows [row, row + howmany) are deleted, the ones after them are moved up
+        void delete(int row, int howmany)
+        {
+            remove(row, row + howmany);
+            int first = firstEndingAtOrAfter(row + 1);
+            for (int i = first; i < length; i++)
+                runs[i] -= howmany;
+            // The runs around the deleted rows can touch now
+            if (first > 0 && first < length && runs[first - 1] == runs[first])
+                replace(first - 2, first + 2, runs[first - 2], runs[first + 1]);
+        }
+
+        // Index of the first run whose end is at or after the row
+        private int firstEndingAtOrAfter(int row)
+        {
+            int low = 0;
+            int high = length / 2;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (runs[2 * middle + 1] < row)
+                    low = middle + 1;
+                else
+                    high = middle;
+            }
+            return 2 * low;
+        }
+
+        // Replaces the values [from, to) of the runs by the given ones
+        private void replace(int from, int to, int... values)
+        {
+            int newLength = length - (to - from) + values.length;
+            if (newLength > runs.length)
+                runs = Arrays.copyOf(runs, Math.max(newLength, runs.length * 2));
+            System.arraycopy(runs, to, runs, from + values.length, length - to);
+            System.arraycopy(values, 0, runs, from, values.length);
+            length = newLength;
+        }
+    }
+}
@@ -1,21 +1,108 @@
 package com.github.miachm.sods;
 
 import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
+/*
+    Writes a zip file, in the same format than java.util.zip.ZipOutputStream.
+    Unlike ZipOutputStream, it can copy entries which are already compressed
+    (for example, from the file which was loaded) without inflating and deflating them again.
+ */
 class Compressor implements Closeable {
-    private final ZipOutputStream out;
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+    private static final int FLAG_UTF8 = 0x0800;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    // Blocks compressed in parallel, and the window of deflate which is primed from the previous block
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    // Formats which are already compressed, deflating them again only wastes time
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "png", "jpg", "jpeg", "gif", "webp", "zip", "gz", "bz2", "xz", "7z", "jar",
+            "mp3", "mp4", "ogg", "odt", "ods", "odp", "odg", "docx", "xlsx", "pptx"));
+
+    private static class Entry {
+        final byte[] name;
+        final int method;
+        final int flags;
+        final long offset;
+        long crc;
+        long compressedSize;
+        long size;
+
+        Entry(byte[] name, int method, int flags, long offset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.offset = offset;
+        }
+
+        boolean isZip64() {
+            return size >= ZIP64_LIMIT || compressedSize >= ZIP64_LIMIT || offset >= ZIP64_LIMIT;
+        }
+    }
+
+    private final CountingOutputStream out;
+    private final List<Entry> entries = new ArrayList<>();
+    private final int level;
+    private final Deflater deflater;
+    // Null if the entries are compressed in the calling thread
+    private final ForkJoinPool pool;
+    private final long storedThreshold;
+    private final boolean storeCompressedFiles;
+    private final int time = dosTime(System.currentTimeMillis());
+    private final byte[] buffer = new byte[8192];
+    private boolean entryOpen = false;
+    private boolean closed = false;
 
     Compressor(OutputStream o){
-        this.out = new ZipOutputStream(o);
+        this(o, new SaveOptions());
+    }
+
+    Compressor(OutputStream o, SaveOptions options){
+        this.out = new CountingOutputStream(o);
+        this.level = options.getCompressionLevel();
+        this.deflater = new Deflater(level, true);
+        this.pool = options.isParallel() ? options.getPool() : null;
+        this.storedThreshold = options.getStoredThreshold();
+        this.storeCompressedFiles = options.isStoreCompressedFiles();
     }
 
     @Override
     public void close() throws IOException {
-        out.close();
+        if (closed) return;
+        closed = true;
+        try {
+            writeCentralDirectory();
+            out.close();
+        } finally {
+            deflater.end();
+        }
     }
 
     public void flush() throws IOException {
@@ -23,8 +110,410 @@ class Compressor implements Closeable {
     }
 
     void addEntry(byte[] data,String name) throws IOException {
-        out.putNextEntry(new ZipEntry(name));
-        out.write(data);
-        out.closeEntry();
+        if (isStored(name, data.length)) {
+            addStoredEntry(data, name);
+            return;
+        }
+        try (OutputStream entry = startEntry(name)) {
+            entry.write(data);
+        }
+    }
+
+    /*
+        Adds an entry without compression. The sizes and the CRC are written in the local header,
+        so the data is at a fixed offset from the header, as ODF requires for the mimetype.
+     */
+    void addStoredEntry(byte[] data, String name) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        addRawEntry(name, ZipEntry.STORED, crc.getValue(), data.length, data.length, new ByteArrayInputStream(data));
+    }
+
+    /*
+        True if an entry with this name and size (-1 if unknown) should be stored instead of deflated:
+        small entries, where deflate saves nothing, and files which are already compressed.
+     */
+    boolean isStored(String name, long size) {
+        if (size >= 0 && size < storedThreshold)
+            return true;
+        if (!storeCompressedFiles)
+            return false;
+        int dot = name.lastIndexOf('.');
+        return dot > name.lastIndexOf('/') && COMPRESSED_EXTENSIONS.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /*
+        Opens a new entry and returns a stream which writes directly in it.
+        Closing the returned stream closes the entry, not the zip file.
+     */
+    OutputStream startEntry(String name) throws IOException {
+        checkNoEntryOpen();
+        Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED, FLAG_UTF8 | FLAG_DATA_DESCRIPTOR, out.count);
+        // The sizes and the CRC are unknown, they are written after the data
+        writeLocalHeader(entry);
+        entryOpen = true;
+        return pool == null ? new EntryOutputStream(entry) : new ParallelEntryOutputStream(entry);
+    }
+
+    /*
+        Copies an entry which is already compressed with the given method (stored or deflated).
+        Exactly compressedSize bytes are read from the stream.
+     */
+    void addRawEntry(String name, int method, long crc, long compressedSize, long size, InputStream data) throws IOException {
+        checkNoEntryOpen();
+        Entry entry = new Entry(name.getBytes(StandardCharsets.UTF_8), method, FLAG_UTF8, out.count);
+        entry.crc = crc;
+        entry.compressedSize = compressedSize;
+        entry.size = size;
+        writeLocalHeader(entry);
+
+        long remaining = compressedSize;
+        while (remaining > 0) {
+            int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0)
+                throw new EOFException("Unexpected end of the entry " + name);
+            out.write(buffer, 0, read);
+            remaining -= read;
+        }
+        entries.add(entry);
+    }
+
+    private void checkNoEntryOpen() {
+        if (entryOpen)
+            throw new IllegalStateException("The previous entry is not closed");
+    }
+
+    private void writeLocalHeader(Entry entry) throws IOException {
+        boolean zip64 = (entry.flags & FLAG_DATA_DESCRIPTOR) == 0 && (entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT);
+        writeInt(LOCAL_HEADER);
+        writeShort(zip64 ? 45 : 20);
+        writeShort(entry.flags);
+        writeShort(entry.method);
+        writeInt(time);
+        if ((entry.flags & FLAG_DATA_DESCRIPTOR) != 0) {
+            writeInt(0);
+            writeInt(0);
+            writeInt(0);
+        } else {
+            writeInt(entry.crc);
+            writeInt(zip64 ? ZIP64_LIMIT : entry.compressedSize);
+            writeInt(zip64 ? ZIP64_LIMIT : entry.size);
+        }
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 20 : 0);
+        out.write(entry.name);
+        if (zip64) {
+            writeShort(0x0001);
+            writeShort(16);
+            writeLong(entry.size);
+            writeLong(entry.compressedSize);
+        }
+    }
+
+    private void writeDataDescriptor(Entry entry) throws IOException {
+        writeInt(DATA_DESCRIPTOR);
+        writeInt(entry.crc);
+        if (entry.size >= ZIP64_LIMIT || entry.compressedSize >= ZIP64_LIMIT) {
+            writeLong(entry.compressedSize);
+            writeLong(entry.size);
+        } else {
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+        }
+    }
+
+    private void writeCentralDirectory() throws IOException {
+        checkNoEntryOpen();
+        long directoryOffset = out.count;
+        for (Entry entry : entries) {
+            boolean zip64 = entry.isZip64();
+            int extraLength = 0;
+            if (entry.size >= ZIP64_LIMIT) extraLength += 8;
+            if (entry.compressedSize >= ZIP64_LIMIT) extraLength += 8;
+            if (entry.offset >= ZIP64_LIMIT) extraLength += 8;
+
+            writeInt(CENTRAL_HEADER);
+            writeShort(zip64 ? 45 : 20);
+            writeShort(zip64 ? 45 : 20);
+            writeShort(entry.flags);
+            writeShort(entry.method);
+            writeInt(time);
+            writeInt(entry.crc);
+            writeInt(Math.min(entry.compressedSize, ZIP64_LIMIT));
+            writeInt(Math.min(entry.size, ZIP64_LIMIT));
+            writeShort(entry.name.length);
+            writeShort(zip64 ? extraLength + 4 : 0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt(Math.min(entry.offset, ZIP64_LIMIT));
+            out.write(entry.name);
+            if (zip64) {
+                writeShort(0x0001);
+                writeShort(extraLength);
+                if (entry.size >= ZIP64_LIMIT) writeLong(entry.size);
+                if (entry.compressedSize >= ZIP64_LIMIT) writeLong(entry.compressedSize);
+                if (entry.offset >= ZIP64_LIMIT) writeLong(entry.offset);
+            }
+        }
+
+        long directorySize = out.count - directoryOffset;
+        int count = entries.size();
+        if (count >= 0xFFFF || directorySize >= ZIP64_LIMIT || directoryOffset >= ZIP64_LIMIT) {
+            long zip64Offset = out.count;
+            writeInt(ZIP64_END_OF_DIRECTORY);
+            writeLong(44);
+            writeShort(45);
+            writeShort(45);
+            writeInt(0);
+            writeInt(0);
+            writeLong(count);
+            writeLong(count);
+            writeLong(directorySize);
+            writeLong(directoryOffset);
+
+            writeInt(ZIP64_LOCATOR);
+            writeInt(0);
+            writeLong(zip64Offset);
+            writeInt(1);
+        }
+
+        writeInt(END_OF_DIRECTORY);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(count, 0xFFFF));
+        writeShort(Math.min(count, 0xFFFF));
+        writeInt(Math.min(directorySize, ZIP64_LIMIT));
+        writeInt(Math.min(directoryOffset, ZIP64_LIMIT));
+        writeShort(0);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & 0xFFFFFFFFL);
+        writeInt(value >>> 32);
+    }
+
+    // MS-DOS date and time of the entries, in the local time zone like ZipOutputStream
+    private static int dosTime(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980)
+            return (1 << 21) | (1 << 16);
+        return (year - 1980) << 25
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private class EntryOutputStream extends OutputStream {
+        private final Entry entry;
+        private final CRC32 crc = new CRC32();
+        private final long start = out.count;
+        private long size = 0;
+        private boolean closed = false;
+
+        EntryOutputStream(Entry entry) {
+            this.entry = entry;
+            deflater.reset();
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            if (closed)
+                throw new IOException("The entry is closed");
+            if (length == 0) return;
+            crc.update(b, offset, length);
+            size += length;
+            deflater.setInput(b, offset, length);
+            while (!deflater.needsInput())
+                deflate();
+        }
+
+        private void deflate() throws IOException {
+            int length = deflater.deflate(buffer, 0, buffer.length);
+            if (length > 0)
+                out.write(buffer, 0, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                deflater.finish();
+                while (!deflater.finished())
+                    deflate();
+                finishEntry(entry, crc, size, start);
+            }
+        }
+    }
+
+    private void finishEntry(Entry entry, CRC32 crc, long size, long start) throws IOException {
+        entry.crc = crc.getValue();
+        entry.size = size;
+        entry.compressedSize = out.count - start;
+        writeDataDescriptor(entry);
+        entries.add(entry);
+        entryOpen = false;
+    }
+
+    /*
+        Compresses the entry in blocks which are deflated in parallel, like pigz.
+        Each block is primed with the last 32 KB of the previous one as dictionary, so the references
+        to the previous data are kept, and it ends with a sync flush, which aligns its output to a byte.
+        The last block finishes the stream, so the outputs of the blocks are one valid deflate stream.
+     */
+    private class ParallelEntryOutputStream extends OutputStream {
+        private final Entry entry;
+        private final CRC32 crc = new CRC32();
+        private final long start = out.count;
+        // Compressed blocks, in order
+        private final Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+        private final int maxPending = 2 * pool.getParallelism();
+        private byte[] block = new byte[BLOCK_SIZE];
+        private int length = 0;
+        private byte[] previous = null;
+        private int previousLength = 0;
+        private long size = 0;
+        private boolean closed = false;
+
+        ParallelEntryOutputStream(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            if (closed)
+                throw new IOException("The entry is closed");
+            crc.update(b, offset, length);
+            size += length;
+            while (length > 0) {
+                int copied = Math.min(length, BLOCK_SIZE - this.length);
+                System.arraycopy(b, offset, block, this.length, copied);
+                this.length += copied;
+                offset += copied;
+                length -= copied;
+                if (this.length == BLOCK_SIZE)
+                    submitBlock();
+            }
+        }
+
+        private void submitBlock() throws IOException {
+            byte[] input = block;
+            int inputLength = length;
+            byte[] dictionary = previous;
+            int dictionaryLength = previousLength;
+            pending.add(pool.submit(() -> deflateBlock(input, inputLength, dictionary, dictionaryLength, false)));
+
+            // The blocks are not reused, so the next one takes its dictionary from this one
+            previous = input;
+            previousLength = inputLength;
+            block = new byte[BLOCK_SIZE];
+            length = 0;
+            while (pending.size() > maxPending)
+                writeBlock();
+        }
+
+        private void writeBlock() throws IOException {
+            out.write(pending.removeFirst().join());
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                // The last block is compressed by this thread, while the previous ones finish
+                byte[] last = deflateBlock(block, length, previous, previousLength, true);
+                block = null;
+                while (!pending.isEmpty())
+                    writeBlock();
+                out.write(last);
+                finishEntry(entry, crc, size, start);
+            }
+        }
+    }
+
+    private byte[] deflateBlock(byte[] input, int length, byte[] dictionary, int dictionaryLength, boolean last) {
+        Deflater blockDeflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                int dictionarySize = Math.min(dictionaryLength, DICTIONARY_SIZE);
+                blockDeflater.setDictionary(dictionary, dictionaryLength - dictionarySize, dictionarySize);
+            }
+            blockDeflater.setInput(input, 0, length);
+            ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] output = new byte[16384];
+            if (last) {
+                blockDeflater.finish();
+                while (!blockDeflater.finished()) {
+                    int written = blockDeflater.deflate(output);
+                    result.write(output, 0, written);
+                }
+            } else {
+                // A full output buffer means that the flush is not complete
+                int written;
+                do {
+                    written = blockDeflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+                    result.write(output, 0, written);
+                } while (written == output.length);
+            }
+            return result.toByteArray();
+        } finally {
+            blockDeflater.end();
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private final OutputStream out;
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int offset, int length) throws IOException {
+            out.write(b, offset, length);
+            count += length;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
     }
 }
@@ -0,0 +1,250 @@
+package com.github.miachm.sods;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*
+    Location of the parts of a content.xml in its text: the tables, the automatic styles and the font declarations.
+    The tags of the document are scanned without an XML parser, so the parts can be cut from the text
+    and parsed (or copied) on their own.
+
+    The tables are found in the same order than SpreadsheetParser: the table:table elements inside
+    office:spreadsheet, inside office:body, which are not inside another table.
+ */
+class ContentLayout {
+    static final String WRAPPER = "sods-tables";
+
+    static class Table {
+        final int start;
+        final int end;
+        // Start tag of the wrapper, with the namespaces declared by the ancestors of the table
+        final String header;
+
+        Table(int start, int end, String header) {
+            this.start = start;
+            this.end = end;
+            this.header = header;
+        }
+    }
+
+    final List<Table> tables = new ArrayList<>();
+    // Content of office:automatic-styles, without its tags. -1 if there isn't
+    int stylesStart = -1;
+    int stylesEnd = -1;
+    // The whole office:font-face-decls element. -1 if there isn't
+    int fontFacesStart = -1;
+    int fontFacesEnd = -1;
+    /*
+        Namespaces declared by the ancestors of the tables and the styles, as they are written (with quotes).
+        Null if the same prefix is declared with different values.
+     */
+    Map<String, String> namespaces = new LinkedHashMap<>();
+
+    private ContentLayout() {
+    }
+
+    /*
+        Returns null if the document can't be scanned: a DTD, which could declare entities, or a malformed tag.
+     */
+    static ContentLayout scan(String content) {
+        ContentLayout layout = new ContentLayout();
+        // Start and end offsets of the start tags of the open elements
+        int[] open = new int[32];
+        int depth = 0;
+        int bodyDepth = -1;
+        int spreadsheetDepth = -1;
+        int tableDepth = -1;
+        int stylesTag = -1;
+        int fontFacesTag = -1;
+
+        int i = content.indexOf('<');
+        while (i >= 0 && i + 1 < content.length()) {
+            char next = content.charAt(i + 1);
+            int end;
+            if (content.startsWith("<!--", i)) {
+                end = skip(content, i, "-->");
+            } else if (content.startsWith("<![CDATA[", i)) {
+                end = skip(content, i, "]]>");
+            } else if (next == '?') {
+                end = skip(content, i, "?>");
+            } else if (next == '!') {
+                // DOCTYPE
+                return null;
+            } else if (next == '/') {
+                end = content.indexOf('>', i);
+                if (end < 0 || depth == 0) return null;
+                if (depth == tableDepth) {
+                    layout.tables.add(new Table(open[2 * depth - 2], end + 1, layout.header(content, open, depth - 1)));
+                    tableDepth = -1;
+                } else if (depth == spreadsheetDepth || depth == bodyDepth) {
+                    return layout;
+                } else if (depth == 2 && open[2] == stylesTag) {
+                    layout.stylesStart = open[3];
+                    layout.stylesEnd = i;
+                    layout.addNamespaces(content, open, 2);
+                } else if (depth == 2 && open[2] == fontFacesTag) {
+                    layout.fontFacesStart = fontFacesTag;
+                    layout.fontFacesEnd = end + 1;
+                    layout.addNamespaces(content, open, 2);
+                }
+                depth--;
+                end++;
+            } else {
+                end = tagEnd(content, i);
+                if (end < 0) return null;
+                boolean empty = content.charAt(end - 2) == '/';
+
+                depth++;
+                if (2 * depth > open.length)
+                    open = Arrays.copyOf(open, open.length * 2);
+                open[2 * depth - 2] = i;
+                open[2 * depth - 1] = end;
+
+                if (tableDepth < 0) {
+                    if (spreadsheetDepth >= 0) {
+                        if (isTag(content, i, "table:table")) {
+                            if (empty)
+                                layout.tables.add(new Table(i, end, layout.header(content, open, depth - 1)));
+                            else
+                                tableDepth = depth;
+                        }
+                    } else if (bodyDepth >= 0) {
+                        if (isTag(content, i, "office:spreadsheet"))
+                            spreadsheetDepth = depth;
+                    } else if (isTag(content, i, "office:body")) {
+                        bodyDepth = depth;
+                    } else if (depth == 2 && isTag(content, i, "office:automatic-styles")) {
+                        stylesTag = i;
+                        if (empty) {
+                            layout.stylesStart = end;
+                            layout.stylesEnd = end;
+                        }
+                    } else if (depth == 2 && isTag(content, i, "office:font-face-decls")) {
+                        fontFacesTag = i;
+                        if (empty) {
+                            layout.fontFacesStart = i;
+                            layout.fontFacesEnd = end;
+                        }
+                    }
+                }
+                if (empty) {
+                    if (depth == spreadsheetDepth || depth == bodyDepth) return layout;
+                    depth--;
+                }
+            }
+            if (end < 0) return null;
+            i = content.indexOf('<', end);
+        }
+        return layout;
+    }
+
+    private static int skip(String content, int start, String terminator) {
+        int end = content.indexOf(terminator, start);
+        return end < 0 ? -1 : end + terminator.length();
+    }
+
+    // Offset after the '>' of the start tag. Attribute values may contain '>'
+    private static int tagEnd(String content, int start) {
+        for (int i = start + 1; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = content.indexOf(c, i + 1);
+                if (i < 0) return -1;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // The name is followed by the end of the tag or an attribute, so "table:table" doesn't match "table:table-row"
+    private static boolean isTag(String content, int offset, String name) {
+        int next = offset + 1 + name.length();
+        if (next >= content.length() || !content.startsWith(name, offset + 1)) return false;
+        char c = content.charAt(next);
+        return c == '>' || c == '/' || Character.isWhitespace(c);
+    }
+
+    /*
+        Start tag of the wrapper of a table, with the namespace declarations of its ancestors.
+        The declarations are copied as they are written, the inner ones replace the outer ones.
+     */
+    private String header(String content, int[] open, int ancestors) {
+        Map<String, String> declared = addNamespaces(content, open, ancestors);
+
+        StringBuilder header = new StringBuilder("<").append(WRAPPER);
+        for (Map.Entry<String, String> namespace : declared.entrySet())
+            header.append(' ').append(namespace.getKey()).append('=').append(namespace.getValue());
+        return header.append('>').toString();
+    }
+
+    // Namespaces declared by the first elements of the open ones, also added to the namespaces of the layout
+    private Map<String, String> addNamespaces(String content, int[] open, int elements) {
+        Map<String, String> declared = new LinkedHashMap<>();
+        for (int level = 0; level < elements; level++)
+            addNamespaces(content, open[2 * level], open[2 * level + 1], declared);
+
+        if (namespaces != null) {
+            for (Map.Entry<String, String> namespace : declared.entrySet()) {
+                String previous = namespaces.put(namespace.getKey(), namespace.getValue());
+                if (previous != null && !previous.equals(namespace.getValue())) {
+                    namespaces = null;
+                    break;
+                }
+            }
+        }
+        return declared;
+    }
+
+    private static void addNamespaces(String content, int start, int end, Map<String, String> namespaces) {
+        int i = start + 1;
+        // Skip the element name
+        while (i < end && !Character.isWhitespace(content.charAt(i)) && content.charAt(i) != '>' && content.charAt(i) != '/')
+            i++;
+
+        while (i < end) {
+            while (i < end && Character.isWhitespace(content.charAt(i)))
+                i++;
+            int nameStart = i;
+            while (i < end && content.charAt(i) != '=' && !Character.isWhitespace(content.charAt(i)) && content.charAt(i) != '>')
+                i++;
+            String name = content.substring(nameStart, i);
+            while (i < end && (Character.isWhitespace(content.charAt(i)) || content.charAt(i) == '='))
+                i++;
+            if (i >= end || (content.charAt(i) != '"' && content.charAt(i) != '\''))
+                return;
+            int valueEnd = content.indexOf(content.charAt(i), i + 1);
+            if (valueEnd < 0)
+                return;
+            if (name.equals("xmlns") || name.startsWith("xmlns:"))
+                namespaces.put(name, content.substring(i, valueEnd + 1));
+            i = valueEnd + 1;
+        }
+    }
+
+    static String decode(byte[] bytes) {
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        // Byte order mark
+        return content.startsWith("\uFEFF") ? content.substring(1) : content;
+    }
+
+    // The parts are located in the decoded text, so anything else than UTF-8 can't be scanned
+    static boolean isUtf8(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] == 0 || bytes[1] == 0 || (bytes[0] & 0xFF) == 0xFE || (bytes[0] & 0xFF) == 0xFF))
+            return false;
+
+        String prolog = new String(bytes, 0, Math.min(bytes.length, 128), StandardCharsets.ISO_8859_1);
+        int declarationEnd = prolog.indexOf("?>");
+        if (!prolog.startsWith("<?xml") || declarationEnd < 0) return true;
+        int encoding = prolog.indexOf("encoding");
+        if (encoding < 0 || encoding > declarationEnd) return true;
+
+        String declared = prolog.substring(encoding, declarationEnd).toUpperCase(Locale.ROOT);
+        return declared.contains("UTF-8") || declared.contains("UTF8");
+    }
+}
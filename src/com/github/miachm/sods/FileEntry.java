@@ -1,14 +1,153 @@
 package com.github.miachm.sods;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+/*
+    An additional file of the spreadsheet. Its content is one of:
+    - data: bytes given by the user.
+    - file: a file given by the user, read when the spreadsheet is saved.
+    - zipEntry: an entry of the ODS file which was loaded. It's copied raw, still compressed, when saving.
+      After detach(), its compressed bytes are kept in memory.
+ */
 class FileEntry {
     String path;
     String mimetype;
     byte[] data;
-    
+    private File file;
+    private File zipFile;
+    private ZipDirectory.Entry zipEntry;
+    // Compressed content of a zip entry which doesn't depend on the zip file anymore
+    private byte[] compressed;
+    // State of the zip file when it was loaded, its entries can't be copied if it changed
+    private long zipLength;
+    private long zipLastModified;
+
     FileEntry(String path, String mimetype, byte[] data)
     {
         this.path = path;
         this.mimetype = mimetype;
         this.data = data;
     }
+
+    FileEntry(String path, String mimetype, File file)
+    {
+        this.path = path;
+        this.mimetype = mimetype;
+        this.file = file;
+    }
+
+    FileEntry(String path, String mimetype, File zipFile, ZipDirectory.Entry zipEntry)
+    {
+        this.path = path;
+        this.mimetype = mimetype;
+        this.zipFile = zipFile;
+        this.zipEntry = zipEntry;
+        this.zipLength = zipFile.length();
+        this.zipLastModified = zipFile.lastModified();
+    }
+
+    /*
+        Checks that the content can still be read. Returns false for an entry of a loaded file
+        which was modified or deleted since, it can't be copied anymore.
+        A file given by the user must still exist.
+     */
+    boolean checkSource() throws IOException
+    {
+        if (zipFile != null)
+            return zipFile.length() == zipLength && zipFile.lastModified() == zipLastModified;
+        if (file != null && !file.isFile())
+            throw new FileNotFoundException("The file " + file + " of the entry " + path + " doesn't exist");
+        return true;
+    }
+
+    // Determines if the content is read from this file when saving
+    boolean isReadFrom(File target) throws IOException
+    {
+        File source = file != null ? file : zipFile;
+        return source != null && source.getCanonicalFile().equals(target.getCanonicalFile());
+    }
+
+    /*
+        Reads the content into memory, so it doesn't depend on any file.
+        An entry of the loaded zip keeps its compressed bytes.
+     */
+    void detach() throws IOException
+    {
+        if (file != null) {
+            data = Files.readAllBytes(file.toPath());
+            file = null;
+        } else if (zipEntry != null) {
+            if (zipEntry.compressedSize > Integer.MAX_VALUE)
+                throw new IOException("The entry " + path + " is too big to be kept in memory");
+            try (RandomAccessFile in = openZip()) {
+                in.seek(zipEntry.dataOffset(in));
+                compressed = new byte[(int) zipEntry.compressedSize];
+                in.readFully(compressed);
+            }
+            zipFile = null;
+        }
+    }
+
+    void write(Compressor compressor) throws IOException
+    {
+        if (compressed != null) {
+            compressor.addRawEntry(path, zipEntry.method, zipEntry.crc, zipEntry.compressedSize, zipEntry.size, new ByteArrayInputStream(compressed));
+        } else if (zipEntry != null) {
+            try (RandomAccessFile in = openZip()) {
+                in.seek(zipEntry.dataOffset(in));
+                InputStream raw = new BufferedInputStream(Channels.newInputStream(in.getChannel()));
+                compressor.addRawEntry(path, zipEntry.method, zipEntry.crc, zipEntry.compressedSize, zipEntry.size, raw);
+            }
+        } else if (file != null && compressor.isStored(path, file.length())) {
+            // The CRC goes before the data, so the file is read twice instead of being kept in memory
+            CRC32 crc = new CRC32();
+            long size = 0;
+            try (InputStream in = new FileInputStream(file)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    size += read;
+                }
+            }
+            try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+                compressor.addRawEntry(path, ZipEntry.STORED, crc.getValue(), size, size, in);
+            }
+        } else if (file != null) {
+            try (InputStream in = new FileInputStream(file);
+                 OutputStream out = compressor.startEntry(path)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                    out.write(buffer, 0, read);
+            }
+        } else {
+            compressor.addEntry(data, path);
+        }
+    }
+
+    private RandomAccessFile openZip() throws IOException
+    {
+        if (zipFile.length() != zipLength || zipFile.lastModified() != zipLastModified)
+            throw new IOException("The file " + zipFile + " was modified after being loaded, the entry " + path + " can't be copied");
+        return new RandomAccessFile(zipFile, "r");
+    }
+
+    // Only stored and deflated entries can be copied, the readers don't support other methods
+    static boolean canCopy(ZipDirectory.Entry entry)
+    {
+        return !entry.isEncrypted() && (entry.method == ZipEntry.STORED || entry.method == ZipEntry.DEFLATED);
+    }
 }
@@ -0,0 +1,704 @@
+package com.github.miachm.sods;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/*
+    Evaluates the formulas of a SpreadSheet and keeps their values up to date, see SpreadSheet.recalculate().
+
+    The formulas are parsed once. A run of repeated cells or repeated rows has the same formula text,
+    so it's evaluated once as a single FormulaCell, and its result is stored without splitting the runs.
+
+    The dependencies are indexed by the cells they read: the sheet is divided in blocks of cells and every
+    reference is added to the blocks which it covers, so the formulas which read a cell are found without
+    walking all of them. After a change, only the formulas which depend on it are evaluated again, in
+    topological order. The formulas which are left in a cycle get the error Err:522.
+    The formulas which can't be parsed, like the ones with unsupported functions, are not evaluated, see parse().
+
+    With a pool, the big levels of the topological order are evaluated in parallel. Evaluating only reads
+    the sheets, once the offsets of their runs are repaired by warmUp().
+
+    Inserting or deleting rows and columns, renaming a sheet or changing the sheets of the spreadsheet
+    invalidates the engine. It's built again, and every formula evaluated, with the next change.
+    The references of the formulas are not adjusted, so the formulas which read the moved cells, or name
+    the renamed sheet, are frozen before the change, see freeze().
+ */
+final class FormulaEngine {
+    private static final int BLOCK_ROWS = 128;
+    private static final int BLOCK_COLUMNS = 32;
+    // References which cover more blocks, like whole columns, are checked on every lookup
+    private static final int MAX_BLOCKS = 1024;
+    // Smaller levels of the recalculation are evaluated in the calling thread, see evaluate()
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int TASK_SIZE = 64;
+
+    private final SpreadSheet spread;
+    private final Map<Sheet, SheetFormulas> sheets = new IdentityHashMap<>();
+    private boolean stale = true;
+    // Marks the formulas already found by a lookup of dependents, see dependents()
+    private int stamp;
+    // Evaluates the formulas in parallel, null to evaluate them in the calling thread
+    private ForkJoinPool pool;
+
+    FormulaEngine(SpreadSheet spread)
+    {
+        this.spread = spread;
+    }
+
+    /*
+        A run of cells with the same formula: the rows [row, lastRow] of a run of rows and the columns
+        [column, lastColumn] of a run of cells. Reading the sheet can split those runs, so the cells are
+        always found by their position.
+     */
+    static final class FormulaCell {
+        final Sheet sheet;
+        final int row;
+        final int column;
+        final int lastRow;
+        final int lastColumn;
+        final FormulaNode node;
+
+        // True once the cell is not in the engine, its dependencies are removed lazily
+        boolean removed;
+        int stamp;
+        // State of a recalculation
+        boolean dirty;
+        int pending;
+        List<FormulaCell> successors;
+        // State of the search of cycles
+        int visit = -1;
+        int lowLink;
+        int next;
+        boolean onStack;
+        boolean inCycle;
+
+        FormulaCell(Sheet sheet, int row, int column, int lastRow, int lastColumn, FormulaNode node)
+        {
+            this.sheet = sheet;
+            this.row = row;
+            this.column = column;
+            this.lastRow = lastRow;
+            this.lastColumn = lastColumn;
+            this.node = node;
+        }
+
+        boolean intersects(int row, int column, int lastRow, int lastColumn)
+        {
+            return this.row <= lastRow && row <= this.lastRow && this.column <= lastColumn && column <= this.lastColumn;
+        }
+    }
+
+    // A formula which reads an area of a sheet
+    private static final class Dependency {
+        final FormulaNode.Reference reference;
+        final FormulaCell formula;
+
+        Dependency(FormulaNode.Reference reference, FormulaCell formula)
+        {
+            this.reference = reference;
+            this.formula = formula;
+        }
+    }
+
+    // The formulas of a sheet and the formulas which read it
+    private static final class SheetFormulas {
+        // Keyed by position, see key()
+        final TreeMap<Long, FormulaCell> cells = new TreeMap<>();
+        int maxRowSpan = 1;
+        final Map<Long, List<Dependency>> blocks = new HashMap<>();
+        final List<Dependency> large = new ArrayList<>();
+    }
+
+    void invalidate()
+    {
+        stale = true;
+    }
+
+    void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /*
+        Parses every formula of the spreadsheet again and evaluates all of them.
+     */
+    void recalculateAll()
+    {
+        for (Sheet sheet : sheets.keySet()) {
+            if (sheet.formulas == this)
+                sheet.formulas = null;
+        }
+        sheets.clear();
+        for (Sheet sheet : spread.getSheets()) {
+            sheets.put(sheet, new SheetFormulas());
+            sheet.formulas = this;
+        }
+
+        List<FormulaCell> all = new ArrayList<>();
+        for (Map.Entry<Sheet, SheetFormulas> entry : sheets.entrySet())
+            scan(entry.getKey(), entry.getValue(), 0, entry.getKey().getMaxRows() - 1, all);
+        stale = false;
+        recalculate(all);
+    }
+
+    /*
+        The values or formulas of an area of a sheet were modified.
+        The formulas of the area are parsed again and the formulas which depend on it are evaluated.
+     */
+    void contentChanged(Sheet sheet, int row, int column, int numRows, int numColumns)
+    {
+        if (stale) {
+            recalculateAll();
+            return;
+        }
+        SheetFormulas index = sheets.get(sheet);
+        if (index == null || numRows == 0 || numColumns == 0)
+            return;
+
+        int lastRow = row + numRows - 1;
+        int lastColumn = column + numColumns - 1;
+        List<FormulaCell> added = new ArrayList<>();
+        rescan(sheet, index, row, lastRow, added);
+
+        List<FormulaCell> changed = new ArrayList<>();
+        for (FormulaCell formula : added) {
+            if (formula.intersects(row, column, lastRow, lastColumn))
+                changed.add(formula);
+        }
+        changed.addAll(dependents(sheet, row, column, lastRow, lastColumn));
+        recalculate(changed);
+    }
+
+    /*
+        Editing cells can split the runs of their rows, even out of the edited area, so the formulas
+        of the rows are removed and scanned again. The rows grow until they cover whole runs
+        and whole formulas of the previous scan.
+     */
+    private void rescan(Sheet sheet, SheetFormulas index, int first, int last, List<FormulaCell> added)
+    {
+        TableFieldList<Row> rows = sheet.rows;
+        last = Math.min(last, sheet.getMaxRows() - 1);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (FormulaCell formula : remove(index, first, last)) {
+                if (formula.row < first || formula.lastRow > last) {
+                    first = Math.min(first, formula.row);
+                    last = Math.max(last, formula.lastRow);
+                    grown = true;
+                }
+            }
+
+            last = Math.min(last, sheet.getMaxRows() - 1);
+            int firstRun = rows.runIndexOf(first);
+            int lastRun = rows.runIndexOf(last);
+            if (firstRun == rows.size() || lastRun == rows.size())
+                break;
+            int runStart = rows.offsetOf(firstRun);
+            int runEnd = rows.offsetOf(lastRun) + rows.get(lastRun).num_repeated - 1;
+            if (runStart < first || runEnd > last) {
+                first = runStart;
+                last = runEnd;
+                grown = true;
+            }
+        }
+        scan(sheet, index, first, last, added);
+    }
+
+    // Removes the formulas of the rows [first, last] from the index
+    private List<FormulaCell> remove(SheetFormulas index, int first, int last)
+    {
+        long from = key(Math.max(0, first - index.maxRowSpan + 1), 0);
+        NavigableMap<Long, FormulaCell> candidates = index.cells.subMap(from, true, key(last, Integer.MAX_VALUE), true);
+
+        List<FormulaCell> removed = new ArrayList<>();
+        for (FormulaCell formula : candidates.values()) {
+            if (formula.lastRow >= first)
+                removed.add(formula);
+        }
+        for (FormulaCell formula : removed) {
+            index.cells.remove(key(formula.row, formula.column));
+            formula.removed = true;
+        }
+        return removed;
+    }
+
+    // Adds the formulas of the runs of rows which start in [first, last]
+    private void scan(Sheet sheet, SheetFormulas index, int first, int last, List<FormulaCell> added)
+    {
+        TableFieldList<Row> rows = sheet.rows;
+        int i = rows.runIndexOf(first);
+        if (i == rows.size())
+            return;
+        int start = rows.offsetOf(i);
+        for (; i < rows.size() && start <= last; i++) {
+            Row row = rows.get(i);
+            int end = start + row.num_repeated - 1;
+            TableFieldList<Cell> cells = row.getCellsForReading();
+            if (cells != null) {
+                int column = 0;
+                for (Cell cell : cells) {
+                    GroupCell group = cell.getGroup();
+                    FormulaNode node = null;
+                    if (cell.getFormula() != null && !cell.isFrozen() && (group == null || group.getCell() == cell))
+                        node = parse(cell.getFormula(), sheet);
+                    if (node != null) {
+                        FormulaCell formula = new FormulaCell(sheet, start, column, end,
+                                column + cell.num_repeated - 1, node);
+                        add(index, formula);
+                        added.add(formula);
+                    }
+                    column += cell.num_repeated;
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    /*
+        The cells of a sheet from the row, or from the column, on are going to move. The text of a reference
+        to those cells would read other cells once they are moved, so the formulas with such a reference are
+        frozen: they are left out of the engine like the formulas which can't be parsed, until a formula is
+        set again in their cells. A reference to whole columns still reads the same cells when rows are moved.
+     */
+    void freeze(Sheet sheet, int row, int column)
+    {
+        freeze(sheet, reference -> (reference.lastRow >= row && reference.lastRow != FormulaParser.LAST_ROW)
+                || reference.lastColumn >= column);
+    }
+
+    // The sheet is going to be renamed, the formulas which read it by its name are frozen
+    void freeze(Sheet sheet)
+    {
+        freeze(sheet, reference -> reference.named);
+    }
+
+    private void freeze(Sheet sheet, Predicate<FormulaNode.Reference> moved)
+    {
+        List<FormulaNode.Reference> references = new ArrayList<>();
+        for (Sheet other : spread.getSheets()) {
+            for (Row item : other.rows) {
+                TableFieldList<Cell> cells = item.getCellsForReading();
+                if (cells == null)
+                    continue;
+                for (Cell cell : cells) {
+                    if (cell.getFormula() == null || cell.isFrozen())
+                        continue;
+                    FormulaNode node = parse(cell.getFormula(), other);
+                    if (node == null)
+                        continue;
+                    references.clear();
+                    node.collectReferences(references);
+                    for (FormulaNode.Reference reference : references) {
+                        if (reference.sheet == sheet && moved.test(reference)) {
+                            cell.freeze();
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+        The tree of a formula, or null if it can't be parsed or it uses a function which is not supported.
+        Those formulas are left out of the engine: their cells keep the value which was loaded or set,
+        and the formulas which read them use that value.
+     */
+    private FormulaNode parse(String formula, Sheet sheet)
+    {
+        try {
+            return FormulaParser.parse(formula, sheet, spread);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void add(SheetFormulas index, FormulaCell formula)
+    {
+        index.cells.put(key(formula.row, formula.column), formula);
+        index.maxRowSpan = Math.max(index.maxRowSpan, formula.lastRow - formula.row + 1);
+
+        List<FormulaNode.Reference> references = new ArrayList<>();
+        formula.node.collectReferences(references);
+        for (FormulaNode.Reference reference : references) {
+            SheetFormulas target = sheets.get(reference.sheet);
+            if (target == null)
+                continue;
+
+            Dependency dependency = new Dependency(reference, formula);
+            long firstBlockRow = reference.row / BLOCK_ROWS;
+            long lastBlockRow = reference.lastRow / BLOCK_ROWS;
+            long firstBlockColumn = reference.column / BLOCK_COLUMNS;
+            long lastBlockColumn = reference.lastColumn / BLOCK_COLUMNS;
+            if ((lastBlockRow - firstBlockRow + 1) * (lastBlockColumn - firstBlockColumn + 1) > MAX_BLOCKS) {
+                target.large.add(dependency);
+                continue;
+            }
+            for (long blockRow = firstBlockRow; blockRow <= lastBlockRow; blockRow++) {
+                for (long blockColumn = firstBlockColumn; blockColumn <= lastBlockColumn; blockColumn++)
+                    target.blocks.computeIfAbsent(key(blockRow, blockColumn), k -> new ArrayList<>()).add(dependency);
+            }
+        }
+    }
+
+    // The formulas which read some cell of an area, each one once
+    private List<FormulaCell> dependents(Sheet sheet, int row, int column, int lastRow, int lastColumn)
+    {
+        SheetFormulas index = sheets.get(sheet);
+        if (index == null)
+            return Collections.emptyList();
+
+        stamp++;
+        List<FormulaCell> result = new ArrayList<>();
+        collect(index.large, row, column, lastRow, lastColumn, result);
+
+        long firstBlockRow = row / BLOCK_ROWS;
+        long lastBlockRow = lastRow / BLOCK_ROWS;
+        long firstBlockColumn = column / BLOCK_COLUMNS;
+        long lastBlockColumn = lastColumn / BLOCK_COLUMNS;
+        if ((lastBlockRow - firstBlockRow + 1) * (lastBlockColumn - firstBlockColumn + 1) > index.blocks.size()) {
+            for (List<Dependency> block : index.blocks.values())
+                collect(block, row, column, lastRow, lastColumn, result);
+        } else {
+            for (long blockRow = firstBlockRow; blockRow <= lastBlockRow; blockRow++) {
+                for (long blockColumn = firstBlockColumn; blockColumn <= lastBlockColumn; blockColumn++) {
+                    List<Dependency> block = index.blocks.get(key(blockRow, blockColumn));
+                    if (block != null)
+                        collect(block, row, column, lastRow, lastColumn, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void collect(List<Dependency> dependencies, int row, int column, int lastRow, int lastColumn,
+                         List<FormulaCell> result)
+    {
+        for (int i = 0; i < dependencies.size(); i++) {
+            Dependency dependency = dependencies.get(i);
+            FormulaCell formula = dependency.formula;
+            if (formula.removed) {
+                // The order doesn't matter, the last one takes its place
+                Dependency last = dependencies.remove(dependencies.size() - 1);
+                if (i < dependencies.size())
+                    dependencies.set(i--, last);
+                continue;
+            }
+            if (formula.stamp != stamp && dependency.reference.intersects(row, column, lastRow, lastColumn)) {
+                formula.stamp = stamp;
+                result.add(formula);
+            }
+        }
+    }
+
+    /*
+        Evaluates the formulas and all the formulas which depend on them, each one after the formulas which it reads.
+     */
+    private void recalculate(List<FormulaCell> changed)
+    {
+        List<FormulaCell> dirty = new ArrayList<>();
+        for (FormulaCell formula : changed) {
+            if (!formula.dirty) {
+                formula.dirty = true;
+                dirty.add(formula);
+            }
+        }
+        for (int i = 0; i < dirty.size(); i++) {
+            FormulaCell formula = dirty.get(i);
+            formula.successors = dependents(formula.sheet, formula.row, formula.column, formula.lastRow, formula.lastColumn);
+            for (FormulaCell successor : formula.successors) {
+                successor.pending++;
+                if (!successor.dirty) {
+                    successor.dirty = true;
+                    dirty.add(successor);
+                }
+            }
+        }
+
+        List<FormulaCell> ready = new ArrayList<>();
+        for (FormulaCell formula : dirty) {
+            if (formula.pending == 0)
+                ready.add(formula);
+        }
+
+        Set<Sheet> modified = Collections.newSetFromMap(new IdentityHashMap<>());
+        evaluate(ready, modified);
+
+        List<FormulaCell> blocked = new ArrayList<>();
+        for (FormulaCell formula : dirty) {
+            if (formula.pending > 0)
+                blocked.add(formula);
+        }
+        if (!blocked.isEmpty()) {
+            /*
+                The formulas of a cycle get an error. Then the ones which only depend on a cycle
+                can be evaluated, they read the error like any other value
+             */
+            List<FormulaCell> cycles = findCycles(blocked);
+            ready.clear();
+            for (FormulaCell formula : cycles) {
+                store(formula, FormulaError.CIRCULAR_REFERENCE);
+                modified.add(formula.sheet);
+                formula.pending = 0;
+            }
+            for (FormulaCell formula : cycles) {
+                for (FormulaCell successor : formula.successors) {
+                    if (!successor.inCycle && --successor.pending == 0)
+                        ready.add(successor);
+                }
+            }
+            evaluate(ready, modified);
+        }
+
+        for (FormulaCell formula : dirty) {
+            formula.dirty = false;
+            formula.pending = 0;
+            formula.successors = null;
+            formula.visit = -1;
+            formula.inCycle = false;
+        }
+        for (Sheet sheet : modified)
+            sheet.markDirty();
+    }
+
+    /*
+        Evaluates the formulas by levels of the topological order: a level holds the formulas whose dependencies
+        are all done, so they don't read each other and they can be evaluated in parallel. The results of a level
+        are stored once it's evaluated, in the calling thread, because storing a value can modify the style pool.
+     */
+    private void evaluate(List<FormulaCell> level, Set<Sheet> modified)
+    {
+        boolean warm = false;
+        while (!level.isEmpty()) {
+            Object[] results = new Object[level.size()];
+            if (pool != null && level.size() >= PARALLEL_THRESHOLD) {
+                if (!warm) {
+                    warmUp();
+                    warm = true;
+                }
+                pool.invoke(new Evaluation(this, level, results, 0, level.size()));
+            } else {
+                for (int i = 0; i < results.length; i++)
+                    results[i] = level.get(i).node.evaluate(this);
+            }
+
+            List<FormulaCell> next = new ArrayList<>();
+            for (int i = 0; i < results.length; i++) {
+                FormulaCell formula = level.get(i);
+                store(formula, results[i]);
+                modified.add(formula.sheet);
+                for (FormulaCell successor : formula.successors) {
+                    if (--successor.pending == 0)
+                        next.add(successor);
+                }
+            }
+            level = next;
+        }
+    }
+
+    /*
+        Repairs the offsets of all the runs of the sheets. After it, and until the runs change, looking up
+        a position doesn't modify the lists and the sheets can be read from several threads.
+        Storing the results doesn't change the runs, so it's enough once per recalculation.
+     */
+    private void warmUp()
+    {
+        for (Sheet sheet : sheets.keySet()) {
+            sheet.rows.runIndexOf(Integer.MAX_VALUE);
+            for (Row row : sheet.rows) {
+                TableFieldList<Cell> cells = row.getCellsForReading();
+                if (cells != null)
+                    cells.runIndexOf(Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    // Evaluates the formulas [from, to) of a level, splitting them in tasks of TASK_SIZE formulas
+    private static final class Evaluation extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FormulaEngine engine;
+        private final List<FormulaCell> level;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        Evaluation(FormulaEngine engine, List<FormulaCell> level, Object[] results, int from, int to)
+        {
+            this.engine = engine;
+            this.level = level;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= TASK_SIZE) {
+                for (int i = from; i < to; i++)
+                    results[i] = level.get(i).node.evaluate(engine);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Evaluation(engine, level, results, from, middle),
+                    new Evaluation(engine, level, results, middle, to));
+        }
+    }
+
+    /*
+        The formulas which are part of a cycle, among the ones which couldn't be evaluated.
+        It's Tarjan's algorithm over the strongly connected components, without recursion because the chains can be long:
+        a component with more than one formula, or a formula which depends on itself, is a cycle.
+     */
+    private static List<FormulaCell> findCycles(List<FormulaCell> blocked)
+    {
+        List<FormulaCell> cycles = new ArrayList<>();
+        ArrayDeque<FormulaCell> stack = new ArrayDeque<>();
+        ArrayDeque<FormulaCell> path = new ArrayDeque<>();
+        int counter = 0;
+        for (FormulaCell root : blocked) {
+            if (root.visit >= 0)
+                continue;
+            root.visit = root.lowLink = counter++;
+            root.next = 0;
+            root.onStack = true;
+            stack.push(root);
+            path.push(root);
+
+            while (!path.isEmpty()) {
+                FormulaCell formula = path.peek();
+                if (formula.next < formula.successors.size()) {
+                    FormulaCell successor = formula.successors.get(formula.next++);
+                    if (successor.pending == 0)
+                        continue;
+                    if (successor.visit < 0) {
+                        successor.visit = successor.lowLink = counter++;
+                        successor.next = 0;
+                        successor.onStack = true;
+                        stack.push(successor);
+                        path.push(successor);
+                    } else if (successor.onStack) {
+                        formula.lowLink = Math.min(formula.lowLink, successor.visit);
+                    }
+                    continue;
+                }
+
+                path.pop();
+                if (!path.isEmpty())
+                    path.peek().lowLink = Math.min(path.peek().lowLink, formula.lowLink);
+                if (formula.lowLink != formula.visit)
+                    continue;
+
+                int start = cycles.size();
+                FormulaCell member;
+                do {
+                    member = stack.pop();
+                    member.onStack = false;
+                    cycles.add(member);
+                } while (member != formula);
+                if (cycles.size() - start == 1 && !formula.successors.contains(formula))
+                    cycles.remove(start);
+            }
+        }
+        for (FormulaCell formula : cycles)
+            formula.inCycle = true;
+        return cycles;
+    }
+
+    // Sets the result in every cell of the formula, walking the runs which cover it
+    private static void store(FormulaCell formula, Object result)
+    {
+        Object value = FormulaValues.toCellValue(result);
+        Sheet sheet = formula.sheet;
+        int numRows = formula.lastRow - formula.row + 1;
+        int numColumns = formula.lastColumn - formula.column + 1;
+        sheet.removeFromIndexes(formula.row, formula.column, numRows, numColumns);
+        StylePool pool = sheet.getStylePool();
+        TableFieldList<Row> rows = sheet.rows;
+        int i = rows.runIndexOf(formula.row);
+        int start = i < rows.size() ? rows.offsetOf(i) : formula.lastRow + 1;
+        for (; i < rows.size() && start <= formula.lastRow; i++) {
+            Row row = rows.get(i);
+            TableFieldList<Cell> cells = row.getCellsForReading();
+            if (cells != null) {
+                int j = cells.runIndexOf(formula.column);
+                int column = j < cells.size() ? cells.offsetOf(j) : formula.lastColumn + 1;
+                for (; j < cells.size() && column <= formula.lastColumn; j++) {
+                    Cell cell = cells.get(j);
+                    cell.setValue(value, pool);
+                    column += cell.num_repeated;
+                }
+            }
+            start += row.num_repeated;
+        }
+        sheet.addToIndexes(formula.row, formula.column, numRows, numColumns);
+    }
+
+    /*
+        The value of a cell for a formula. Cells out of the sheet are empty.
+     */
+    Object getValue(Sheet sheet, int row, int column)
+    {
+        if (row >= sheet.getMaxRows() || column >= sheet.getMaxColumns())
+            return null;
+
+        Row item = sheet.getRowForReading(row);
+        TableFieldList<Cell> cells = item.getCellsForReading();
+        if (cells == null)
+            return item.getValue(column);
+
+        int index = cells.runIndexOf(column);
+        if (index == cells.size())
+            return null;
+        Cell cell = cells.get(index);
+        GroupCell group = cell.getGroup();
+        if (group != null)
+            cell = group.getCell();
+        return cellValue(cell.getValue(), cell.getFormula());
+    }
+
+    // The value of the current position of a cursor, like getValue()
+    Object getValue(CellCursor cursor)
+    {
+        return cellValue(cursor.value(), cursor.formula());
+    }
+
+    // An error stored by a formula is read back as the error
+    private static Object cellValue(Object value, String formula)
+    {
+        if (formula != null && value instanceof String) {
+            FormulaError error = FormulaError.of((String) value);
+            if (error != null)
+                return error;
+        }
+        return value;
+    }
+
+    // A cursor over the part of the area which is inside of the sheet, null if there isn't any
+    CellCursor cursor(Sheet sheet, int row, int column, int lastRow, int lastColumn)
+    {
+        lastRow = Math.min(lastRow, sheet.getMaxRows() - 1);
+        lastColumn = Math.min(lastColumn, sheet.getMaxColumns() - 1);
+        if (row > lastRow || column > lastColumn)
+            return null;
+        return new CellCursor(sheet, row, column, lastRow - row + 1, lastColumn - column + 1);
+    }
+
+    private static long key(long row, long column)
+    {
+        return (row << 32) | column;
+    }
+}
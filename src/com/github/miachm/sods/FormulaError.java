@@ -0,0 +1,38 @@
+package com.github.miachm.sods;
+
+/*
+    The errors which a formula can produce. They are stored in the cell as a String with their code,
+    the same text which LibreOffice shows. A formula cell with one of those texts is read back as the error,
+    so the errors are propagated to the formulas which depend on it.
+ */
+enum FormulaError {
+    DIVISION_BY_ZERO("#DIV/0!"),
+    VALUE("#VALUE!"),
+    REFERENCE("#REF!"),
+    NAME("#NAME?"),
+    NOT_AVAILABLE("#N/A"),
+    NUMBER("#NUM!"),
+    CIRCULAR_REFERENCE("Err:522");
+
+    private final String code;
+
+    FormulaError(String code)
+    {
+        this.code = code;
+    }
+
+    String getCode()
+    {
+        return code;
+    }
+
+    // The error of a code, or null if the text is not an error
+    static FormulaError of(String code)
+    {
+        for (FormulaError error : values()) {
+            if (error.code.equals(code))
+                return error;
+        }
+        return null;
+    }
+}
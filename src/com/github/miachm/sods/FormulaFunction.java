@@ -0,0 +1,233 @@
+package com.github.miachm.sods;
+
+import java.util.Locale;
+
+/*
+    The functions which can be evaluated. They receive their arguments without evaluating them,
+    so the ranges are read directly from the sheet and IF only evaluates the branch which is taken.
+ */
+enum FormulaFunction {
+    SUM {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            Aggregate aggregate = new Aggregate();
+            Object error = aggregate.add(engine, arguments, false);
+            return error != null ? error : aggregate.sum;
+        }
+    },
+    AVERAGE {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            Aggregate aggregate = new Aggregate();
+            Object error = aggregate.add(engine, arguments, false);
+            if (error != null)
+                return error;
+            return aggregate.count > 0 ? aggregate.sum / aggregate.count : FormulaError.DIVISION_BY_ZERO;
+        }
+    },
+    MIN {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            Aggregate aggregate = new Aggregate();
+            Object error = aggregate.add(engine, arguments, false);
+            if (error != null)
+                return error;
+            return aggregate.count > 0 ? aggregate.min : 0.0;
+        }
+    },
+    MAX {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            Aggregate aggregate = new Aggregate();
+            Object error = aggregate.add(engine, arguments, false);
+            if (error != null)
+                return error;
+            return aggregate.count > 0 ? aggregate.max : 0.0;
+        }
+    },
+    COUNT {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            Aggregate aggregate = new Aggregate();
+            Object error = aggregate.add(engine, arguments, true);
+            return error != null ? error : (double) aggregate.count;
+        }
+    },
+    IF {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            if (arguments.length < 2 || arguments.length > 3)
+                return FormulaError.VALUE;
+
+            Object condition = FormulaValues.logical(arguments[0].evaluate(engine));
+            if (condition instanceof FormulaError)
+                return condition;
+            if ((Boolean) condition)
+                return arguments[1].evaluate(engine);
+            return arguments.length == 3 ? arguments[2].evaluate(engine) : Boolean.FALSE;
+        }
+    },
+    VLOOKUP {
+        @Override
+        Object evaluate(FormulaEngine engine, FormulaNode[] arguments)
+        {
+            if (arguments.length < 3 || arguments.length > 4 || !(arguments[1] instanceof FormulaNode.Reference))
+                return FormulaError.VALUE;
+
+            Object lookup = arguments[0].evaluate(engine);
+            if (lookup instanceof FormulaError)
+                return lookup;
+            if (lookup == null)
+                return FormulaError.NOT_AVAILABLE;
+
+            FormulaNode.Reference table = (FormulaNode.Reference) arguments[1];
+            if (table.sheet == null)
+                return FormulaError.REFERENCE;
+
+            Object index = FormulaValues.number(arguments[2].evaluate(engine));
+            if (index instanceof FormulaError)
+                return index;
+            double column = Math.floor((Double) index);
+            if (column < 1)
+                return FormulaError.VALUE;
+            if (column > table.lastColumn - table.column + 1)
+                return FormulaError.REFERENCE;
+
+            boolean sorted = true;
+            if (arguments.length == 4) {
+                Object value = FormulaValues.logical(arguments[3].evaluate(engine));
+                if (value instanceof FormulaError)
+                    return value;
+                sorted = (Boolean) value;
+            }
+
+            int row = findRow(engine, table, lookup, sorted);
+            if (row < 0)
+                return FormulaError.NOT_AVAILABLE;
+            return engine.getValue(table.sheet, row, table.column + (int) column - 1);
+        }
+
+        /*
+            The row of the first column of the table which matches the value, or -1.
+            A sorted table matches the last value which is lower or equal, like the spreadsheets the
+            search stops at the first greater value.
+         */
+        private int findRow(FormulaEngine engine, FormulaNode.Reference table, Object lookup, boolean sorted)
+        {
+            CellCursor cursor = engine.cursor(table.sheet, table.row, table.column, table.lastRow, table.column);
+            if (cursor == null)
+                return -1;
+
+            int found = -1;
+            while (cursor.next()) {
+                Object value = engine.getValue(cursor);
+                if (value == null || value instanceof FormulaError || !FormulaValues.sameType(value, lookup))
+                    continue;
+
+                int comparison = FormulaValues.compare(value, lookup);
+                if (comparison == 0 && !sorted)
+                    return cursor.row();
+                if (sorted) {
+                    if (comparison > 0)
+                        break;
+                    found = cursor.row();
+                }
+            }
+            return found;
+        }
+    };
+
+    abstract Object evaluate(FormulaEngine engine, FormulaNode[] arguments);
+
+    // The function with the name, ignoring the case. Null if it's not known
+    static FormulaFunction of(String name)
+    {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /*
+        Sum, count, minimum and maximum of the numbers of the arguments.
+        The numbers in ranges are added without expanding the repeated cells, texts and booleans in ranges are skipped.
+        The values given directly are converted to numbers.
+     */
+    private static final class Aggregate {
+        double sum;
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        // Returns the first error found, or null. When counting, the errors and the values which aren't numbers are skipped
+        Object add(FormulaEngine engine, FormulaNode[] arguments, boolean counting)
+        {
+            if (arguments.length == 0)
+                return FormulaError.VALUE;
+
+            for (FormulaNode argument : arguments) {
+                if (argument instanceof FormulaNode.Reference) {
+                    Object error = addRange(engine, (FormulaNode.Reference) argument);
+                    if (error != null && !counting)
+                        return error;
+                    continue;
+                }
+
+                Object value = argument.evaluate(engine);
+                if (value == null)
+                    continue;
+                Object number = FormulaValues.number(value);
+                if (number instanceof FormulaError) {
+                    if (counting)
+                        continue;
+                    return number;
+                }
+                add((Double) number, 1);
+            }
+            return null;
+        }
+
+        private Object addRange(FormulaEngine engine, FormulaNode.Reference range)
+        {
+            if (range.sheet == null)
+                return FormulaError.REFERENCE;
+
+            CellCursor cursor = engine.cursor(range.sheet, range.row, range.column, range.lastRow, range.lastColumn);
+            if (cursor == null)
+                return null;
+
+            Object error = null;
+            while (cursor.next()) {
+                double number = cursor.doubleValue();
+                if (Double.isNaN(number)) {
+                    Object value = engine.getValue(cursor);
+                    if (value instanceof FormulaError) {
+                        if (error == null)
+                            error = value;
+                        continue;
+                    }
+                    if (!FormulaValues.isNumeric(value))
+                        continue;
+                    number = FormulaValues.numericValue(value);
+                }
+                add(number, cursor.repeatCount());
+            }
+            return error;
+        }
+
+        private void add(double number, int times)
+        {
+            sum += number * times;
+            count += times;
+            min = Math.min(min, number);
+            max = Math.max(max, number);
+        }
+    }
+}
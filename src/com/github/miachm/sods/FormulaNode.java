@@ -0,0 +1,229 @@
+package com.github.miachm.sods;
+
+import java.util.List;
+
+/*
+    A node of the tree of a parsed formula, see FormulaParser.
+    Evaluating a node returns a value as described in FormulaValues.
+ */
+abstract class FormulaNode {
+
+    abstract Object evaluate(FormulaEngine engine);
+
+    // Adds the cells referenced by the node and its children
+    void collectReferences(List<Reference> references)
+    {
+    }
+
+    static final class Constant extends FormulaNode {
+        private final Object value;
+
+        Constant(Object value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate(FormulaEngine engine)
+        {
+            return value;
+        }
+    }
+
+    /*
+        A cell or a rectangular area of a sheet, [row, lastRow] x [column, lastColumn].
+        The sheet is null if the formula names a sheet which doesn't exist.
+        It's named if the formula gives the name of the sheet, like Sheet2.A1, instead of using the sheet of the formula.
+     */
+    static final class Reference extends FormulaNode {
+        final Sheet sheet;
+        final boolean named;
+        final int row;
+        final int column;
+        final int lastRow;
+        final int lastColumn;
+
+        Reference(Sheet sheet, boolean named, int row, int column, int lastRow, int lastColumn)
+        {
+            this.sheet = sheet;
+            this.named = named;
+            this.row = row;
+            this.column = column;
+            this.lastRow = lastRow;
+            this.lastColumn = lastColumn;
+        }
+
+        boolean isCell()
+        {
+            return row == lastRow && column == lastColumn;
+        }
+
+        boolean intersects(int row, int column, int lastRow, int lastColumn)
+        {
+            return this.row <= lastRow && row <= this.lastRow && this.column <= lastColumn && column <= this.lastColumn;
+        }
+
+        // An area can only be used as a value by the functions which take ranges
+        @Override
+        Object evaluate(FormulaEngine engine)
+        {
+            if (sheet == null)
+                return FormulaError.REFERENCE;
+            if (!isCell())
+                return FormulaError.VALUE;
+            return engine.getValue(sheet, row, column);
+        }
+
+        @Override
+        void collectReferences(List<Reference> references)
+        {
+            if (sheet != null)
+                references.add(this);
+        }
+    }
+
+    enum Operator {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE, POWER, CONCATENATE,
+        EQUAL, NOT_EQUAL, LESS, LESS_OR_EQUAL, GREATER, GREATER_OR_EQUAL
+    }
+
+    static final class Binary extends FormulaNode {
+        private final Operator operator;
+        private final FormulaNode left;
+        private final FormulaNode right;
+
+        Binary(Operator operator, FormulaNode left, FormulaNode right)
+        {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate(FormulaEngine engine)
+        {
+            Object a = left.evaluate(engine);
+            if (a instanceof FormulaError)
+                return a;
+            Object b = right.evaluate(engine);
+            if (b instanceof FormulaError)
+                return b;
+
+            switch (operator) {
+                case CONCATENATE:
+                    a = FormulaValues.text(a);
+                    b = FormulaValues.text(b);
+                    if (a instanceof FormulaError)
+                        return a;
+                    return b instanceof FormulaError ? b : (String) a + b;
+                case EQUAL:
+                    return FormulaValues.compare(a, b) == 0;
+                case NOT_EQUAL:
+                    return FormulaValues.compare(a, b) != 0;
+                case LESS:
+                    return FormulaValues.compare(a, b) < 0;
+                case LESS_OR_EQUAL:
+                    return FormulaValues.compare(a, b) <= 0;
+                case GREATER:
+                    return FormulaValues.compare(a, b) > 0;
+                case GREATER_OR_EQUAL:
+                    return FormulaValues.compare(a, b) >= 0;
+                default:
+                    return arithmetic(FormulaValues.number(a), FormulaValues.number(b));
+            }
+        }
+
+        private Object arithmetic(Object a, Object b)
+        {
+            if (a instanceof FormulaError)
+                return a;
+            if (b instanceof FormulaError)
+                return b;
+
+            double x = (Double) a;
+            double y = (Double) b;
+            double result;
+            switch (operator) {
+                case ADD:
+                    result = x + y;
+                    break;
+                case SUBTRACT:
+                    result = x - y;
+                    break;
+                case MULTIPLY:
+                    result = x * y;
+                    break;
+                case DIVIDE:
+                    if (y == 0)
+                        return FormulaError.DIVISION_BY_ZERO;
+                    result = x / y;
+                    break;
+                default:
+                    result = Math.pow(x, y);
+                    break;
+            }
+            if (Double.isNaN(result) || Double.isInfinite(result))
+                return FormulaError.NUMBER;
+            return result;
+        }
+
+        @Override
+        void collectReferences(List<Reference> references)
+        {
+            left.collectReferences(references);
+            right.collectReferences(references);
+        }
+    }
+
+    // Unary minus, or the percent operator if percent is true
+    static final class Unary extends FormulaNode {
+        private final boolean percent;
+        private final FormulaNode operand;
+
+        Unary(boolean percent, FormulaNode operand)
+        {
+            this.percent = percent;
+            this.operand = operand;
+        }
+
+        @Override
+        Object evaluate(FormulaEngine engine)
+        {
+            Object value = FormulaValues.number(operand.evaluate(engine));
+            if (value instanceof FormulaError)
+                return value;
+            return percent ? (Double) value / 100 : -(Double) value;
+        }
+
+        @Override
+        void collectReferences(List<Reference> references)
+        {
+            operand.collectReferences(references);
+        }
+    }
+
+    // A function call
+    static final class Call extends FormulaNode {
+        private final FormulaFunction function;
+        private final FormulaNode[] arguments;
+
+        Call(FormulaFunction function, FormulaNode[] arguments)
+        {
+            this.function = function;
+            this.arguments = arguments;
+        }
+
+        @Override
+        Object evaluate(FormulaEngine engine)
+        {
+            return function.evaluate(engine, arguments);
+        }
+
+        @Override
+        void collectReferences(List<Reference> references)
+        {
+            for (FormulaNode argument : arguments)
+                argument.collectReferences(references);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.github.miachm.sods;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+    Parses a formula, as it's stored in a cell, into a tree of FormulaNode.
+
+    The syntax is the one of the spreadsheets: "=SUM(A1:B3)*2", with or without the leading '='.
+    References can name another sheet like OpenFormula ("Sheet2.A1", "$'My sheet'.A1") or like Excel ("Sheet2!A1"),
+    and whole columns can be referenced ("C:C"). The arguments of the functions are separated by ';' or ','.
+    The sheets are resolved when the formula is parsed, a sheet which doesn't exist gives a #REF! error.
+
+    The operators have the usual precedence, from lower to higher:
+    comparisons, '&', '+' and '-', '*' and '/', '^', unary '-' and '%'.
+ */
+final class FormulaParser {
+    // The row of a reference to a whole column ends here, it's cut to the size of the sheet when it's read
+    static final int LAST_ROW = Integer.MAX_VALUE - 1;
+
+    private final String text;
+    private final Sheet sheet;
+    private final SpreadSheet spread;
+    private int position;
+
+    private FormulaParser(String text, Sheet sheet, SpreadSheet spread)
+    {
+        this.text = text;
+        this.sheet = sheet;
+        this.spread = spread;
+    }
+
+    /*
+        Parses the formula of a cell of the sheet, the other sheets are looked up in spread.
+        Throws an IllegalArgumentException if the syntax is not valid, or if the formula uses a function
+        or a name which is not supported.
+     */
+    static FormulaNode parse(String formula, Sheet sheet, SpreadSheet spread)
+    {
+        FormulaParser parser = new FormulaParser(formula, sheet, spread);
+        parser.skipSpaces();
+        if (parser.peek() == '=')
+            parser.position++;
+
+        FormulaNode node = parser.comparison();
+        parser.skipSpaces();
+        if (parser.position < formula.length())
+            throw parser.error("Unexpected character '" + parser.peek() + "'");
+        return node;
+    }
+
+    private FormulaNode comparison()
+    {
+        FormulaNode node = concatenation();
+        while (true) {
+            skipSpaces();
+            FormulaNode.Operator operator;
+            if (accept("<>"))
+                operator = FormulaNode.Operator.NOT_EQUAL;
+            else if (accept("<="))
+                operator = FormulaNode.Operator.LESS_OR_EQUAL;
+            else if (accept(">="))
+                operator = FormulaNode.Operator.GREATER_OR_EQUAL;
+            else if (accept("="))
+                operator = FormulaNode.Operator.EQUAL;
+            else if (accept("<"))
+                operator = FormulaNode.Operator.LESS;
+            else if (accept(">"))
+                operator = FormulaNode.Operator.GREATER;
+            else
+                return node;
+            node = new FormulaNode.Binary(operator, node, concatenation());
+        }
+    }
+
+    private FormulaNode concatenation()
+    {
+        FormulaNode node = additive();
+        while (true) {
+            skipSpaces();
+            if (!accept("&"))
+                return node;
+            node = new FormulaNode.Binary(FormulaNode.Operator.CONCATENATE, node, additive());
+        }
+    }
+
+    private FormulaNode additive()
+    {
+        FormulaNode node = multiplicative();
+        while (true) {
+            skipSpaces();
+            if (accept("+"))
+                node = new FormulaNode.Binary(FormulaNode.Operator.ADD, node, multiplicative());
+            else if (accept("-"))
+                node = new FormulaNode.Binary(FormulaNode.Operator.SUBTRACT, node, multiplicative());
+            else
+                return node;
+        }
+    }
+
+    private FormulaNode multiplicative()
+    {
+        FormulaNode node = power();
+        while (true) {
+            skipSpaces();
+            if (accept("*"))
+                node = new FormulaNode.Binary(FormulaNode.Operator.MULTIPLY, node, power());
+            else if (accept("/"))
+                node = new FormulaNode.Binary(FormulaNode.Operator.DIVIDE, node, power());
+            else
+                return node;
+        }
+    }
+
+    private FormulaNode power()
+    {
+        FormulaNode node = unary();
+        while (true) {
+            skipSpaces();
+            if (!accept("^"))
+                return node;
+            node = new FormulaNode.Binary(FormulaNode.Operator.POWER, node, unary());
+        }
+    }
+
+    private FormulaNode unary()
+    {
+        skipSpaces();
+        if (accept("-"))
+            return new FormulaNode.Unary(false, unary());
+        if (accept("+"))
+            return unary();
+
+        FormulaNode node = primary();
+        while (true) {
+            skipSpaces();
+            if (!accept("%"))
+                return node;
+            node = new FormulaNode.Unary(true, node);
+        }
+    }
+
+    private FormulaNode primary()
+    {
+        skipSpaces();
+        char c = peek();
+        if (c == '(') {
+            position++;
+            FormulaNode node = comparison();
+            expect(')');
+            return node;
+        }
+        if (c == '"')
+            return new FormulaNode.Constant(string());
+        if (isDigit(c) || (c == '.' && isDigit(peek(position + 1))))
+            return new FormulaNode.Constant(number());
+        if (c == '#')
+            return new FormulaNode.Constant(errorLiteral());
+
+        int start = position;
+        if (isLetter(c)) {
+            String name = name();
+            skipSpaces();
+            if (peek() == '(') {
+                FormulaFunction function = FormulaFunction.of(name);
+                if (function == null)
+                    throw error("Unknown function " + name);
+                position++;
+                return new FormulaNode.Call(function, arguments());
+            }
+            if (name.equalsIgnoreCase("TRUE") || name.equalsIgnoreCase("FALSE"))
+                return new FormulaNode.Constant(name.equalsIgnoreCase("TRUE"));
+            position = start;
+        }
+
+        FormulaNode reference = reference();
+        if (reference != null)
+            return reference;
+        if (position == text.length())
+            throw error("Unexpected end of the formula");
+        if (isLetter(c))
+            throw error("Named ranges are not supported");
+        throw error("Unexpected character '" + c + "'");
+    }
+
+    private FormulaNode[] arguments()
+    {
+        List<FormulaNode> arguments = new ArrayList<>();
+        skipSpaces();
+        if (accept(")"))
+            return new FormulaNode[0];
+
+        while (true) {
+            skipSpaces();
+            char c = peek();
+            // An empty argument, like in IF(A1;;1)
+            if (c == ';' || c == ',' || c == ')')
+                arguments.add(new FormulaNode.Constant(null));
+            else
+                arguments.add(comparison());
+
+            skipSpaces();
+            if (accept(")"))
+                return arguments.toArray(new FormulaNode[0]);
+            if (!accept(";") && !accept(","))
+                throw error("Expected ';' or ')'");
+        }
+    }
+
+    /*
+        A reference like A1, $A$1, A1:B2, C:C, Sheet2.A1, 'My sheet'!A1:B2.
+        Returns null, without consuming anything, if there isn't a reference in the position.
+     */
+    private FormulaNode reference()
+    {
+        int start = position;
+        Sheet target = sheet;
+        String sheetName = sheetPrefix();
+        if (sheetName != null)
+            target = spread != null ? spread.getSheet(sheetName) : null;
+
+        int[] first = cell();
+        if (first == null) {
+            position = start;
+            return null;
+        }
+
+        int[] last = first;
+        int beforeColon = position;
+        if (accept(":")) {
+            sheetPrefix();
+            last = cell();
+            if (last == null) {
+                position = beforeColon;
+                last = first;
+            }
+        }
+
+        // A column without row is only valid as a whole column, C:C
+        boolean firstColumn = first[0] < 0;
+        boolean lastColumn = last[0] < 0;
+        if (firstColumn != lastColumn || (firstColumn && last == first)) {
+            position = start;
+            return null;
+        }
+
+        int row = firstColumn ? 0 : Math.min(first[0], last[0]);
+        int lastRow = firstColumn ? LAST_ROW : Math.max(first[0], last[0]);
+        if (sheetName != null && target == null)
+            return new FormulaNode.Reference(null, true, 0, 0, 0, 0);
+        return new FormulaNode.Reference(target, sheetName != null, row, Math.min(first[1], last[1]),
+                lastRow, Math.max(first[1], last[1]));
+    }
+
+    // The name of the sheet before a reference, with its separator. Null if there isn't one
+    private String sheetPrefix()
+    {
+        int start = position;
+        accept("$");
+        String name = null;
+        if (peek() == '\'') {
+            StringBuilder builder = new StringBuilder();
+            position++;
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '\'') {
+                    if (peek() != '\'') {
+                        name = builder.toString();
+                        break;
+                    }
+                    position++;
+                }
+                builder.append(c);
+            }
+        } else {
+            int nameStart = position;
+            while (position < text.length() && (isLetter(peek()) || isDigit(peek()) || peek() == '_'))
+                position++;
+            if (position > nameStart)
+                name = text.substring(nameStart, position);
+        }
+
+        if (name != null && (accept(".") || accept("!")))
+            return name;
+        position = start;
+        return null;
+    }
+
+    /*
+        A cell like $A$1, returned as {row, column}. A column without row, like C, is returned as {-1, column}.
+        Returns null if there isn't a cell.
+     */
+    private int[] cell()
+    {
+        int start = position;
+        accept("$");
+        int column = 0;
+        int letters = 0;
+        while (position < text.length() && isLetter(peek())) {
+            column = column * 26 + (Character.toUpperCase(peek()) - 'A' + 1);
+            position++;
+            if (++letters > 3) {
+                position = start;
+                return null;
+            }
+        }
+        if (letters == 0) {
+            position = start;
+            return null;
+        }
+
+        int afterColumn = position;
+        accept("$");
+        int row = 0;
+        int digits = 0;
+        while (position < text.length() && isDigit(peek())) {
+            row = row * 10 + (peek() - '0');
+            position++;
+            if (++digits > 7) {
+                position = start;
+                return null;
+            }
+        }
+
+        if (digits == 0) {
+            position = afterColumn;
+            if (isNameCharacter(peek())) {
+                position = start;
+                return null;
+            }
+            return new int[]{-1, column - 1};
+        }
+        if (row == 0 || isNameCharacter(peek()) || peek() == '(') {
+            position = start;
+            return null;
+        }
+        return new int[]{row - 1, column - 1};
+    }
+
+    private String string()
+    {
+        StringBuilder builder = new StringBuilder();
+        position++;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                if (peek() != '"')
+                    return builder.toString();
+                position++;
+            }
+            builder.append(c);
+        }
+        throw error("Unterminated string");
+    }
+
+    private Double number()
+    {
+        int start = position;
+        while (isDigit(peek()))
+            position++;
+        if (peek() == '.') {
+            position++;
+            while (isDigit(peek()))
+                position++;
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            int exponent = position++;
+            if (peek() == '+' || peek() == '-')
+                position++;
+            if (!isDigit(peek())) {
+                position = exponent;
+            } else {
+                while (isDigit(peek()))
+                    position++;
+            }
+        }
+        return Double.parseDouble(text.substring(start, position));
+    }
+
+    private FormulaError errorLiteral()
+    {
+        for (FormulaError error : FormulaError.values()) {
+            if (text.startsWith(error.getCode(), position)) {
+                position += error.getCode().length();
+                return error;
+            }
+        }
+        throw error("Unknown error value");
+    }
+
+    // A name of a function or a sheet, letters, digits, '_' and '.'
+    private String name()
+    {
+        int start = position;
+        while (position < text.length() && (isNameCharacter(peek()) || peek() == '.'))
+            position++;
+        return text.substring(start, position);
+    }
+
+    private void expect(char c)
+    {
+        skipSpaces();
+        if (peek() != c)
+            throw error("Expected '" + c + "'");
+        position++;
+    }
+
+    private boolean accept(String token)
+    {
+        if (text.startsWith(token, position)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void skipSpaces()
+    {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            position++;
+    }
+
+    private char peek()
+    {
+        return peek(position);
+    }
+
+    private char peek(int index)
+    {
+        return index < text.length() ? text.charAt(index) : '\0';
+    }
+
+    private IllegalArgumentException error(String message)
+    {
+        return new IllegalArgumentException(message + " at position " + position + " of the formula: " + text);
+    }
+
+    private static boolean isDigit(char c)
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c)
+    {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean isNameCharacter(char c)
+    {
+        return isLetter(c) || isDigit(c) || c == '_';
+    }
+}
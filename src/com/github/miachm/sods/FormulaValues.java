@@ -0,0 +1,189 @@
+package com.github.miachm.sods;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/*
+    Conversions between the values of the cells and the types used by the formulas.
+
+    While a formula is evaluated, a value is a Double, a String, a Boolean, a FormulaError, null for an empty cell,
+    or the value of a referenced cell as it's stored (a LocalDate, an OfficeCurrency...). The conversions return
+    the converted value or a FormulaError, which is propagated by the operators and the functions.
+ */
+final class FormulaValues {
+    // The day 0 of the spreadsheets, dates are numbers of days since it
+    private static final LocalDate EPOCH = LocalDate.of(1899, 12, 30);
+    private static final double SECONDS_PER_DAY = 86400;
+
+    private FormulaValues() {
+    }
+
+    // True for the values which are numbers in a spreadsheet: numbers, currencies, percentages, dates and times
+    static boolean isNumeric(Object value)
+    {
+        return value instanceof Number || value instanceof OfficeCurrency || value instanceof OfficePercentage
+                || value instanceof LocalDate || value instanceof LocalDateTime || value instanceof Duration;
+    }
+
+    // The number of a value which isNumeric()
+    static double numericValue(Object value)
+    {
+        if (value instanceof Number)
+            return ((Number) value).doubleValue();
+        if (value instanceof OfficeCurrency) {
+            Double number = ((OfficeCurrency) value).getValue();
+            return number != null ? number : 0;
+        }
+        if (value instanceof OfficePercentage) {
+            Double number = ((OfficePercentage) value).getValue();
+            return number != null ? number : 0;
+        }
+        if (value instanceof LocalDate)
+            return ChronoUnit.DAYS.between(EPOCH, (LocalDate) value);
+        if (value instanceof LocalDateTime) {
+            LocalDateTime dateTime = (LocalDateTime) value;
+            return ChronoUnit.DAYS.between(EPOCH, dateTime.toLocalDate())
+                    + dateTime.toLocalTime().toNanoOfDay() / (SECONDS_PER_DAY * 1e9);
+        }
+        Duration duration = (Duration) value;
+        return (duration.getSeconds() + duration.getNano() / 1e9) / SECONDS_PER_DAY;
+    }
+
+    // A Double, or a FormulaError if the value is not a number
+    static Object number(Object value)
+    {
+        if (value == null)
+            return 0.0;
+        if (value instanceof Double || value instanceof FormulaError)
+            return value;
+        if (isNumeric(value))
+            return numericValue(value);
+        if (value instanceof Boolean)
+            return (Boolean) value ? 1.0 : 0.0;
+
+        Double number = parseNumber(value.toString());
+        return number != null ? number : FormulaError.VALUE;
+    }
+
+    // A Double if the text is a plain number, null otherwise
+    static Double parseNumber(String text)
+    {
+        text = text.trim();
+        if (text.isEmpty() || !Character.isDigit(text.charAt(text.length() - 1)))
+            return null;
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // A String, or a FormulaError
+    static Object text(Object value)
+    {
+        if (value == null)
+            return "";
+        if (value instanceof String || value instanceof FormulaError)
+            return value;
+        if (value instanceof Boolean)
+            return (Boolean) value ? "TRUE" : "FALSE";
+        if (value instanceof Number)
+            return formatNumber(((Number) value).doubleValue());
+        return value.toString();
+    }
+
+    // Numbers are written without exponent and without trailing zeros, like a spreadsheet with the standard format
+    static String formatNumber(double number)
+    {
+        if (number == Math.rint(number) && Math.abs(number) < 1e15)
+            return Long.toString((long) number);
+        double magnitude = Math.abs(number);
+        if (Double.isInfinite(number) || Double.isNaN(number) || magnitude >= 1e15 || magnitude < 1e-5)
+            return Double.toString(number);
+        return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+    }
+
+    // A Boolean, or a FormulaError
+    static Object logical(Object value)
+    {
+        if (value == null)
+            return false;
+        if (value instanceof Boolean || value instanceof FormulaError)
+            return value;
+        if (value instanceof String) {
+            if (((String) value).equalsIgnoreCase("TRUE"))
+                return true;
+            if (((String) value).equalsIgnoreCase("FALSE"))
+                return false;
+            return FormulaError.VALUE;
+        }
+        Object number = number(value);
+        if (number instanceof FormulaError)
+            return number;
+        return (Double) number != 0;
+    }
+
+    /*
+        Orders two values which aren't errors, like the comparison operators of the spreadsheets:
+        numbers go before texts and texts before booleans. Texts are compared ignoring the case.
+        An empty cell is compared as the empty value of the other type.
+     */
+    static int compare(Object left, Object right)
+    {
+        if (left == null)
+            left = emptyLike(right);
+        if (right == null)
+            right = emptyLike(left);
+
+        int leftRank = rank(left);
+        int rightRank = rank(right);
+        if (leftRank != rightRank)
+            return Integer.compare(leftRank, rightRank);
+
+        switch (leftRank) {
+            case 0:
+                double x = numericValue(left);
+                double y = numericValue(right);
+                return x < y ? -1 : (x > y ? 1 : 0);
+            case 1:
+                return String.CASE_INSENSITIVE_ORDER.compare(left.toString(), right.toString());
+            default:
+                return Boolean.compare((Boolean) left, (Boolean) right);
+        }
+    }
+
+    // True if the values are of the same type for compare(): both numbers, both texts or both booleans
+    static boolean sameType(Object left, Object right)
+    {
+        return rank(left) == rank(right);
+    }
+
+    private static Object emptyLike(Object other)
+    {
+        if (other instanceof Boolean)
+            return false;
+        if (other == null || isNumeric(other))
+            return 0.0;
+        return "";
+    }
+
+    private static int rank(Object value)
+    {
+        if (value instanceof Boolean)
+            return 2;
+        return isNumeric(value) ? 0 : 1;
+    }
+
+    // The value stored in the cell for the result of a formula
+    static Object toCellValue(Object result)
+    {
+        if (result == null)
+            return 0.0;
+        if (result instanceof FormulaError)
+            return ((FormulaError) result).getCode();
+        return result;
+    }
+}
@@ -0,0 +1,235 @@
+package com.github.miachm.sods;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class defines how a Spreadsheet is loaded from an ODS file.
+ * A default object loads the whole file in the calling thread, like SpreadSheet(File).
+ *
+ * <pre>
+ *     LoadOptions options = new LoadOptions();
+ *     options.setSheetNames("Sales");
+ *     options.setWindow(0, 0, 1000, 4);
+ *     options.setValuesOnly(true);
+ *     SpreadSheet spread = new SpreadSheet(new File("book.ods"), options);
+ * </pre>
+ *
+ * @see SpreadSheet#SpreadSheet(File, LoadOptions)
+ */
+public class LoadOptions {
+    private boolean parallel = false;
+    private ForkJoinPool pool = null;
+    private Set<String> sheetNames = null;
+    private int firstRow = 0;
+    private int firstColumn = 0;
+    private int endRow = Integer.MAX_VALUE;
+    private int endColumn = Integer.MAX_VALUE;
+    private boolean valuesOnly = false;
+    private boolean incrementalSave = false;
+    private boolean keepAdditionalFiles = false;
+
+    /**
+     * Build a default object, which loads the file sequentially
+     */
+    public LoadOptions()
+    {
+    }
+
+    /**
+     * Determines if the sheets are parsed in parallel or not.
+     *
+     * @return True if the sheets are parsed in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Enables or disables the parallel parsing of the sheets.
+     *
+     * In parallel mode, the content of the file is kept in memory and each sheet is parsed in its own task.
+     * The result is the same than a sequential load. Files with a single sheet, or machines with a single core, don't get any benefit.
+     *
+     * @param parallel True for parsing the sheets in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns the pool used in parallel mode.
+     *
+     * @return The pool, by default the common pool
+     */
+    public ForkJoinPool getPool() {
+        return pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Sets the pool used in parallel mode.
+     *
+     * @param pool The pool which will parse the sheets. Null for using the common pool
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the names of the sheets to load.
+     *
+     * @return The names, or null if all the sheets are loaded
+     */
+    public Set<String> getSheetNames() {
+        return sheetNames;
+    }
+
+    /**
+     * Loads only the sheets with these names, the others are skipped without being built.
+     * Names which are not in the file are ignored.
+     *
+     * @param names The names of the sheets to load. Null for loading all the sheets
+     */
+    public void setSheetNames(String... names) {
+        this.sheetNames = names == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(names)));
+    }
+
+    /**
+     * Loads only the cells inside of a window of every sheet.
+     *
+     * The cells keep their positions, the rows and columns before the window are loaded empty.
+     * The rows and columns after the window are not loaded, so the sheet ends with the window.
+     *
+     * @param firstRow The first row of the window
+     * @param firstColumn The first column of the window
+     * @param numRows The number of rows of the window
+     * @param numColumns The number of columns of the window
+     * @throws IllegalArgumentException If any of the parameters is negative
+     */
+    public void setWindow(int firstRow, int firstColumn, int numRows, int numColumns) {
+        if (firstRow < 0 || firstColumn < 0 || numRows < 0 || numColumns < 0)
+            throw new IllegalArgumentException("The window can't have negative values");
+
+        this.firstRow = firstRow;
+        this.firstColumn = firstColumn;
+        this.endRow = (int) Math.min(Integer.MAX_VALUE, (long) firstRow + numRows);
+        this.endColumn = (int) Math.min(Integer.MAX_VALUE, (long) firstColumn + numColumns);
+    }
+
+    /**
+     * @return The first row of the window, 0 by default
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return The first column of the window, 0 by default
+     */
+    public int getFirstColumn() {
+        return firstColumn;
+    }
+
+    /**
+     * @return The number of rows of the window, Integer.MAX_VALUE - getFirstRow() by default
+     */
+    public int getNumRows() {
+        return endRow - firstRow;
+    }
+
+    /**
+     * @return The number of columns of the window, Integer.MAX_VALUE - getFirstColumn() by default
+     */
+    public int getNumColumns() {
+        return endColumn - firstColumn;
+    }
+
+    /**
+     * Determines if only the values are loaded or not.
+     *
+     * @return True if the styles, formulas and annotations are skipped
+     */
+    public boolean isValuesOnly() {
+        return valuesOnly;
+    }
+
+    /**
+     * Loads only the values of the cells, skipping the styles, the formulas and the annotations.
+     * Column widths and row heights are not loaded either. Hidden rows, columns and sheets and merged cells are kept.
+     *
+     * @param valuesOnly True for loading only the values
+     */
+    public void setValuesOnly(boolean valuesOnly) {
+        this.valuesOnly = valuesOnly;
+    }
+
+    /**
+     * Determines if the original XML of the sheets is kept for saving them again.
+     *
+     * @return True if the sheets which are not modified are saved copying their original XML
+     */
+    public boolean isIncrementalSave() {
+        return incrementalSave;
+    }
+
+    /**
+     * Keeps the original XML of every sheet, so the sheets which are not modified are saved copying it
+     * instead of being generated again. Editing a cell of a big spreadsheet and saving it only generates the edited sheet.
+     *
+     * Any change in a sheet (values, styles, rows, columns, its name...) discards its XML.
+     * It takes memory for the XML of the sheets, and it's ignored if only some sheets, a window or the values are loaded.
+     *
+     * @param incrementalSave True for keeping the original XML of the sheets
+     */
+    public void setIncrementalSave(boolean incrementalSave) {
+        this.incrementalSave = incrementalSave;
+    }
+
+    /**
+     * Determines if the additional files of the ODS file are kept or not.
+     *
+     * @return True if the entries which are not parsed are kept as additional files
+     */
+    public boolean isKeepAdditionalFiles() {
+        return keepAdditionalFiles;
+    }
+
+    /**
+     * Keeps the entries of the ODS file which are not parsed (pictures, macros, settings, thumbnails...) as
+     * additional files, so they are saved again with the spreadsheet. It's disabled by default.
+     *
+     * The entries of a file are kept as references to it and copied still compressed when saving.
+     * If the file is modified or deleted before saving, they are dropped from the spreadsheet.
+     * The entries of a stream, or of a file without a valid zip directory, are kept in memory.
+     * They are saved as they were loaded: a thumbnail or the settings are not updated after editing the sheets.
+     *
+     * @param keepAdditionalFiles True for keeping the additional files
+     * @see SpreadSheet#removeAdditionalFile(String)
+     */
+    public void setKeepAdditionalFiles(boolean keepAdditionalFiles) {
+        this.keepAdditionalFiles = keepAdditionalFiles;
+    }
+
+    // The whole content of the file is loaded, so the sheets are the same than in the file
+    boolean isCompleteLoad() {
+        return sheetNames == null && firstRow == 0 && firstColumn == 0
+                && endRow == Integer.MAX_VALUE && endColumn == Integer.MAX_VALUE && !valuesOnly;
+    }
+
+    boolean isSheetLoaded(String name) {
+        return sheetNames == null || sheetNames.contains(name);
+    }
+
+    // Row after the window
+    int getEndRow() {
+        return endRow;
+    }
+
+    // Column after the window
+    int getEndColumn() {
+        return endColumn;
+    }
+}
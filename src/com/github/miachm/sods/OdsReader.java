@@ -1,47 +1,154 @@
 package com.github.miachm.sods;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.zip.ZipException;
 
 class OdsReader {
     private static final String CORRECT_MIMETYPE = "application/vnd.oasis.opendocument.spreadsheet";
     private static final Locale defaultLocal = Locale.US;
     private final Uncompressor uncompressor;
-    private final XmlReader reader = new XmlReaderEventImpl();
+    private final XmlReader reader;
     private final SpreadSheet spread;
     private final StylesParser stylesParser = new StylesParser();
     private final SpreadsheetParser spreadsheetParser;
+    private final LoadOptions options;
+    // The loaded file, null for streams. The additional entries of a file are kept as references to it
+    private final File file;
+    private final List<FileEntry> extraEntries = new ArrayList<>();
+    private final Map<String, String> mimetypes = new HashMap<>();
+    // Central directory of the file, read with the first additional entry. Null for streams or if it isn't valid
+    private Map<String, ZipDirectory.Entry> directory;
+    private boolean directoryRead = false;
+    // Files kept for an incremental save
+    private byte[] originalStyles;
+    private byte[] originalContent;
 
-    private OdsReader(InputStream in, SpreadSheet spread) {
+    private OdsReader(Uncompressor uncompressor, SpreadSheet spread, XmlReader reader, LoadOptions options) {
+        this(uncompressor, spread, reader, options, null);
+    }
+
+    private OdsReader(Uncompressor uncompressor, SpreadSheet spread, XmlReader reader, LoadOptions options, File file) {
         this.spread = spread;
-        this.uncompressor = new Uncompressor(in);
-        this.spreadsheetParser = new SpreadsheetParser(stylesParser, spread);
+        this.file = file;
+        this.reader = reader;
+        this.options = options;
+        this.uncompressor = uncompressor;
+        this.spreadsheetParser = new SpreadsheetParser(stylesParser, spread, options);
     }
 
     static void load(InputStream in, SpreadSheet spread) throws IOException {
-        OdsReader reader = new OdsReader(in, spread);
+        load(in, spread, new XmlReaderCursorImpl());
+    }
+
+    static void load(InputStream in, SpreadSheet spread, XmlReader xmlReader) throws IOException {
+        OdsReader reader = new OdsReader(new UncompressorStreamImpl(in), spread, xmlReader, new LoadOptions());
+        reader.load();
+    }
+
+    static void load(InputStream in, SpreadSheet spread, LoadOptions options) throws IOException {
+        OdsReader reader = new OdsReader(new UncompressorStreamImpl(in), spread, new XmlReaderCursorImpl(), options);
+        reader.load();
+    }
+
+    static void load(File file, SpreadSheet spread, LoadOptions options) throws IOException {
+        OdsReader reader = new OdsReader(Uncompressor.open(file), spread, new XmlReaderCursorImpl(), options, file);
         reader.load();
     }
 
     private void load() throws IOException {
         boolean mimetypeChecked = false;
-        String entry = uncompressor.nextFile();
-        while (entry != null) {
-            if (entry.endsWith(".xml")) {
-                processContent();
-            } else if (entry.equals("mimetype")) {
-                checkMimeType();
-                mimetypeChecked = true;
+        try {
+            String entry = uncompressor.nextFile();
+            while (entry != null) {
+                // Other xml files (metadata, settings, embedded objects...) don't have sheets
+                if (entry.equals("styles.xml") || entry.equals("content.xml")) {
+                    processContent(entry);
+                } else if (entry.equals("mimetype")) {
+                    checkMimeType();
+                    mimetypeChecked = true;
+                } else if (options.isKeepAdditionalFiles()) {
+                    if (entry.equals("META-INF/manifest.xml"))
+                        processManifest();
+                    else
+                        processExtraEntry(entry);
+                }
+                entry = uncompressor.nextFile();
             }
-            entry = uncompressor.nextFile();
+        } finally {
+            uncompressor.close();
         }
-        uncompressor.close();
         spread.trimSheets();
 
         if (!mimetypeChecked) {
             throw new NotAnOdsException("This file doesn't contain a mimetype");
         }
+        retainExtraEntries();
+        keepOriginalSheets();
+    }
+
+    private void processManifest() throws IOException {
+        XmlReaderCursorImpl manifestReader = new XmlReaderCursorImpl();
+        XmlReaderInstance instance = manifestReader.load(uncompressor.getInputStream());
+        if (instance == null) return;
+
+        XmlReaderInstance entry = instance.nextElement("manifest:file-entry");
+        while (entry != null) {
+            String path = entry.getAttribValue("manifest:full-path");
+            if (path != null)
+                mimetypes.put(path, entry.getAttribValue("manifest:media-type"));
+            entry = instance.nextElement("manifest:file-entry");
+        }
+        manifestReader.close();
+    }
+
+    /*
+        The entries which are not parsed (images, macros, settings...) are kept as additional files.
+        The entries of a file are kept as references to it, they are copied without being uncompressed
+        when the spreadsheet is saved. Streams, and files without a valid central directory, keep their content in memory.
+     */
+    private void processExtraEntry(String path) throws IOException {
+        Map<String, ZipDirectory.Entry> directory = readDirectory();
+        if (directory == null) {
+            extraEntries.add(new FileEntry(path, null, readAll(uncompressor.getInputStream())));
+            return;
+        }
+
+        ZipDirectory.Entry entry = directory.get(path);
+        if (entry != null && FileEntry.canCopy(entry))
+            extraEntries.add(new FileEntry(path, null, file, entry));
+    }
+
+    private Map<String, ZipDirectory.Entry> readDirectory() throws IOException {
+        if (!directoryRead) {
+            directoryRead = true;
+            // The file is read as a stream if it doesn't have a valid central directory, see Uncompressor.open()
+            if (file != null && uncompressor instanceof UncompressorZipFileImpl) {
+                try {
+                    directory = ZipDirectory.read(file);
+                } catch (ZipException e) {
+                    directory = null;
+                }
+            }
+        }
+        return directory;
+    }
+
+    // The manifest can be after the entries, so their media types are known at the end
+    private void retainExtraEntries() {
+        for (FileEntry entry : extraEntries) {
+            entry.mimetype = mimetypes.get(entry.path);
+            spread.addLoadedFile(entry);
+        }
     }
 
     private void checkMimeType() throws IOException {
@@ -53,17 +160,68 @@ class OdsReader {
         }
     }
 
-    private void processContent() throws IOException {
+    private void processContent(String entry) throws IOException {
         InputStream in = uncompressor.getInputStream();
+        boolean keepOriginal = options.isIncrementalSave() && options.isCompleteLoad();
+        if (options.isParallel() || keepOriginal) {
+            byte[] bytes = readAll(in);
+            if (keepOriginal) {
+                if (entry.equals("styles.xml"))
+                    originalStyles = bytes;
+                else
+                    originalContent = bytes;
+            }
+
+            if (options.isParallel()) {
+                ParallelContentParser parser = new ParallelContentParser(stylesParser, spreadsheetParser, spread, options.getPool());
+                parser.parse(bytes);
+                return;
+            }
+            in = new ByteArrayInputStream(bytes);
+        }
+
         XmlReaderInstance instance = reader.load(in);
         if (instance == null) return;
 
+        parseContent(instance, stylesParser, spreadsheetParser);
+
+        reader.close();
+    }
+
+    /*
+        Gives to every sheet its original XML, see LoadOptions.setIncrementalSave().
+        The sheets are the tables of the content in the same order. If they can't be located, nothing is kept.
+     */
+    private void keepOriginalSheets() {
+        if (originalContent == null || !ContentLayout.isUtf8(originalContent)) return;
+
+        String content = ContentLayout.decode(originalContent);
+        ContentLayout layout = ContentLayout.scan(content);
+        if (layout == null || layout.tables.size() != spread.getNumSheets()) return;
+
+        OriginalContent original = OriginalContent.create(content, layout, originalStyles);
+        if (original == null) return;
+
+        for (int i = 0; i < layout.tables.size(); i++) {
+            ContentLayout.Table table = layout.tables.get(i);
+            spread.getSheet(i).setOriginalXml(original, content.substring(table.start, table.end).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    static void parseContent(XmlReaderInstance instance, StylesParser stylesParser, SpreadsheetParser spreadsheetParser) {
         XmlReaderInstance stylesInstance = instance.nextElement("office:automatic-styles", "office:styles");
         stylesParser.parseStyles(stylesInstance);
 
         XmlReaderInstance contentInstance = instance.nextElement("office:body");
         spreadsheetParser.parseContent(contentInstance);
+    }
 
-        reader.close();
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+        return out.toByteArray();
     }
 }
\ No newline at end of file
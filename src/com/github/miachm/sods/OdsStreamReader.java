@@ -0,0 +1,257 @@
+package com.github.miachm.sods;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of an ODS file one by one, without loading the whole Spreadsheet in memory.
+ *
+ * Only one row is kept in memory at a time, so this is the preferred way to scan big files.
+ * Merged cells are not reported and the styles defined in styles.xml are only available
+ * if that file is stored before content.xml in the archive.
+ *
+ * <pre>
+ *     try (OdsStreamReader reader = new OdsStreamReader(new File("big.ods"))) {
+ *         while (reader.hasNext()) {
+ *             SheetRowEvent row = reader.next();
+ *             Object[] values = row.getValues();
+ *         }
+ *     }
+ * </pre>
+ *
+ * @see SheetRowEvent
+ */
+public class OdsStreamReader implements Iterator<SheetRowEvent>, Closeable {
+    private static final String CORRECT_MIMETYPE = "application/vnd.oasis.opendocument.spreadsheet";
+    private final Uncompressor uncompressor;
+    private final XmlReader reader = new XmlReaderCursorImpl();
+    private final StylesParser stylesParser = new StylesParser();
+    private final Map<Integer, Style> columnDefaultStyles = new HashMap<>();
+    private XmlReaderInstance spreadsheetInstance;
+    private XmlReaderInstance tableInstance;
+    private String sheetName;
+    private int sheetIndex = -1;
+    private int rowIndex;
+    private int columnIndex;
+    private boolean mimetypeChecked = false;
+    private boolean finished = false;
+    private SheetRowEvent pending;
+
+    /**
+     * Opens an ODS file for streaming.
+     *
+     * @param file The file to read. It must be a valid readable file
+     * @throws NullPointerException If the file is null
+     * @throws java.io.FileNotFoundException If the file doesn't exist or it can be readed
+     */
+    public OdsStreamReader(File file) throws IOException {
+        this.uncompressor = Uncompressor.open(file);
+    }
+
+    /**
+     * Opens an inputstream for streaming. The stream will be closed when this reader is closed.
+     *
+     * @param in The inputstream to read
+     * @throws NullPointerException If the inputstream is null
+     */
+    public OdsStreamReader(InputStream in) {
+        if (in == null)
+            throw new NullPointerException("The inputstream can't be null");
+        this.uncompressor = new UncompressorStreamImpl(in);
+    }
+
+    /**
+     * Determines if there are more rows to read
+     *
+     * @return True if next() would return a row
+     * @throws NotAnOdsException If the file isn't an ODS file.
+     * @throws UncheckedIOException If an unexpected IO error is produced
+     */
+    @Override
+    public boolean hasNext() {
+        if (pending == null && !finished) {
+            try {
+                pending = advance();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (pending == null)
+                finished = true;
+        }
+        return pending != null;
+    }
+
+    /**
+     * Reads the next row of the file. Rows are returned in the order of the file, sheet by sheet.
+     *
+     * @return The next row
+     * @throws NoSuchElementException If there are no more rows
+     * @throws NotAnOdsException If the file isn't an ODS file.
+     * @throws UncheckedIOException If an unexpected IO error is produced
+     */
+    @Override
+    public SheetRowEvent next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        SheetRowEvent result = pending;
+        pending = null;
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        pending = null;
+        if (spreadsheetInstance != null)
+            reader.close();
+        uncompressor.close();
+    }
+
+    private SheetRowEvent advance() throws IOException {
+        while (true) {
+            if (tableInstance != null) {
+                XmlReaderInstance instance = tableInstance.nextElement("table:table-column", "table:table-row");
+                if (instance == null) {
+                    tableInstance = null;
+                    continue;
+                }
+
+                if (instance.getTag().equals("table:table-column")) {
+                    readColumn(instance);
+                    continue;
+                }
+
+                SheetRowEvent event = readRow(instance);
+                if (event != null)
+                    return event;
+                continue;
+            }
+
+            if (spreadsheetInstance == null && !openContent())
+                return null;
+
+            tableInstance = spreadsheetInstance.nextElement("table:table");
+            if (tableInstance == null)
+                return null;
+
+            sheetIndex++;
+            sheetName = tableInstance.getAttribValue("table:name");
+            rowIndex = 0;
+            columnIndex = 0;
+            columnDefaultStyles.clear();
+        }
+    }
+
+    private boolean openContent() throws IOException {
+        String entry = uncompressor.nextFile();
+        while (entry != null) {
+            if (entry.equals("mimetype")) {
+                checkMimeType();
+            } else if (entry.equals("styles.xml") || entry.equals("content.xml")) {
+                XmlReaderInstance instance = reader.load(uncompressor.getInputStream());
+                if (instance != null) {
+                    stylesParser.parseStyles(instance.nextElement("office:automatic-styles", "office:styles"));
+                    XmlReaderInstance body = instance.nextElement("office:body");
+                    XmlReaderInstance spreadsheet = body != null ? body.nextElement("office:spreadsheet") : null;
+                    if (spreadsheet != null) {
+                        spreadsheetInstance = spreadsheet;
+                        return true;
+                    }
+                    reader.close();
+                }
+            }
+            entry = uncompressor.nextFile();
+        }
+
+        if (!mimetypeChecked)
+            throw new NotAnOdsException("This file doesn't contain a mimetype");
+        return false;
+    }
+
+    private void checkMimeType() throws IOException {
+        byte[] buff = new byte[CORRECT_MIMETYPE.getBytes().length];
+        uncompressor.getInputStream().read(buff);
+        String mimetype = new String(buff);
+        if (!mimetype.equals(CORRECT_MIMETYPE)) {
+            throw new NotAnOdsException("This file doesn't look like an ODS file. Mimetype: " + mimetype);
+        }
+        mimetypeChecked = true;
+    }
+
+    private void readColumn(XmlReaderInstance instance) {
+        int numColumns = 1;
+        String columnsRepeated = instance.getAttribValue("table:number-columns-repeated");
+        if (columnsRepeated != null) {
+            numColumns = Integer.parseInt(columnsRepeated);
+            if (numColumns > SheetParser.BUGGED_COUNT) return;
+        }
+
+        String styleName = instance.getAttribValue("table:default-cell-style-name");
+        Style style = styleName != null ? stylesParser.getCellStyle(styleName) : null;
+        if (style != null && !style.isDefault()) {
+            for (int j = columnIndex; j < columnIndex + numColumns; j++)
+                columnDefaultStyles.put(j, style);
+        }
+        columnIndex += numColumns;
+    }
+
+    private SheetRowEvent readRow(XmlReaderInstance instance) {
+        int numRows = 1;
+        String numRowsStr = instance.getAttribValue("table:number-rows-repeated");
+        if (numRowsStr != null) {
+            try {
+                numRows = Integer.parseInt(numRowsStr);
+                if (numRows > SheetParser.BUGGED_COUNT) return null;
+            } catch (NumberFormatException ignored) {}
+        }
+
+        String styleName = instance.getAttribValue("table:default-cell-style-name");
+        Style rowStyle = styleName != null ? stylesParser.getCellStyle(styleName) : null;
+
+        SheetRowEvent event = new SheetRowEvent(sheetName, sheetIndex, rowIndex, numRows);
+        int column = 0;
+        while (instance.hasNext()) {
+            XmlReaderInstance cell = instance.nextElement("table:table-cell", "table:covered-table-cell");
+            if (cell == null) break;
+
+            if (cell.getTag().equals("table:covered-table-cell")) {
+                String numColumnsRepeated = cell.getAttribValue("table:number-columns-repeated");
+                column += numColumnsRepeated == null ? 1 : Integer.parseInt(numColumnsRepeated);
+                continue;
+            }
+
+            Object value = OfficeValueType.ofReader(cell).read(cell);
+
+            int numberColumnsRepeated = 1;
+            String raw = cell.getAttribValue("table:number-columns-repeated");
+            if (raw != null) {
+                numberColumnsRepeated = Integer.parseInt(raw);
+                if (numberColumnsRepeated > SheetParser.BUGGED_COUNT) continue;
+            }
+
+            String formula = Cell.parseFormula(cell.getAttribValue("table:formula"));
+
+            Style style = stylesParser.getCellStyle(cell.getAttribValue("table:style-name"));
+            if (style == null) style = columnDefaultStyles.get(column);
+            if (style == null) style = rowStyle;
+            if (style != null && style.isDefault()) style = null;
+
+            OfficeAnnotation[] annotation = new OfficeAnnotation[1];
+            String text = SheetParser.readCellText(cell, a -> annotation[0] = a);
+            value = SheetParser.resolveTextValue(value, text);
+
+            event.addRun(column, numberColumnsRepeated, value, formula, style, annotation[0]);
+            column += numberColumnsRepeated;
+        }
+
+        rowIndex += numRows;
+        return event;
+    }
+}
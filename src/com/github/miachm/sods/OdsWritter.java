@@ -1,11 +1,16 @@
 package com.github.miachm.sods;
 
-import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import static com.github.miachm.sods.OpenDocumentNamespaces.*;
 
@@ -17,27 +22,110 @@ class OdsWritter {
     private SpreadSheet spread;
     private Compressor out;
     private Map<Style, String> stylesUsed = new HashMap<>();
+    // Cells share the instances of the StylePool of their sheet, so they are looked up by identity
+    private Map<Style, String> cellStyleNames = new IdentityHashMap<>();
     private Map<Double, String> columnStyleStringMap = new HashMap<>();
     private Map<Double, String> rowStyleStringMap = new HashMap<>();
     private Map<TableStyle, String> tableStyleStringMap = new HashMap<>();
-    private final String MIMETYPE= "application/vnd.oasis.opendocument.spreadsheet";
-
-    private OdsWritter(OutputStream o, SpreadSheet spread) {
+    private static final String MIMETYPE= "application/vnd.oasis.opendocument.spreadsheet";
+    private static final String[][] CONTENT_NAMESPACES = {
+            {"office", OFFICE}, {"table", TABLE}, {"text", TEXT}, {"fo", FONT},
+            {"style", STYLE}, {"dc", METADATA}, {"number", DATATYPE}
+    };
+
+    /*
+        Sheets which were loaded with LoadOptions.setIncrementalSave() and not modified are copied
+        from their original XML, with the automatic styles of the file they come from.
+        Null if every sheet is generated.
+     */
+    private OriginalContent original;
+    // Names of the original automatic styles, the generated styles can't use them
+    private Set<String> reservedStyleNames = Collections.emptySet();
+    private String textStyleName = "textstyle";
+    private String dateStyleName = "datestyle";
+    // Destination of content.xml, for copying the original XML
+    private Writer contentWriter;
+    private OutputStream contentStream;
+
+    private OdsWritter(OutputStream o, SpreadSheet spread, SaveOptions options) {
         this.spread = spread;
-        this.out = new Compressor(o);
-        spread.trimSheets();
+        this.out = new Compressor(o, options);
+        this.original = findOriginalContent(spread);
+        if (original != null) {
+            reservedStyleNames = original.styleNames;
+            textStyleName = styleName(textStyleName);
+            dateStyleName = styleName(dateStyleName);
+        }
+        for (Sheet sheet : spread.getSheets()) {
+            if (!isCopied(sheet))
+                sheet.trim();
+        }
+    }
+
+    /*
+        The original content of the first sheet which can be copied. The sheets of other files
+        are generated. The original namespaces must not redefine the prefixes of the generated XML.
+     */
+    private static OriginalContent findOriginalContent(SpreadSheet spread) {
+        for (Sheet sheet : spread.getSheets()) {
+            if (sheet.isDirty()) continue;
+
+            OriginalContent content = sheet.getOriginalContent();
+            for (String[] namespace : CONTENT_NAMESPACES) {
+                String uri = content.namespaces.get(namespace[0]);
+                if (uri != null && !uri.equals(namespace[1]))
+                    return null;
+            }
+            return content;
+        }
+        return null;
+    }
+
+    private boolean isCopied(Sheet sheet) {
+        return original != null && !sheet.isDirty() && sheet.getOriginalContent() == original;
+    }
+
+    // The name, or a variation of it which is not used by the original styles
+    private String styleName(String name) {
+        if (reservedStyleNames.isEmpty())
+            return name;
+        String unique = name;
+        for (int i = 1; reservedStyleNames.contains(unique); i++)
+            unique = name + "_" + i;
+        return unique;
+    }
+
+    /*
+        Copies XML to content.xml as it is. The pending start tag of the writer is closed first.
+     */
+    private void writeRaw(XMLStreamWriter out, byte[] xml) throws XMLStreamException, IOException {
+        out.writeCharacters("");
+        out.flush();
+        contentWriter.flush();
+        contentStream.write(xml);
     }
 
     public static void save(OutputStream out,SpreadSheet spread) throws IOException {
-        new OdsWritter(out,spread).save();
+        save(out, spread, new SaveOptions());
+    }
+
+    public static void save(OutputStream out, SpreadSheet spread, SaveOptions options) throws IOException {
+        new OdsWritter(out, spread, options).save();
     }
 
     private void save() throws IOException {
-        writeManifest();
-        writeMymeType();
+        spread.checkExtraFiles();
+        writeMymeType(out);
+        writeManifest(out, spread.getExtraFiles());
         try {
-            writeSpreadsheet();
-            writeSettingsStyleFile();
+            if (original != null && original.stylesXml != null) {
+                // Before the content, which uses its styles, like in the file it comes from
+                out.addEntry(original.stylesXml, "styles.xml");
+                writeSpreadsheet();
+            } else {
+                writeSpreadsheet();
+                writeSettingsStyleFile(out);
+            }
             writeExtraFiles();
         } catch (XMLStreamException e) {
             throw new GenerateOdsException(e);
@@ -46,11 +134,10 @@ class OdsWritter {
         out.close();
     }
 
-    private void writeManifest() {
+    static void writeManifest(Compressor compressor, Collection<FileEntry> extraFiles) {
         try {
-            ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
-            XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(
-                    new OutputStreamWriter(output, "utf-8"));
+            Writer output = new OutputStreamWriter(compressor.startEntry("META-INF/manifest.xml"), StandardCharsets.UTF_8);
+            XMLStreamWriter out = XmlFactories.createWriter(output);
 
             out.writeStartDocument("UTF-8", "1.0");
             out.setPrefix("manifest", MANIFEST);
@@ -74,7 +161,9 @@ class OdsWritter {
             out.writeAttribute(MANIFEST, "media-type", "text/xml");
             out.writeEndElement();
             
-            for (FileEntry entry : spread.getExtraFiles()) {
+            for (FileEntry entry : extraFiles) {
+                // Entries of a loaded file which were not in its manifest
+                if (entry.mimetype == null) continue;
                 out.writeStartElement(MANIFEST, "file-entry");
                 out.writeAttribute(MANIFEST, "full-path", entry.path);
                 out.writeAttribute(MANIFEST, "media-type", entry.mimetype);
@@ -84,24 +173,43 @@ class OdsWritter {
             out.writeEndElement();
             out.writeEndDocument();
             out.close();
-
-            byte[] bytes = output.toByteArray();
-            this.out.addEntry(bytes, "META-INF/manifest.xml");
+            output.close();
 
         } catch (XMLStreamException | IOException pce) {
             throw new GenerateOdsException(pce);
         }
     }
 
-    private void writeMymeType() throws IOException {
-        out.addEntry(MIMETYPE.getBytes(),"mimetype");
+    // ODF requires the mimetype to be the first entry and stored, so the type can be read at a fixed offset
+    static void writeMymeType(Compressor compressor) throws IOException {
+        compressor.addStoredEntry(MIMETYPE.getBytes(StandardCharsets.US_ASCII),"mimetype");
     }
 
-    private void writeSpreadsheet() throws UnsupportedEncodingException, XMLStreamException {
-        ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
-        XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(
-                new OutputStreamWriter(output, "utf-8"));
+    private void writeSpreadsheet() throws IOException, XMLStreamException {
+        /*
+            content.xml is written directly in the zip entry, so it's never buffered in memory
+         */
+        contentStream = this.out.startEntry("content.xml");
+        Writer output = new OutputStreamWriter(contentStream, StandardCharsets.UTF_8);
+        contentWriter = output;
+        XMLStreamWriter out = XmlFactories.createWriter(output);
+
+        writeStartContent(out);
+        if (original != null) {
+            writeOriginalNamespaces(out);
+            writeRaw(out, original.fontFaces);
+        }
+
+        writeStyles(out);
+        writeContent(out);
 
+        out.writeEndElement();
+        out.writeEndDocument();
+        out.close();
+        output.close();
+    }
+
+    static void writeStartContent(XMLStreamWriter out) throws XMLStreamException {
         out.writeStartDocument("UTF-8", "1.0");
         out.setPrefix("office", OFFICE);
         out.writeStartElement(OFFICE, "document-content");
@@ -114,29 +222,29 @@ class OdsWritter {
         out.writeNamespace("number", DATATYPE);
 
         out.writeAttribute(OFFICE, "version", "1.2");
+    }
 
-        writeStyles(out);
-        writeContent(out);
-
-        out.writeEndElement();
-        out.writeEndDocument();
-        out.close();
-
-        try {
-            this.out.addEntry(output.toByteArray(),"content.xml");
-        } catch (IOException e) {
-            throw new GenerateOdsException(e);
+    private void writeOriginalNamespaces(XMLStreamWriter out) throws XMLStreamException {
+        for (Map.Entry<String, String> namespace : original.namespaces.entrySet()) {
+            String prefix = namespace.getKey();
+            boolean declared = false;
+            for (String[] generated : CONTENT_NAMESPACES)
+                declared |= generated[0].equals(prefix);
+
+            if (prefix.isEmpty())
+                out.writeDefaultNamespace(namespace.getValue());
+            else if (!declared)
+                out.writeNamespace(prefix, namespace.getValue());
         }
     }
 
-    private void writeSettingsStyleFile() throws UnsupportedEncodingException, XMLStreamException {
+    static void writeSettingsStyleFile(Compressor compressor) throws IOException, XMLStreamException {
         /*
             This is needed by the issue #45
             Excel expects a styles.xml file. Even if it's empty
          */
-        ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
-        XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter(
-                new OutputStreamWriter(output, "utf-8"));
+        Writer output = new OutputStreamWriter(compressor.startEntry("styles.xml"), StandardCharsets.UTF_8);
+        XMLStreamWriter out = XmlFactories.createWriter(output);
         out.writeStartDocument("UTF-8", "1.0");
         out.setPrefix("office", OFFICE);
         out.writeStartElement(OFFICE, "document-styles");
@@ -145,19 +253,19 @@ class OdsWritter {
         out.writeEndElement();
         out.writeEndDocument();
         out.close();
-
-        try {
-            this.out.addEntry(output.toByteArray(), "styles.xml");
-        } catch (IOException e) {
-            throw new GenerateOdsException(e);
-        }
+        output.close();
     }
 
-    private void writeContent(XMLStreamWriter out) throws XMLStreamException {
+    private void writeContent(XMLStreamWriter out) throws XMLStreamException, IOException {
         out.writeStartElement(OFFICE, "body");
         out.writeStartElement(OFFICE, "spreadsheet");
 
         for (Sheet sheet : spread.getSheets()) {
+            if (isCopied(sheet)) {
+                writeRaw(out, sheet.getOriginalXml());
+                continue;
+            }
+
             out.writeStartElement(TABLE, "table");
             out.writeAttribute(TABLE, "name", sheet.getName());
             if (sheet.isHidden()) {
@@ -217,14 +325,44 @@ class OdsWritter {
                 out.writeAttribute(TABLE, "number-rows-repeated", ""+row.num_repeated);
             writeRowStyles(out, row);
 
-            for (Cell cell :  row.cells) {
-                writeCell(out, cell);
+            if (row.isPacked()) {
+                writePackedCells(out, row);
+            } else {
+                for (Cell cell : row.getCells()) {
+                    writeCell(out, cell);
+                }
             }
 
             out.writeEndElement();
         }
     }
 
+    private void writePackedCells(XMLStreamWriter out, Row row) throws XMLStreamException {
+        int length = row.getPackedLength();
+        int column = 0;
+        while (column < length) {
+            Object value = row.getValue(column);
+            int repeated = 1;
+            while (column + repeated < length && Objects.equals(value, row.getValue(column + repeated)))
+                repeated++;
+            if (value == null && column + repeated == length)
+                repeated += row.getWidth() - length;
+
+            writePackedCell(out, value, repeated);
+            column += repeated;
+        }
+        if (column < row.getWidth())
+            writePackedCell(out, null, row.getWidth() - column);
+    }
+
+    private void writePackedCell(XMLStreamWriter out, Object value, int repeated) throws XMLStreamException {
+        out.writeStartElement(TABLE, "table-cell");
+        if (repeated > 1)
+            out.writeAttribute(TABLE, "number-columns-repeated", "" + repeated);
+        writeValue(out, value, null);
+        out.writeEndElement();
+    }
+
     private void writeRowStyles(XMLStreamWriter out, Row row) throws XMLStreamException {
         if (row.row_style.isHidden())
             out.writeAttribute(TABLE, "visibility", "collapse");
@@ -234,7 +372,7 @@ class OdsWritter {
 
     private void writeCell(XMLStreamWriter out, Cell cell) throws XMLStreamException {
         String formula = cell.getFormula();
-        Style style = cell.getStyle();
+        Style style = cell.getStyleDangerous();
 
         GroupCell group = cell.getGroup();
         if (group != null) {
@@ -263,19 +401,22 @@ class OdsWritter {
     }
 
     private void setCellStyle(XMLStreamWriter out, Style style) throws XMLStreamException {
-        if (!style.isDefault()) {
-            String key = stylesUsed.get(style);
-            if (key == null) {
-                key = "cel" + stylesUsed.size();
-                stylesUsed.put(style, key);
-            }
+        if (style != Style.default_style) {
+            String key = cellStyleNames.get(style);
+            if (key == null)
+                key = stylesUsed.get(style);
 
-            out.writeAttribute(TABLE, "style-name", key);
+            if (key != null)
+                out.writeAttribute(TABLE, "style-name", key);
         }
     }
 
     private void writeValue(XMLStreamWriter out, Cell cell) throws XMLStreamException {
-        Object v = cell.getValue();
+        writeValue(out, cell.getValue(), cell.getFormula());
+        writeAnnotation(out, cell.getAnnotation());
+    }
+
+    static void writeValue(XMLStreamWriter out, Object v, String formula) throws XMLStreamException {
         if (v != null) {
             OfficeValueType valueType = OfficeValueType.ofJavaType(v.getClass());
             /*
@@ -283,7 +424,7 @@ class OdsWritter {
                 LibreOffice only writes the "string-value" attribute for formulaic cells. Writing it for non-formulaic
                 cells makes LibreOffice discard newlines when opening the sheet.
              */
-            if (valueType != OfficeValueType.STRING || cell.getFormula() != null) {
+            if (valueType != OfficeValueType.STRING || formula != null) {
                 valueType.write(v, out);
             }
             else if (valueType == OfficeValueType.STRING) {
@@ -291,39 +432,78 @@ class OdsWritter {
             }
 
             out.writeStartElement(TEXT, "p");
-            String text = v.toString();
-
-            for (int i = 0; i < text.length(); i++) {
-                if (text.charAt(i) == ' ') {
-                    out.writeStartElement(TEXT, "s");
-                    int cnt = 0;
-                    while (i+cnt < text.length() && text.charAt(i + cnt) == ' ') {
-                        cnt++;
-                    }
-                    if (cnt > 1)
-                        out.writeAttribute(TEXT, "c", "" + cnt);
-                    i += cnt - 1 ;
-                    out.writeEndElement();
-                }
-                else if (text.charAt(i) == '\t') {
-                    out.writeEmptyElement(TEXT, "tab");
-                }
-                else if (text.charAt(i) == '\n') {
-                    out.writeEndElement();
-                    out.writeStartElement(TEXT, "p");
-                }
-                else if (Character.isHighSurrogate(text.charAt(i)) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
-                    // write surrogate pair
-                    out.writeCharacters("" + text.charAt(i) + text.charAt(i + 1));
+            writeText(out, v.toString());
+            out.writeEndElement();
+        }
+    }
+
+    /*
+        Writes the text of a cell in the current text:p. Spaces, tabs and line breaks are elements,
+        the runs of other characters between them are written with a single call.
+     */
+    private static void writeText(XMLStreamWriter out, String text) throws XMLStreamException {
+        int special = 0;
+        while (special < text.length() && !isSpecialTextChar(text, special))
+            special++;
+        if (special == text.length()) {
+            if (!text.isEmpty())
+                out.writeCharacters(text);
+            return;
+        }
+
+        char[] chars = text.toCharArray();
+        int runStart = 0;
+        for (int i = special; i < chars.length; i++) {
+            if (!isSpecialTextChar(text, i)) {
+                // A surrogate pair is part of the run
+                if (Character.isHighSurrogate(chars[i]))
                     i++;
+                continue;
+            }
+            if (i > runStart)
+                out.writeCharacters(chars, runStart, i - runStart);
+
+            if (chars[i] == ' ') {
+                out.writeStartElement(TEXT, "s");
+                int cnt = 0;
+                while (i+cnt < chars.length && chars[i + cnt] == ' ') {
+                    cnt++;
                 }
-                else
-                    out.writeCharacters("" + text.charAt(i));
+                if (cnt > 1)
+                    out.writeAttribute(TEXT, "c", "" + cnt);
+                i += cnt - 1 ;
+                out.writeEndElement();
             }
-
-            out.writeEndElement();
+            else if (chars[i] == '\t') {
+                out.writeEmptyElement(TEXT, "tab");
+            }
+            else if (chars[i] == '\n') {
+                out.writeEndElement();
+                out.writeStartElement(TEXT, "p");
+            }
+            else {
+                // A surrogate without its pair is written on its own
+                out.writeCharacters(chars, i, 1);
+            }
+            runStart = i + 1;
         }
-        OfficeAnnotation annotation = cell.getAnnotation();
+        if (runStart < chars.length)
+            out.writeCharacters(chars, runStart, chars.length - runStart);
+    }
+
+    // Characters which end a run of text: spaces, tabs, line breaks and surrogates which are not part of a pair
+    private static boolean isSpecialTextChar(String text, int i) {
+        char c = text.charAt(i);
+        if (c == ' ' || c == '\t' || c == '\n')
+            return true;
+        if (Character.isHighSurrogate(c))
+            return i + 1 >= text.length() || !Character.isLowSurrogate(text.charAt(i + 1));
+        if (Character.isLowSurrogate(c))
+            return i == 0 || !Character.isHighSurrogate(text.charAt(i - 1));
+        return false;
+    }
+
+    private static void writeAnnotation(XMLStreamWriter out, OfficeAnnotation annotation) throws XMLStreamException {
         if (annotation != null) {
             out.writeStartElement(OFFICE, "annotation");
             if (annotation.getLastModified() != null) {
@@ -349,21 +529,22 @@ class OdsWritter {
         }
     }
 
-    private void writeStyles(XMLStreamWriter out) throws XMLStreamException {
+    private void writeStyles(XMLStreamWriter out) throws XMLStreamException, IOException {
         out.writeStartElement(OFFICE, "automatic-styles");
 
-        writeDataFormatStyles(out);
+        writeDataFormatStyles(out, textStyleName, dateStyleName);
 
         for (Sheet sheet : spread.getSheets()) {
-            for (Row row : sheet.rows) {
-                for (Cell cell : row.cells) {
-                    Style style = cell.getStyle();
+            if (isCopied(sheet)) continue;
 
-                    if (!style.isDefault()) {
-                        writeCellStyle(out, style);
-                    }
-                }
+            // The styles which were replaced by edits since the last save are not written
+            StylePool pool = sheet.getStylePool();
+            pool.removeUnused(sheet.rows);
+            for (Style style : pool.getStyles()) {
+                cellStyleNames.put(style, writeCellStyle(out, style));
+            }
 
+            for (Row row : sheet.rows) {
                 Double height = row.row_style.getHeight();
                 if (height != null) {
                     writeRowStyle(out, height);
@@ -386,17 +567,23 @@ class OdsWritter {
                 writeTableStyle(out, sheet);
             }
         }
+        if (original != null)
+            writeRaw(out, original.automaticStyles);
         out.writeEndElement();
     }
 
-    private void writeDataFormatStyles(XMLStreamWriter out) throws XMLStreamException {
+    static void writeDataFormatStyles(XMLStreamWriter out) throws XMLStreamException {
+        writeDataFormatStyles(out, "textstyle", "datestyle");
+    }
+
+    private static void writeDataFormatStyles(XMLStreamWriter out, String textStyleName, String dateStyleName) throws XMLStreamException {
         out.writeStartElement("number:text-style");
-        out.writeAttribute(STYLE, "name", "textstyle");
+        out.writeAttribute(STYLE, "name", textStyleName);
         out.writeEmptyElement("number:text-content");
         out.writeEndElement();
 
         out.writeStartElement("number:date-style");
-        out.writeAttribute(STYLE, "name", "datestyle");
+        out.writeAttribute(STYLE, "name", dateStyleName);
         out.writeStartElement("number:year");
         out.writeAttribute("number:style", "long");
         out.writeEndElement();
@@ -413,15 +600,16 @@ class OdsWritter {
         out.writeEndElement();
     }
 
-    private void writeCellStyle(XMLStreamWriter out, Style style) throws XMLStreamException {
+    private String writeCellStyle(XMLStreamWriter out, Style style) throws XMLStreamException {
 
     	String key = stylesUsed.get(style);
         if (key == null)
         {
-            key = "cel" + stylesUsed.size();
+            key = styleName("cel" + stylesUsed.size());
             stylesUsed.put(style, key);
             writeCellStyle(out, style, key);
         }
+        return key;
     }
 
     private void writeCellStyle(XMLStreamWriter out, Style style, String key) throws XMLStreamException {
@@ -434,9 +622,9 @@ class OdsWritter {
 
         String dataStyle = style.getDataStyle();
         if (Style.PLAIN_DATA_STYLE.equals(dataStyle))
-            out.writeAttribute(STYLE, "data-style-name", "textstyle");
+            out.writeAttribute(STYLE, "data-style-name", textStyleName);
         else if (Style.ISO_DATE_DATA_STYLE.equals(dataStyle))
-            out.writeAttribute(STYLE, "data-style-name", "datestyle");
+            out.writeAttribute(STYLE, "data-style-name", dateStyleName);
 
         if (style.hasTableCellProperties()) {
             out.writeStartElement(STYLE, "table-cell-properties");
@@ -518,7 +706,7 @@ class OdsWritter {
 
     private void writeColumnStyle(XMLStreamWriter out, Double width) throws XMLStreamException {
         if (!columnStyleStringMap.containsKey(width)) {
-            String key = "co" + columnStyleStringMap.size();
+            String key = styleName("co" + columnStyleStringMap.size());
 
             out.writeStartElement(STYLE, "style");
             out.writeAttribute(STYLE, "family", "table-column");
@@ -534,7 +722,7 @@ class OdsWritter {
 
     private void writeRowStyle(XMLStreamWriter out, Double height) throws XMLStreamException {
         if (!rowStyleStringMap.containsKey(height)) {
-            String key = "ro" + rowStyleStringMap.size();
+            String key = styleName("ro" + rowStyleStringMap.size());
             out.writeStartElement(STYLE, "style");
             out.writeAttribute(STYLE, "family", "table-row");
             out.writeAttribute(STYLE, "name", key);
@@ -551,7 +739,7 @@ class OdsWritter {
         TableStyle tableStyle = new TableStyle();
         tableStyle.setHidden(sheet.isHidden());
         if (!tableStyleStringMap.containsKey(tableStyle)) {
-            String key = "tb" + tableStyleStringMap.size();
+            String key = styleName("tb" + tableStyleStringMap.size());
             out.writeStartElement(STYLE, "style");
             out.writeAttribute(STYLE, "family", "table");
             out.writeAttribute(STYLE, "name", key);
@@ -590,6 +778,6 @@ class OdsWritter {
 
     private void writeExtraFiles() throws IOException {
         for (FileEntry entry : spread.getExtraFiles())
-            this.out.addEntry(entry.data, entry.path);
+            entry.write(this.out);
     }
 }
@@ -12,7 +12,8 @@ import java.util.Currency;
 public class OfficeCurrency {
     private final Currency currency;
     private final Double value;
-    private final NumberFormat format;
+    // Created when the value is printed, the currencies read from a file usually never are
+    private NumberFormat format;
 
     /**
      * It builds an inmutable class of the OfficeCurrency
@@ -23,7 +24,8 @@ public class OfficeCurrency {
 
     public OfficeCurrency(Currency currency, Double value)
     {
-        this(currency, value, NumberFormat.getCurrencyInstance());
+        this.currency = currency;
+        this.value = value;
     }
 
 
@@ -78,6 +80,11 @@ public class OfficeCurrency {
 
     @Override
     public String toString() {
+        if (format == null) {
+            format = NumberFormat.getCurrencyInstance();
+            if (currency != null)
+                format.setCurrency(currency);
+        }
         return "" + format.format(value);
     }
 }
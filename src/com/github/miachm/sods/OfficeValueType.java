@@ -2,15 +2,10 @@ package com.github.miachm.sods;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
-import java.text.NumberFormat;
-import java.text.ParseException;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.Currency;
-import java.util.Locale;
 
 import static com.github.miachm.sods.OpenDocumentNamespaces.OFFICE;
 
@@ -54,14 +49,7 @@ enum OfficeValueType {
                 currency = Currency.getInstance(tag);
 			}
 
-            NumberFormat nf = NumberFormat.getInstance(Locale.US);
-            Double value = null;
-            try {
-                value = nf.parse(reader.getAttribValue("office:value")).doubleValue();
-            }
-            catch (ParseException e)
-            {}
-
+            Double value = XsdValues.parseDouble(reader.getAttribValue("office:value"));
             return new OfficeCurrency(currency, value);
         }
 
@@ -72,11 +60,8 @@ enum OfficeValueType {
 
                 OfficeCurrency currency = (OfficeCurrency) value;
 
-                if (currency.getValue() != null) {
-                    NumberFormat formatter = NumberFormat.getInstance(Locale.US);
-                    formatter.setGroupingUsed(false);
-                    writer.writeAttribute(OFFICE, "value", formatter.format(currency.getValue()));
-                }
+                if (currency.getValue() != null)
+                    writer.writeAttribute(OFFICE, "value", XsdValues.formatDouble(currency.getValue()));
 
                 if (currency.getCurrency() != null)
                     writer.writeAttribute(OFFICE, "currency", currency.getCurrency().getCurrencyCode());
@@ -86,48 +71,24 @@ enum OfficeValueType {
     DATE("date", LocalDateTime.class, LocalDate.class) {
         @Override
         public Object read(XmlReaderInstance reader) {
-            String raw = reader.getAttribValue("office:date-value");
-            if (raw == null) {
-                return null;
-            }
-            try {
-                return LocalDateTime.parse(raw, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            } catch (DateTimeParseException dateTimeEx) {
-                try {
-                    return LocalDate.parse(raw, DateTimeFormatter.ISO_LOCAL_DATE);
-                } catch (DateTimeParseException dateEx) {
-                    return null;
-                }
-            }
+            return XsdValues.parseDate(reader.getAttribValue("office:date-value"));
         }
 
         @Override
         public void write(Object value, XMLStreamWriter writer) throws XMLStreamException {
             if (value instanceof LocalDateTime) {
                 writer.writeAttribute(OFFICE, "value-type", getId());
-                writer.writeAttribute(OFFICE, "date-value", ((LocalDateTime) value).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                writer.writeAttribute(OFFICE, "date-value", XsdValues.formatDateTime((LocalDateTime) value));
             } else if (value instanceof LocalDate) {
                 writer.writeAttribute(OFFICE, "value-type", getId());
-                writer.writeAttribute(OFFICE, "date-value", ((LocalDate) value).format(DateTimeFormatter.ISO_LOCAL_DATE));
+                writer.writeAttribute(OFFICE, "date-value", XsdValues.formatDate((LocalDate) value));
             }
         }
     },
     FLOAT("float", Number.class) {
         @Override
         public Object read(XmlReaderInstance reader) {
-            String raw = reader.getAttribValue("office:value");
-            if (raw == null) {
-                return null;
-            }
-
-            NumberFormat nf = NumberFormat.getInstance(Locale.US);
-            Double value = null;
-            try {
-                value = nf.parse(reader.getAttribValue("office:value")).doubleValue();
-            }
-            catch (ParseException e)
-            {}
-            return value;
+            return XsdValues.parseDouble(reader.getAttribValue("office:value"));
         }
 
         @Override
@@ -141,15 +102,7 @@ enum OfficeValueType {
     PERCENTAGE("percentage", OfficePercentage.class) {
         @Override
         public Object read(XmlReaderInstance reader) {
-            String raw = reader.getAttribValue("office:value");
-            NumberFormat nf = NumberFormat.getInstance(Locale.US);
-            Double value = null;
-            try {
-                value = nf.parse(raw).doubleValue();
-            }
-            catch (ParseException e)
-            {}
-            return new OfficePercentage(value);
+            return new OfficePercentage(XsdValues.parseDouble(reader.getAttribValue("office:value")));
         }
 
         @Override
@@ -159,10 +112,8 @@ enum OfficeValueType {
 
                 OfficePercentage percentage = (OfficePercentage) value;
 
-                if (percentage.getValue() != null) {
-                    NumberFormat formatter = NumberFormat.getInstance(Locale.US);
-                    writer.writeAttribute(OFFICE, "value", formatter.format(percentage.getValue()));
-                }
+                if (percentage.getValue() != null)
+                    writer.writeAttribute(OFFICE, "value", XsdValues.formatDouble(percentage.getValue()));
             }
         }
     },
@@ -183,15 +134,7 @@ enum OfficeValueType {
     TIME("time", Duration.class) {
         @Override
         public Object read(XmlReaderInstance reader) {
-            String raw = reader.getAttribValue("office:time-value");
-            if (raw == null) {
-                return null;
-            }
-            try {
-                return Duration.parse(raw);
-            } catch (DateTimeParseException dateEx) {
-                return null;
-            }
+            return XsdValues.parseDuration(reader.getAttribValue("office:time-value"));
         }
 
         @Override
@@ -0,0 +1,75 @@
+package com.github.miachm.sods;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+    The parts of a loaded content.xml which the XML of its sheets depends on: the namespaces,
+    the automatic styles and the font declarations, and the styles.xml of the same file.
+    OdsWritter copies them when it copies the original XML of a sheet which was not modified.
+    See LoadOptions.setIncrementalSave()
+ */
+class OriginalContent {
+    // Prefix (empty for the default namespace) to URI
+    final Map<String, String> namespaces;
+    final byte[] automaticStyles;
+    final byte[] fontFaces;
+    // Null if the file didn't have one
+    final byte[] stylesXml;
+    // Names of the automatic styles, the new styles can't use them
+    final Set<String> styleNames;
+
+    private OriginalContent(Map<String, String> namespaces, byte[] automaticStyles, byte[] fontFaces, byte[] stylesXml, Set<String> styleNames) {
+        this.namespaces = namespaces;
+        this.automaticStyles = automaticStyles;
+        this.fontFaces = fontFaces;
+        this.stylesXml = stylesXml;
+        this.styleNames = styleNames;
+    }
+
+    /*
+        Returns null if the namespaces can't be declared again, because a prefix was declared
+        with different URIs or with a reference in its value.
+     */
+    static OriginalContent create(String content, ContentLayout layout, byte[] stylesXml) {
+        if (layout.namespaces == null) return null;
+
+        Map<String, String> namespaces = new LinkedHashMap<>();
+        for (Map.Entry<String, String> declaration : layout.namespaces.entrySet()) {
+            String quoted = declaration.getValue();
+            String uri = quoted.substring(1, quoted.length() - 1);
+            if (uri.indexOf('&') >= 0) return null;
+            String name = declaration.getKey();
+            namespaces.put(name.equals("xmlns") ? "" : name.substring("xmlns:".length()), uri);
+        }
+
+        String automaticStyles = layout.stylesStart >= 0 ? content.substring(layout.stylesStart, layout.stylesEnd) : "";
+        String fontFaces = layout.fontFacesStart >= 0 ? content.substring(layout.fontFacesStart, layout.fontFacesEnd) : "";
+
+        return new OriginalContent(namespaces,
+                automaticStyles.getBytes(StandardCharsets.UTF_8),
+                fontFaces.getBytes(StandardCharsets.UTF_8),
+                stylesXml,
+                styleNames(automaticStyles, namespaces));
+    }
+
+    private static Set<String> styleNames(String automaticStyles, Map<String, String> namespaces) {
+        Set<String> names = new HashSet<>();
+        for (Map.Entry<String, String> namespace : namespaces.entrySet()) {
+            if (!namespace.getValue().equals(OpenDocumentNamespaces.STYLE) || namespace.getKey().isEmpty())
+                continue;
+
+            Pattern pattern = Pattern.compile("\\s" + Pattern.quote(namespace.getKey()) + ":name\\s*=\\s*(\"([^\"]*)\"|'([^']*)')");
+            Matcher matcher = pattern.matcher(automaticStyles);
+            while (matcher.find())
+                names.add(matcher.group(2) != null ? matcher.group(2) : matcher.group(3));
+        }
+        return Collections.unmodifiableSet(names);
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.miachm.sods;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+    Parses a content.xml with its sheets in parallel.
+
+    A first pass scans the tags of the document (see ContentLayout) and records where each
+    table:table element starts and ends in the text. Then the styles are parsed and every table
+    is parsed in its own task, wrapped in an element which declares the namespaces of its ancestors.
+    The StylesParser is complete before the tasks start, so they only read it.
+
+    The sheets are appended in the order of the document, the result is the same than a sequential load.
+    When the document can't be scanned (a DTD, which could declare entities, or a malformed tag)
+    or a table fails, the content is parsed sequentially.
+ */
+class ParallelContentParser {
+    private final StylesParser stylesParser;
+    private final SpreadsheetParser spreadsheetParser;
+    private final SpreadSheet spread;
+    private final ForkJoinPool pool;
+
+    ParallelContentParser(StylesParser stylesParser, SpreadsheetParser spreadsheetParser, SpreadSheet spread, ForkJoinPool pool) {
+        this.stylesParser = stylesParser;
+        this.spreadsheetParser = spreadsheetParser;
+        this.spread = spread;
+        this.pool = pool;
+    }
+
+    void parse(byte[] bytes) throws IOException {
+        if (!ContentLayout.isUtf8(bytes)) {
+            XmlReaderCursorImpl cursor = new XmlReaderCursorImpl();
+            parseSequentially(cursor, cursor.load(new ByteArrayInputStream(bytes)));
+            return;
+        }
+
+        String content = ContentLayout.decode(bytes);
+        ContentLayout layout = ContentLayout.scan(content);
+        if (layout == null) {
+            parseSequentially(content);
+            return;
+        }
+
+        XmlReaderCursorImpl cursor = new XmlReaderCursorImpl();
+        XmlReaderInstance instance = cursor.load(new StringReader(content));
+        if (instance == null) return;
+        stylesParser.parseStyles(instance.nextElement("office:automatic-styles", "office:styles"));
+        boolean hasBody = instance.nextElement("office:body") != null;
+        cursor.close();
+        if (!hasBody) return;
+
+        List<ForkJoinTask<Sheet>> tasks = new ArrayList<>(layout.tables.size());
+        for (ContentLayout.Table table : layout.tables)
+            tasks.add(pool.submit(() -> parseTable(content, table)));
+
+        List<Sheet> sheets = new ArrayList<>(tasks.size());
+        try {
+            for (ForkJoinTask<Sheet> task : tasks) {
+                // Sheets skipped by the load options are null
+                Sheet sheet = task.join();
+                if (sheet != null) sheets.add(sheet);
+            }
+        } catch (RuntimeException e) {
+            for (ForkJoinTask<Sheet> task : tasks)
+                task.cancel(false);
+            parseSequentially(content);
+            return;
+        }
+
+        for (Sheet sheet : sheets)
+            spread.appendSheet(sheet);
+    }
+
+    private void parseSequentially(String content) throws IOException {
+        XmlReaderCursorImpl cursor = new XmlReaderCursorImpl();
+        parseSequentially(cursor, cursor.load(new StringReader(content)));
+    }
+
+    private void parseSequentially(XmlReaderCursorImpl cursor, XmlReaderInstance instance) throws IOException {
+        if (instance == null) return;
+        OdsReader.parseContent(instance, stylesParser, spreadsheetParser);
+        cursor.close();
+    }
+
+    private Sheet parseTable(String content, ContentLayout.Table table) throws IOException {
+        StringBuilder xml = new StringBuilder(table.header.length() + table.end - table.start + ContentLayout.WRAPPER.length() + 3);
+        xml.append(table.header).append(content, table.start, table.end).append("</").append(ContentLayout.WRAPPER).append('>');
+
+        XmlReaderCursorImpl cursor = new XmlReaderCursorImpl();
+        XmlReaderInstance wrapper = cursor.load(new StringReader(xml.toString()));
+        Sheet sheet = spreadsheetParser.parseSheet(wrapper.nextElement("table:table"));
+        cursor.close();
+        return sheet;
+    }
+}
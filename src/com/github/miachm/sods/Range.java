@@ -1,9 +1,14 @@
 package com.github.miachm.sods;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
 /**
  * A range represents a subset of a Sheet.
@@ -11,6 +16,8 @@ import java.util.TreeSet;
  */
 public class Range {
     private static final int MAX_PRINTABLE = 500;
+    // Ranges with less cells are aggregated in the calling thread, see stats(ForkJoinPool)
+    private static final long PARALLEL_CELLS = 1 << 16;
     private final int column_init,row_init;
     private final int numrows,numcolumns;
     private final Sheet sheet;
@@ -48,7 +55,7 @@ public class Range {
      */
 
     public void clear(){
-        iterateRange((cell,row,column) -> cell.clear());
+        editContent((cell,row,column) -> cell.clear());
     }
 
     /**
@@ -223,7 +230,7 @@ public class Range {
      */
     public Object getValue()
     {
-        return getFirstCell().getValue();
+        return sheet.getRowForReading(row_init).getValue(column_init);
     }
 
     /**
@@ -237,10 +244,228 @@ public class Range {
      */
     public Object[][] getValues(){
         Object[][] values = new Object[getNumRows()][getNumColumns()];
-        iterateRange((cell,row,column) -> values[row][column] = cell.getValue());
+        for (int i = 0; i < numrows; i++) {
+            Row row = sheet.getRowForReading(row_init + i);
+            for (int j = 0; j < numcolumns; j++)
+                values[i][j] = row.getValue(column_init + j);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values of a column of this range, one for each row of the range.
+     * It's faster than calling getValues() on a range of one column, the cells are read without creating new objects
+     *
+     * @param column The column, relative to this range (0 is the first column of the range)
+     * @return An array of values, empty cells returns a null object
+     * @throws IndexOutOfBoundsException if the column is not in the range
+     */
+    public Object[] getColumnValues(int column){
+        checkColumn(column);
+        Object[] values = new Object[numrows];
+        for (int i = 0; i < numrows; i++)
+            values[i] = sheet.getRowForReading(row_init + i).getValue(column_init + column);
         return values;
     }
 
+    /**
+     * Returns the rectangular grid of numeric values for this range, without boxing them.
+     * Empty cells and cells which don't contain a number are returned as NaN.
+     *
+     * @return A two-dimensional array of numbers. It can not be null
+     */
+    public double[][] getDoubles(){
+        double[][] values = new double[getNumRows()][getNumColumns()];
+        for (int i = 0; i < numrows; i++) {
+            Row row = sheet.getRowForReading(row_init + i);
+            for (int j = 0; j < numcolumns; j++)
+                values[i][j] = row.getDouble(column_init + j);
+        }
+        return values;
+    }
+
+    /**
+     * Returns a cursor which reads the cells of this range, row by row.
+     * The cursor stops once for every group of consecutive cells with the same content,
+     * so large ranges can be read without creating an object for each cell.
+     * The sheet must not be modified while the cursor is used.
+     *
+     * @see CellCursor
+     * @return A new cursor, placed before the first cell of the range
+     */
+    public CellCursor cursor(){
+        return new CellCursor(sheet, row_init, column_init, numrows, numcolumns);
+    }
+
+    /**
+     * Returns the sum of the numbers of this range.
+     * Empty cells and cells which don't contain a number are skipped.
+     *
+     * @see #stats()
+     * @return The sum, 0 if there are no numbers
+     */
+    public double sum(){
+        return stats().getSum();
+    }
+
+    /**
+     * Returns the lowest number of this range.
+     * Empty cells and cells which don't contain a number are skipped.
+     *
+     * @see #stats()
+     * @return The minimum, NaN if there are no numbers
+     */
+    public double min(){
+        return stats().getMin();
+    }
+
+    /**
+     * Returns the highest number of this range.
+     * Empty cells and cells which don't contain a number are skipped.
+     *
+     * @see #stats()
+     * @return The maximum, NaN if there are no numbers
+     */
+    public double max(){
+        return stats().getMax();
+    }
+
+    /**
+     * Returns the number of cells of this range which contain a number
+     *
+     * @see #stats()
+     * @return The number of numeric cells
+     */
+    public long count(){
+        return stats().getCount();
+    }
+
+    /**
+     * Returns the arithmetic mean of the numbers of this range.
+     * Empty cells and cells which don't contain a number are skipped.
+     *
+     * @see #stats()
+     * @return The average, NaN if there are no numbers
+     */
+    public double average(){
+        return stats().getAverage();
+    }
+
+    /**
+     * Returns the count, sum, minimum, maximum and average of the numbers of this range, reading it only once.
+     * Consecutive cells and rows with the same content are read once and counted as many times as they are repeated,
+     * so the range is never expanded into values.
+     *
+     * @return The statistics of the range. It can not be null
+     */
+    public RangeStatistics stats(){
+        return stats(null);
+    }
+
+    /**
+     * Like stats(), but large ranges are split by rows and aggregated in parallel in the pool.
+     * The sheet must not be modified from other threads while the range is aggregated.
+     *
+     * @param pool The pool where the range is aggregated, null to aggregate it in the calling thread
+     * @return The statistics of the range. It can not be null
+     */
+    public RangeStatistics stats(ForkJoinPool pool){
+        int endRow = row_init + numrows;
+        if (pool == null || (long) numrows * numcolumns < PARALLEL_CELLS)
+            return addNumbers(row_init, endRow);
+        prepareForReading();
+        return pool.invoke(new Aggregation(this, row_init, endRow));
+    }
+
+    // Aggregates the rows [firstRow, endRow) of this range, a run of rows is read once
+    private RangeStatistics addNumbers(int firstRow, int endRow){
+        RangeStatistics stats = new RangeStatistics();
+        TableFieldList<Row> rows = sheet.rows;
+        int index = rows.runIndexOf(firstRow);
+        if (index == rows.size())
+            return stats;
+        int start = rows.offsetOf(index);
+        for (; index < rows.size() && start < endRow; index++) {
+            Row row = rows.get(index);
+            int end = start + row.num_repeated;
+            long times = Math.min(end, endRow) - Math.max(start, firstRow);
+            row.addNumbers(column_init, column_init + numcolumns, times, stats);
+            start = end;
+        }
+        return stats;
+    }
+
+    /*
+        Repairs the offsets of the runs of this range. After it, and until the sheet changes, looking up
+        a position of the range doesn't modify the lists, so the range can be read from several threads.
+     */
+    private void prepareForReading(){
+        TableFieldList<Row> rows = sheet.rows;
+        int endRow = row_init + numrows;
+        int index = rows.runIndexOf(endRow - 1);
+        if (index == rows.size())
+            return;
+        for (int i = rows.runIndexOf(row_init); i <= index; i++) {
+            TableFieldList<Cell> cells = rows.get(i).getCellsForReading();
+            if (cells != null)
+                cells.runIndexOf(column_init + numcolumns - 1);
+        }
+    }
+
+    // Aggregates the rows [from, to) of a range, splitting them in halves until they are small enough
+    private static final class Aggregation extends RecursiveTask<RangeStatistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final Range range;
+        private final int from;
+        private final int to;
+
+        Aggregation(Range range, int from, int to)
+        {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected RangeStatistics compute()
+        {
+            if (to - from <= 1 || (long) (to - from) * range.numcolumns <= PARALLEL_CELLS / 4)
+                return range.addNumbers(from, to);
+            int middle = (from + to) >>> 1;
+            Aggregation first = new Aggregation(range, from, middle);
+            first.fork();
+            RangeStatistics stats = new Aggregation(range, middle, to).compute();
+            stats.add(first.join());
+            return stats;
+        }
+    }
+
+    /**
+     * Sorts the rows of this range by the values of one or more key columns, in place.
+     * The first spec is the main key, the next ones order the rows with equal keys. The sort is stable,
+     * the rows with the same keys keep their order.
+     *
+     * Numbers (dates, currencies and percentages included) go before texts, and texts before booleans.
+     * Texts are compared ignoring the case. Empty cells go last, in both directions.
+     *
+     * The cells are moved with their styles, formulas and annotations, without copying them. The formulas
+     * are moved as they are, their references are not adjusted. If the range covers whole rows, the rows
+     * are moved with their height and visibility too. Large ranges are sorted in parallel.
+     *
+     * @param specs The key columns and their directions
+     * @throws IllegalArgumentException If there are no specs, or if a merged cell of the range spans several rows
+     * or columns out of the range. No changes are done to the sheet
+     * @throws IndexOutOfBoundsException If the column of a spec is not in the range
+     */
+    public void sort(SortSpec... specs){
+        if (specs == null || specs.length == 0)
+            throw new IllegalArgumentException("At least one sort spec is needed");
+        for (SortSpec spec : specs)
+            checkColumn(spec.getColumn());
+        RangeSorter.sort(sheet, row_init, column_init, numrows, numcolumns, specs);
+    }
+
     /**
      * Returns the formating style of the top-left cell in the range.
      * It's safe to manipulate the Style object since is a copy of the original one
@@ -307,7 +532,7 @@ public class Range {
      *
      */
     public void setValue(Object o){
-        iterateRange((cell,row,column) -> cell.setValue(o));
+        editContent((cell,row,column) -> cell.setValue(o, sheet.getStylePool()));
     }
 
     /**
@@ -326,7 +551,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setValues, the number of the arguments doesn't fit ("
                     + o.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.setValue(o[row*getNumColumns()+column]));
+        editContent((cell,row,column) -> cell.setValue(o[row*getNumColumns()+column], sheet.getStylePool()));
     }
 
     /**
@@ -345,7 +570,76 @@ public class Range {
             throw new IllegalArgumentException("Error in setValues, the number of columns doesn't fit ("
                     + o[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.setValue(o[row][column]));
+        editContent((cell,row,column) -> cell.setValue(o[row][column], sheet.getStylePool()));
+    }
+
+    /**
+     * Set the values of a column of this range, one for each row of the range.
+     *
+     * <pre>
+     *     Range range = sheet.getRange(0, 0, 3, 2); // 3x2 Range
+     *     range.setColumnValues(1, new Object[]{1, "two", 3.0}); // Set the second column
+     * </pre>
+     *
+     * @param column The column, relative to this range (0 is the first column of the range)
+     * @param values The values array, it must have the same size than the number of rows of the range
+     * @throws IndexOutOfBoundsException if the column is not in the range
+     * @throws IllegalArgumentException if the number of values is not equals to the number of rows
+     */
+    public void setColumnValues(int column, Object[] values){
+        checkColumn(column);
+        if (values.length != getNumRows())
+            throw new IllegalArgumentException("Error in setColumnValues, the number of values doesn't fit ("
+                    + values.length + " against " + getNumRows() + ")");
+
+        new Range(sheet, row_init, column_init + column, numrows, 1)
+                .editContent((cell, row, ignored) -> cell.setValue(values[row], sheet.getStylePool()));
+    }
+
+    private void checkColumn(int column)
+    {
+        if (column >= getNumColumns())
+            throw new IndexOutOfBoundsException("Column is greater than range size");
+        if (column < 0)
+            throw new IndexOutOfBoundsException("Column is negative");
+    }
+
+    /**
+     * Set a set of numbers to the range. The array must have the same size of the entire range itself.
+     * NaN values clear the value of the cell.
+     *
+     * Rows which only contain plain numbers (without formulas, styles, annotations or merged cells)
+     * are stored packed, without creating an object per cell.
+     *
+     * @param values The numbers 2D-array, it must have the same size of the range itself
+     * @throws IllegalArgumentException if the number of values is not equals to the size of range
+     */
+    public void setDoubles(double[][] values){
+        if (values.length == 0)
+            throw new IllegalArgumentException("Error in setDoubles, the array is empty");
+        if (values.length != getNumRows())
+            throw new IllegalArgumentException("Error in setDoubles, the number of rows doesn't fit ("
+                    + values.length + " against " + getNumRows() + ")");
+        for (double[] row : values) {
+            if (row.length != getNumColumns())
+                throw new IllegalArgumentException("Error in setDoubles, the number of columns doesn't fit ("
+                        + row.length + " against " + getNumColumns() + ")");
+        }
+
+        sheet.markDirty();
+        sheet.removeFromIndexes(row_init, column_init, numrows, numcolumns);
+        for (int i = 0; i < numrows; i++) {
+            Row row = sheet.getRowForEditing(row_init + i);
+            if (row.pack()) {
+                for (int j = 0; j < numcolumns; j++)
+                    row.setDouble(column_init + j, values[i][j]);
+            } else {
+                double[] numbers = values[i];
+                new Range(sheet, row_init + i, column_init, 1, numcolumns).editRange((cell, ignored, column) ->
+                        cell.setValue(Double.isNaN(numbers[column]) ? null : numbers[column], sheet.getStylePool()));
+            }
+        }
+        sheet.contentChanged(row_init, column_init, numrows, numcolumns);
     }
 
     /**
@@ -354,7 +648,7 @@ public class Range {
      * @param bold Boolean which indicates if the font has bold style or not
      */
     public void setFontBold(boolean bold) {
-        iterateRange((cell,row,column) -> cell.getStyle().setBold(bold));
+        modifyStyles(style -> style.setBold(bold));
     }
 
     /**
@@ -373,7 +667,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontBold, the number of the arguments doesn't fit ("
                     + bold.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setBold(bold[row*getNumColumns()+column]));
+        modifyEachStyle((style, row, column) -> style.setBold(bold[row*getNumColumns()+column]));
     }
 
     /**
@@ -392,7 +686,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontBolds, the number of columns doesn't fit ("
                     + bold[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setBold(bold[row][column]));
+        modifyEachStyle((style, row, column) -> style.setBold(bold[row][column]));
     }
 
     /**
@@ -402,7 +696,7 @@ public class Range {
      */
     public void setFontItalic(boolean italic)
     {
-        iterateRange((cell, row, column) -> cell.getStyle().setItalic(italic));
+        modifyStyles(style -> style.setItalic(italic));
     }
 
     /**
@@ -421,7 +715,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontItalic, the number of the arguments doesn't fit ("
                     + italic.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setItalic(italic[row*getNumColumns()+column]));
+        modifyEachStyle((style, row, column) -> style.setItalic(italic[row*getNumColumns()+column]));
     }
 
     /**
@@ -441,7 +735,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontItalics, the number of columns doesn't fit ("
                     + italic[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setItalic(italic[row][column]));
+        modifyEachStyle((style, row, column) -> style.setItalic(italic[row][column]));
     }
 
     /**
@@ -451,7 +745,7 @@ public class Range {
      */
     public void setFontUnderline(boolean underline)
     {
-        iterateRange((cell, row, column) -> cell.getStyle().setUnderline(underline));
+        modifyStyles(style -> style.setUnderline(underline));
     }
 
     /**
@@ -471,7 +765,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontUnderlines, the number of the arguments doesn't fit ("
                     + underline.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setUnderline(underline[row*getNumColumns()+column]));
+        modifyEachStyle((style, row, column) -> style.setUnderline(underline[row*getNumColumns()+column]));
     }
 
     /**
@@ -491,7 +785,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontUnderlines, the number of columns doesn't fit ("
                     + underline[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setUnderline(underline[row][column]));
+        modifyEachStyle((style, row, column) -> style.setUnderline(underline[row][column]));
     }
 
     /**
@@ -501,7 +795,7 @@ public class Range {
      */
     public void setFontColor(Color color)
     {
-        iterateRange((cell, row, column) -> cell.getStyle().setFontColor(color));
+        modifyStyles(style -> style.setFontColor(color));
     }
 
     /**
@@ -524,7 +818,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontColors, the number of the arguments doesn't fit ("
                     + color.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setFontColor(color[row*getNumColumns()+column]));
+        modifyEachStyle((style, row, column) -> style.setFontColor(color[row*getNumColumns()+column]));
     }
 
     /**
@@ -544,7 +838,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontColors, the number of columns doesn't fit ("
                     + color[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setFontColor(color[row][column]));
+        modifyEachStyle((style, row, column) -> style.setFontColor(color[row][column]));
     }
 
     /**
@@ -554,7 +848,7 @@ public class Range {
      */
     public void setBackgroundColor(Color color)
     {
-        iterateRange((cell, row, column) -> cell.getStyle().setBackgroundColor(color));
+        modifyStyles(style -> style.setBackgroundColor(color));
     }
 
     /**
@@ -577,7 +871,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setBackgroundColors, the number of the arguments doesn't fit ("
                     + color.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setBackgroundColor(color[row*getNumColumns()+column]));
+        modifyEachStyle((style, row, column) -> style.setBackgroundColor(color[row*getNumColumns()+column]));
     }
 
     /**
@@ -597,7 +891,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setBackgroundColors, the number of columns doesn't fit ("
                     + color[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setBackgroundColor(color[row][column]));
+        modifyEachStyle((style, row, column) -> style.setBackgroundColor(color[row][column]));
     }
 
     /**
@@ -608,7 +902,7 @@ public class Range {
      */
     public void setFontSize(int fontSize)
     {
-        iterateRange((cell, row, column) -> cell.getStyle().setFontSize(fontSize));
+        modifyStyles(style -> style.setFontSize(fontSize));
     }
 
     /**
@@ -628,7 +922,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontSizes, the number of the arguments doesn't fit ("
                     + fontSizes.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setFontSize(fontSizes[row*getNumColumns()+column]));
+        modifyEachStyle((style, row, column) -> style.setFontSize(fontSizes[row*getNumColumns()+column]));
     }
 
     /**
@@ -648,13 +942,60 @@ public class Range {
             throw new IllegalArgumentException("Error in setFontSizes, the number of columns doesn't fit ("
                     + fontSizes[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.getStyle().setFontSize(fontSizes[row][column]));
+        modifyEachStyle((style, row, column) -> style.setFontSize(fontSizes[row][column]));
     }
 
+    /*
+        Applies the same modification to the style of every cell.
+        Cells share their styles, so the result is computed once per distinct style.
+     */
+    private void modifyStyles(Consumer<Style> modifier){
+        StylePool pool = sheet.getStylePool();
+        Map<Style, Style> results = new IdentityHashMap<>();
+        editRange((cell, row, column) -> {
+            Style style = cell.getStyleDangerous();
+            Style result = results.get(style);
+            if (result == null) {
+                result = pool.modify(style, modifier);
+                results.put(style, result);
+            }
+            cell.setStyle(result);
+        });
+    }
+
+    private void modifyEachStyle(StyleModifier modifier){
+        StylePool pool = sheet.getStylePool();
+        editRange((cell, row, column) ->
+                cell.setStyle(pool.modify(cell.getStyleDangerous(), style -> modifier.modify(style, row, column))));
+    }
+
+    private Style internStyle(Style style){
+        if (style == null)
+            throw new IllegalArgumentException("Style can not be null");
+        return sheet.getStylePool().intern(style);
+    }
+
+    // Like iterateRange(), for the operations which modify the sheet
+    private void editRange(RangeIterator e){
+        sheet.markDirty();
+        iterateRange(e);
+    }
+
+    // Like editRange(), for the operations which modify values or formulas
+    private void editContent(RangeIterator e){
+        sheet.removeFromIndexes(row_init, column_init, numrows, numcolumns);
+        editRange(e);
+        sheet.contentChanged(row_init, column_init, numrows, numcolumns);
+    }
+
+    // The cells of each row are materialized at once and walked in order, see Sheet.getCellsForEditing()
     private void iterateRange(RangeIterator e){
+        if (numcolumns == 0)
+            return;
         for (int i = 0;i < numrows;i++){
+            List<Cell> cells = sheet.getCellsForEditing(row_init + i, column_init, numcolumns);
             for (int j = 0;j < numcolumns;j++) {
-                Cell cell = sheet.getCell(row_init+i,column_init+j);
+                Cell cell = cells.get(j);
                 GroupCell groupCell = cell.getGroup();
                 if (groupCell != null)
                     cell = groupCell.getCell();
@@ -681,19 +1022,19 @@ public class Range {
     }
 
     /**
-     * Set a formula for every cell in the range. Note that this method doesn't evaluate the formula. It just
-     * sets the formula value for when you decide to save it to a file.
+     * Set a formula for every cell in the range. The formula is evaluated once SpreadSheet.recalculate() has been
+     * called on the spreadsheet of the sheet, otherwise it's just stored for when you decide to save it to a file.
      *
      * @param formula The formula string representation in the same format of a regular spreadsheet, a example would be: "A1+A2+A3"
      */
     public void setFormula(String formula)
     {
-        iterateRange((cell,row,column) -> cell.setFormula(formula));
+        editContent((cell,row,column) -> cell.setFormula(formula));
     }
 
     /**
      * Set a set of formulas to the range. The array must have the same size of the entire range itself.
-     * Note that this method doesn't evaluate the formulas. It jus sets the formula value for when you decide to save it to a file.
+     * The formulas are evaluated once SpreadSheet.recalculate() has been called, see setFormula(String).
      *
      * @param formula The formulas array, it must the same size of the range itself. The format of each formula
      *                should be same used in a regular spreadsheet, for example: "A1+A2+A3"
@@ -704,12 +1045,12 @@ public class Range {
             throw new IllegalArgumentException("Error in setFormulas, the number of the arguments doesn't fit ("
                     + formula.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.setFormula(formula[row*getNumColumns()+column]));
+        editContent((cell,row,column) -> cell.setFormula(formula[row*getNumColumns()+column]));
     }
 
     /**
      * Set a set of formulas to the range. The formula array must have the same size of the entire range itself
-     * Note that this method doesn't evaluate the formulas. It jus sets the formula value for when you decide to save it to a file.
+     * The formulas are evaluated once SpreadSheet.recalculate() has been called, see setFormula(String).
      *
      * @param formula The formula 2D-array, it must have the same size of the range itself
      * @throws IllegalArgumentException if the number of values is not equals to the size of range
@@ -725,7 +1066,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setFormulas, the number of columns doesn't fit ("
                     + formula[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.setFormula(formula[row][column]));
+        editContent((cell,row,column) -> cell.setFormula(formula[row][column]));
     }
 
     @Override
@@ -748,7 +1089,8 @@ public class Range {
      */
     public void setStyle(Style style)
     {
-        iterateRange((cell, row, column) -> cell.setStyle(style));
+        Style shared = internStyle(style);
+        editRange((cell, row, column) -> cell.setStyle(shared));
     }
 
     /**
@@ -762,7 +1104,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setStyles, the number of the arguments doesn't fit ("
                     + style.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.setStyle(style[row*getNumColumns()+column]));
+        editRange((cell,row,column) -> cell.setStyle(internStyle(style[row*getNumColumns()+column])));
     }
 
     /**
@@ -782,7 +1124,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setStyles, the number of columns doesn't fit ("
                     + style[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell,row,column) -> cell.setStyle(style[row][column]));
+        editRange((cell,row,column) -> cell.setStyle(internStyle(style[row][column])));
     }
 
     /**
@@ -793,7 +1135,7 @@ public class Range {
      */
     public void setAnnotation(OfficeAnnotation annotation)
     {
-        iterateRange((cell, row, column) -> cell.setAnnotation(annotation));
+        editRange((cell, row, column) -> cell.setAnnotation(annotation));
     }
 
     /**
@@ -808,7 +1150,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setAnnotations, the number of the arguments doesn't fit ("
                     + annotations.length + " against " + getNumValues() + ")");
 
-        iterateRange((cell,row,column) -> cell.setAnnotation(annotations[row*getNumColumns()+column]));
+        editRange((cell,row,column) -> cell.setAnnotation(annotations[row*getNumColumns()+column]));
     }
 
     /**
@@ -828,7 +1170,7 @@ public class Range {
             throw new IllegalArgumentException("Error in setAnnotations, the number of columns doesn't fit ("
                     + annotations[0].length + " against " + getNumColumns() + ")");
 
-        iterateRange((cell, row, column) -> cell.setAnnotation(annotations[row][column]));
+        editRange((cell, row, column) -> cell.setAnnotation(annotations[row][column]));
     }
 
     /**
@@ -848,7 +1190,7 @@ public class Range {
         Vector length = new Vector(getNumRows(), getNumColumns());
         Cell firstCell = sheet.getCell(row_init,column_init);
         GroupCell groupCell = new GroupCell(cord, length, firstCell);
-        iterateRange((cell,row,column) -> cell.setGroup(groupCell));
+        editContent((cell,row,column) -> cell.setGroup(groupCell));
     }
 
     private boolean rowInRange(int row)
@@ -881,7 +1223,9 @@ public class Range {
             }
         }
 
+        sheet.markDirty();
         for (Range range : groupRange) {
+            sheet.removeFromIndexes(range.getRow(), range.getColumn(), range.getNumRows(), range.getNumColumns());
             for (int i = 0; i < range.getNumRows(); i++){
                 for (int j = 0; j < range.getNumColumns(); j++) {
                     Cell cell = sheet.getCell(range.getRow()+i,range.getColumn()+j);
@@ -890,6 +1234,7 @@ public class Range {
                     cell.setGroup(null);
                 }
             }
+            sheet.contentChanged(range.getRow(), range.getColumn(), range.getNumRows(), range.getNumColumns());
         }
     }
 
@@ -0,0 +1,215 @@
+package com.github.miachm.sods;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+    Sorts the rows of a range in place, see Range.sort().
+
+    If the range covers whole rows, the Row objects are permuted. A run of repeated rows is moved as a
+    single item: its rows have the same keys and the sort is stable, so they would stay together anyway.
+    Otherwise the rows are split and the cells of the range are permuted between them.
+    In both cases the styles, formulas and annotations move with their cells, nothing is copied.
+
+    The items are sorted with Arrays.parallelSort(), a stable merge sort which uses the common pool
+    for the large ranges.
+ */
+final class RangeSorter {
+    private RangeSorter() {
+    }
+
+    // A run of rows, or the cells of a row, and the values of its keys
+    private static final class Item {
+        final Object content;
+        final Object[] keys;
+
+        Item(Object content, Object[] keys)
+        {
+            this.content = content;
+            this.keys = keys;
+        }
+    }
+
+    static void sort(Sheet sheet, int row, int column, int numRows, int numColumns, SortSpec[] specs)
+    {
+        if (numRows < 2 || numColumns == 0)
+            return;
+        checkMergedCells(sheet, row, column, numRows, numColumns);
+
+        sheet.markDirty();
+        sheet.removeFromIndexes(row, column, numRows, numColumns);
+        if (column == 0 && numColumns == sheet.getMaxColumns())
+            sortRows(sheet, row, numRows, specs);
+        else
+            sortCells(sheet, row, column, numRows, numColumns, specs);
+        // The formulas moved with their cells, they are parsed and evaluated again
+        sheet.structureChanged();
+        sheet.contentChanged(row, column, numRows, numColumns);
+    }
+
+    private static void sortRows(Sheet sheet, int row, int numRows, SortSpec[] specs)
+    {
+        List<Row> runs = sheet.getRowsForEditing(row, numRows);
+        Item[] items = new Item[runs.size()];
+        for (int i = 0; i < items.length; i++) {
+            Row item = runs.get(i);
+            Object[] keys = new Object[specs.length];
+            for (int k = 0; k < specs.length; k++)
+                keys[k] = sortKey(item.getValue(specs[k].getColumn()));
+            items[i] = new Item(item, keys);
+        }
+        sortItems(items, specs);
+
+        TableFieldList<Row> rows = sheet.rows;
+        int first = rows.runIndexOf(row);
+        int position = row;
+        for (int i = 0; i < items.length; i++) {
+            Row item = (Row) items[i].content;
+            rows.set(first + i, item);
+            TableFieldList<Cell> cells = item.getCellsForReading();
+            if (cells != null)
+                moveGroups(cells, position);
+            position += item.num_repeated;
+        }
+        // The lengths of the runs changed their order
+        rows.invalidateFrom(first);
+    }
+
+    private static void sortCells(Sheet sheet, int row, int column, int numRows, int numColumns, SortSpec[] specs)
+    {
+        Item[] items = new Item[numRows];
+        for (int i = 0; i < numRows; i++) {
+            List<Cell> cells = sheet.getCellsForEditing(row + i, column, numColumns);
+            Object[] keys = new Object[specs.length];
+            for (int k = 0; k < specs.length; k++) {
+                Cell cell = cells.get(specs[k].getColumn());
+                GroupCell group = cell.getGroup();
+                keys[k] = sortKey((group != null ? group.getCell() : cell).getValue());
+            }
+            items[i] = new Item(cells.toArray(new Cell[0]), keys);
+        }
+        sortItems(items, specs);
+
+        // Every cell of the range is a run of one cell now, so the offsets of the rows don't change
+        for (int i = 0; i < numRows; i++) {
+            Cell[] sorted = (Cell[]) items[i].content;
+            TableFieldList<Cell> cells = sheet.getRowForEditing(row + i).getCells();
+            int start = cells.runIndexOf(column);
+            for (int j = 0; j < sorted.length; j++)
+                cells.set(start + j, sorted[j]);
+            moveGroups(Arrays.asList(sorted), row + i);
+        }
+    }
+
+    private static void sortItems(Item[] items, SortSpec[] specs)
+    {
+        Comparator<Item> comparator = (left, right) -> {
+            for (int k = 0; k < specs.length; k++) {
+                int result = compareKeys(left.keys[k], right.keys[k], specs[k].isAscending());
+                if (result != 0)
+                    return result;
+            }
+            return 0;
+        };
+        Arrays.parallelSort(items, comparator);
+    }
+
+    /*
+        The key of a value is computed once, so the comparisons are cheap: a Double for the numeric values,
+        the Boolean for the booleans, or the text with its case folded like String.CASE_INSENSITIVE_ORDER does.
+        They are ordered like FormulaValues.compare(): numbers, then texts, then booleans.
+     */
+    private static Object sortKey(Object value)
+    {
+        if (value == null || value instanceof Boolean)
+            return value;
+        if (FormulaValues.isNumeric(value))
+            return FormulaValues.numericValue(value);
+
+        char[] text = value.toString().toCharArray();
+        for (int i = 0; i < text.length; i++)
+            text[i] = Character.toLowerCase(Character.toUpperCase(text[i]));
+        return new String(text);
+    }
+
+    // Like the spreadsheets, the empty cells go last in both directions
+    @SuppressWarnings("unchecked")
+    private static int compareKeys(Object left, Object right, boolean ascending)
+    {
+        if (left == null || right == null) {
+            if (left == right)
+                return 0;
+            return left == null ? 1 : -1;
+        }
+        int leftRank = rank(left);
+        int rightRank = rank(right);
+        int result = leftRank != rightRank ? Integer.compare(leftRank, rightRank)
+                : ((Comparable<Object>) left).compareTo(right);
+        return ascending ? result : -result;
+    }
+
+    private static int rank(Object key)
+    {
+        if (key instanceof Double)
+            return 0;
+        return key instanceof String ? 1 : 2;
+    }
+
+    /*
+        The merged cells of the range must be inside of a row and of the columns of the range,
+        so they can be moved with it. It's checked before modifying anything.
+     */
+    private static void checkMergedCells(Sheet sheet, int row, int column, int numRows, int numColumns)
+    {
+        TableFieldList<Row> rows = sheet.rows;
+        int endRow = row + numRows;
+        int endColumn = column + numColumns;
+        int index = rows.runIndexOf(row);
+        int start = index < rows.size() ? rows.offsetOf(index) : endRow;
+        for (; index < rows.size() && start < endRow; index++) {
+            Row item = rows.get(index);
+            start += item.num_repeated;
+            TableFieldList<Cell> cells = item.getCellsForReading();
+            if (cells == null)
+                continue;
+            int j = cells.runIndexOf(column);
+            int position = j < cells.size() ? cells.offsetOf(j) : endColumn;
+            for (; j < cells.size() && position < endColumn; j++) {
+                Cell cell = cells.get(j);
+                position += cell.num_repeated;
+                GroupCell group = cell.getGroup();
+                if (group == null)
+                    continue;
+                if (group.getLength().getX() > 1)
+                    throw new IllegalArgumentException("Merged cells which span several rows can't be sorted ("
+                            + group.getCord().getX() + ", " + group.getCord().getY() + ")");
+                int first = group.getCord().getY();
+                if (first < column || first + group.getLength().getY() > endColumn)
+                    throw new IllegalArgumentException("Merged cells must be inside of the sorted columns ("
+                            + group.getCord().getX() + ", " + group.getCord().getY() + ")");
+            }
+        }
+    }
+
+    // The merged cells of a row which was moved get the new position
+    private static void moveGroups(List<Cell> cells, int row)
+    {
+        Map<GroupCell, GroupCell> moved = null;
+        for (Cell cell : cells) {
+            GroupCell group = cell.getGroup();
+            if (group == null || group.getCord().getX() == row)
+                continue;
+            if (moved == null)
+                moved = new IdentityHashMap<>();
+            GroupCell target = moved.get(group);
+            if (target == null) {
+                target = new GroupCell(new Vector(row, group.getCord().getY()), group.getLength(), group.getCell());
+                moved.put(group, target);
+            }
+            cell.setGroup(target);
+        }
+    }
+}
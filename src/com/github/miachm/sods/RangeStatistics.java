@@ -0,0 +1,101 @@
+package com.github.miachm.sods;
+
+/**
+ * The count, sum, minimum, maximum and average of the numbers of a Range.
+ *
+ * Only the cells which contain a number are taken into account, like Range.getDoubles() does.
+ * Empty cells, texts, booleans and the other types of values are skipped.
+ *
+ * @see Range#stats()
+ */
+public final class RangeStatistics {
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    RangeStatistics()
+    {
+    }
+
+    // Adds a number which is repeated in several cells
+    void add(double value, long times)
+    {
+        count += times;
+        sum += value * times;
+        if (value < min)
+            min = value;
+        if (value > max)
+            max = value;
+    }
+
+    void add(RangeStatistics other)
+    {
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of cells which contain a number
+     *
+     * @return The number of numeric cells
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the numbers
+     *
+     * @return The sum, 0 if there are no numbers
+     */
+    public double getSum()
+    {
+        return sum;
+    }
+
+    /**
+     * Returns the lowest number
+     *
+     * @return The minimum, NaN if there are no numbers
+     */
+    public double getMin()
+    {
+        return count > 0 ? min : Double.NaN;
+    }
+
+    /**
+     * Returns the highest number
+     *
+     * @return The maximum, NaN if there are no numbers
+     */
+    public double getMax()
+    {
+        return count > 0 ? max : Double.NaN;
+    }
+
+    /**
+     * Returns the arithmetic mean of the numbers
+     *
+     * @return The average, NaN if there are no numbers
+     */
+    public double getAverage()
+    {
+        return count > 0 ? sum / count : Double.NaN;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RangeStatistics{" +
+                "count=" + count +
+                ", sum=" + sum +
+                ", min=" + getMin() +
+                ", max=" + getMax() +
+                ", average=" + getAverage() +
+                '}';
+    }
+}
@@ -1,21 +1,265 @@
 package com.github.miachm.sods;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 
 class Row extends TableField {
     RowStyle row_style = new RowStyle();
-    List<Cell> cells = new ArrayList<>();
+    // null while the row is packed
+    private TableFieldList<Cell> cells = new TableFieldList<>();
+
+    /*
+        Packed representation for rows which only contain plain numbers (no formulas, styles,
+        annotations or merges). It avoids a Cell and a boxed Double per column.
+        numbers[i] is the value of column i if the bit i of present is set, otherwise the cell is empty.
+        Columns from numbers.length to width are empty.
+     */
+    private double[] numbers;
+    private long[] present;
+    private int width;
+
+    /*
+        The cells of the row, ready to be edited. A packed row is unpacked.
+     */
+    TableFieldList<Cell> getCells()
+    {
+        if (cells == null) {
+            cells = unpackedCells();
+            numbers = null;
+            present = null;
+        }
+        return cells;
+    }
+
+    boolean isPacked()
+    {
+        return cells == null;
+    }
+
+    // The cells of an unpacked row, for reading them. Null while the row is packed
+    TableFieldList<Cell> getCellsForReading()
+    {
+        return cells;
+    }
+
+    // For a packed row, the number of a column which has one
+    double getPackedNumber(int column)
+    {
+        return numbers[column];
+    }
+
+    /*
+        Packs the row if all its cells are plain numbers or empty.
+        Returns true if the row is packed after the call.
+     */
+    boolean pack()
+    {
+        if (cells == null)
+            return true;
+
+        int total = 0;
+        int lastValue = -1;
+        for (Cell cell : cells) {
+            if (!isPlainNumber(cell))
+                return false;
+            if (cell.getValue() != null)
+                lastValue = total + cell.num_repeated - 1;
+            total += cell.num_repeated;
+        }
+
+        // Long runs of the same number are already compact as cells
+        if (lastValue + 1 > 4 * cells.size() + 16)
+            return false;
+
+        double[] packedNumbers = new double[lastValue + 1];
+        long[] packedPresent = new long[(lastValue + 64) >> 6];
+        int column = 0;
+        for (Cell cell : cells) {
+            Object value = cell.getValue();
+            if (value != null) {
+                double number = ((Double) value).doubleValue();
+                for (int i = column; i < column + cell.num_repeated; i++) {
+                    packedNumbers[i] = number;
+                    packedPresent[i >> 6] |= 1L << i;
+                }
+            }
+            column += cell.num_repeated;
+        }
+
+        numbers = packedNumbers;
+        present = packedPresent;
+        width = total;
+        cells = null;
+        return true;
+    }
+
+    private static boolean isPlainNumber(Cell cell)
+    {
+        Object value = cell.getValue();
+        return (value == null || value instanceof Double)
+                && cell.getFormula() == null
+                && cell.getStyleDangerous() == Style.default_style
+                && cell.getGroup() == null
+                && cell.getAnnotation() == null;
+    }
+
+    // Number of columns of a packed row
+    int getWidth()
+    {
+        return width;
+    }
+
+    // Columns of a packed row from this one to the width are empty
+    int getPackedLength()
+    {
+        return numbers.length;
+    }
+
+    void appendCells(int howmany)
+    {
+        if (cells == null) {
+            width += howmany;
+        } else {
+            Cell cell = new Cell();
+            cell.num_repeated = howmany;
+            cells.add(cell);
+        }
+    }
+
+    /*
+        Reads a value without splitting runs or unpacking the row.
+        Merged cells return the value of the cell which owns the group.
+     */
+    Object getValue(int column)
+    {
+        if (cells == null)
+            return isPresent(column) ? numbers[column] : null;
+
+        int index = cells.runIndexOf(column);
+        if (index == cells.size())
+            return null;
+
+        Cell cell = cells.get(index);
+        GroupCell group = cell.getGroup();
+        if (group != null)
+            cell = group.getCell();
+        return cell.getValue();
+    }
+
+    // Like getValue(), but without boxing. Non numeric values are returned as NaN.
+    double getDouble(int column)
+    {
+        if (cells == null)
+            return isPresent(column) ? numbers[column] : Double.NaN;
+
+        Object value = getValue(column);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /*
+        Adds the numbers of the columns [column, endColumn) to the statistics, each one counted times,
+        once for every row of the run. Runs of cells are added once, multiplied by their length.
+     */
+    void addNumbers(int column, int endColumn, long times, RangeStatistics stats)
+    {
+        if (cells == null) {
+            int end = Math.min(endColumn, numbers.length);
+            for (int i = column; i < end; i++) {
+                if (isPresent(i))
+                    stats.add(numbers[i], times);
+            }
+            return;
+        }
+
+        int index = cells.runIndexOf(column);
+        if (index == cells.size())
+            return;
+        int start = cells.offsetOf(index);
+        for (; index < cells.size() && start < endColumn; index++) {
+            Cell cell = cells.get(index);
+            int end = start + cell.num_repeated;
+            GroupCell group = cell.getGroup();
+            Object value = group != null ? group.getCell().getValue() : cell.getValue();
+            if (value instanceof Number) {
+                long length = Math.min(end, endColumn) - Math.max(start, column);
+                stats.add(((Number) value).doubleValue(), length * times);
+            }
+            start = end;
+        }
+    }
+
+    /*
+        Sets a number in a packed row. NaN empties the cell.
+     */
+    void setDouble(int column, double value)
+    {
+        if (column >= width)
+            width = column + 1;
+        if (Double.isNaN(value)) {
+            if (column < numbers.length)
+                present[column >> 6] &= ~(1L << column);
+            return;
+        }
+
+        if (column >= numbers.length) {
+            int length = Math.min(width, Math.max(column + 1, numbers.length * 2));
+            numbers = Arrays.copyOf(numbers, length);
+            present = Arrays.copyOf(present, (length + 63) >> 6);
+        }
+        numbers[column] = value;
+        present[column >> 6] |= 1L << column;
+    }
+
+    // For a packed row, true if the column has a number
+    boolean isPresent(int column)
+    {
+        return column < numbers.length && (present[column >> 6] & (1L << column)) != 0;
+    }
+
+    /*
+        Builds the run-length cells of a packed row, merging equal consecutive values
+        the same way than Sheet.trim() does.
+     */
+    private TableFieldList<Cell> unpackedCells()
+    {
+        TableFieldList<Cell> result = new TableFieldList<>();
+        Cell last = null;
+        for (int i = 0; i < width; i++) {
+            if (i >= numbers.length) {
+                if (last != null && last.getValue() == null) {
+                    last.num_repeated += width - i;
+                } else {
+                    last = new Cell(null);
+                    last.num_repeated = width - i;
+                    result.add(last);
+                }
+                break;
+            }
+
+            Double value = isPresent(i) ? numbers[i] : null;
+            if (last != null && Objects.equals(last.getValue(), value)) {
+                last.num_repeated++;
+            } else {
+                last = new Cell(value);
+                result.add(last);
+            }
+        }
+        return result;
+    }
 
     @Override
     public Object clone()
     {
         Row row = (Row) super.clone();
         row.row_style = (RowStyle) row_style.clone();
-        // Force list clone
-        row.cells = new ArrayList<>(cells.size());
-        for (Cell cell : cells) row.cells.add((Cell)cell.clone());
+        if (cells == null) {
+            row.numbers = numbers.clone();
+            row.present = present.clone();
+        } else {
+            // Force list clone
+            row.cells = new TableFieldList<>(cells.size());
+            for (Cell cell : cells) row.cells.add((Cell)cell.clone());
+        }
         return row;
     }
 
@@ -24,11 +268,26 @@ class Row extends TableField {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Row row = (Row) o;
-        return row_style.equals(row.row_style) && cells.equals(row.cells);
+        if (!row_style.equals(row.row_style)) return false;
+        if (cells == null && row.cells == null)
+            return width == row.width && packedEquals(row);
+        return (cells != null ? cells : unpackedCells()).equals(row.cells != null ? row.cells : row.unpackedCells());
+    }
+
+    private boolean packedEquals(Row row)
+    {
+        for (int i = 0; i < Math.max(numbers.length, row.numbers.length); i++) {
+            boolean here = isPresent(i);
+            if (here != row.isPresent(i))
+                return false;
+            if (here && Double.doubleToLongBits(numbers[i]) != Double.doubleToLongBits(row.numbers[i]))
+                return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(row_style, cells);
+        return Objects.hash(row_style, cells != null ? cells : unpackedCells());
     }
 }
@@ -0,0 +1,139 @@
+package com.github.miachm.sods;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+
+/**
+ * This class defines how a Spreadsheet is saved in an ODS file.
+ * A default object compresses the file with the default level in the calling thread, like SpreadSheet.save(File).
+ * The mimetype is always the first entry of the file, without compression, as the ODF specification requires.
+ *
+ * <pre>
+ *     SaveOptions options = new SaveOptions();
+ *     options.setCompressionLevel(1);
+ *     options.setParallel(true);
+ *     spread.save(new File("book.ods"), options);
+ * </pre>
+ *
+ * @see SpreadSheet#save(File, SaveOptions)
+ */
+public class SaveOptions {
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private boolean parallel = false;
+    private ForkJoinPool pool = null;
+    private int storedThreshold = 0;
+    private boolean storeCompressedFiles = true;
+
+    /**
+     * Build a default object, which compresses the file sequentially with the default level
+     */
+    public SaveOptions()
+    {
+    }
+
+    /**
+     * Returns the compression level of the entries of the file.
+     *
+     * @return A level from 0 to 9, or -1 for the default level of the compressor
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Sets the compression level of the entries of the file.
+     * Lower levels are faster and produce bigger files, 1 is the fastest which still compresses.
+     *
+     * @param compressionLevel A level from 0 (no compression) to 9 (best compression), or -1 for the default level
+     * @throws IllegalArgumentException If the level is not valid
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < -1 || compressionLevel > 9)
+            throw new IllegalArgumentException("The compression level must be between 0 and 9, or -1: " + compressionLevel);
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Determines if the entries are compressed in parallel or not.
+     *
+     * @return True if the entries are compressed in parallel
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Enables or disables the parallel compression of the entries.
+     *
+     * In parallel mode, each block of 128 KB of an entry is compressed in its own task, using the end of the previous
+     * block as dictionary. The file is a regular ODS file, a little bigger than a sequential one.
+     * Small files, or machines with a single core, don't get any benefit.
+     *
+     * @param parallel True for compressing the entries in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns the pool used in parallel mode.
+     *
+     * @return The pool, by default the common pool
+     */
+    public ForkJoinPool getPool() {
+        return pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Sets the pool used in parallel mode.
+     *
+     * @param pool The pool which will compress the blocks. Null for using the common pool
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns the size under which the entries are stored without compression.
+     *
+     * @return The size in bytes, 0 if every entry is compressed
+     */
+    public int getStoredThreshold() {
+        return storedThreshold;
+    }
+
+    /**
+     * Entries smaller than this size are stored without compression.
+     * Deflate saves little or nothing in very small entries, and stored entries can be read without inflating them.
+     * It applies to the entries whose size is known before writing them, content.xml is always compressed.
+     *
+     * @param storedThreshold The size in bytes, 0 for compressing every entry
+     * @throws IllegalArgumentException If the size is negative
+     */
+    public void setStoredThreshold(int storedThreshold) {
+        if (storedThreshold < 0)
+            throw new IllegalArgumentException("The threshold can't be negative: " + storedThreshold);
+        this.storedThreshold = storedThreshold;
+    }
+
+    /**
+     * Determines if the additional files which are already compressed are stored or compressed again.
+     *
+     * @return True if they are stored
+     */
+    public boolean isStoreCompressedFiles() {
+        return storeCompressedFiles;
+    }
+
+    /**
+     * Stores the additional files which are already compressed (images, audio, video, archives), by their extension,
+     * instead of compressing them again, which takes time and doesn't reduce their size. Enabled by default.
+     * The entries copied from a loaded file keep their original compression.
+     *
+     * @param storeCompressedFiles True for storing the compressed files
+     * @see SpreadSheet#setAdditionalFile(String, String, byte[])
+     */
+    public void setStoreCompressedFiles(boolean storeCompressedFiles) {
+        this.storeCompressedFiles = storeCompressedFiles;
+    }
+}
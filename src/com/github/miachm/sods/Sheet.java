@@ -13,14 +13,26 @@ import java.util.function.Supplier;
  */
 public class Sheet implements Cloneable,Comparable<Sheet> {
 
-    List<Column> columns = new ArrayList<>();
-    List<Row> rows = new ArrayList<>();
+    TableFieldList<Column> columns = new TableFieldList<>();
+    TableFieldList<Row> rows = new TableFieldList<>();
     private String name;
     private int numColumns = 0;
     private int numRows = 0;
     private boolean isHidden = false;
     private String hashed_password = null;
     private String hash_algorithm = null;
+    // Shared styles of the cells. OdsWritter uses it to declare them without traversing every cell.
+    private final StylePool stylePool = new StylePool();
+    /*
+        XML of the sheet in the file which was loaded, while the sheet is not modified (see LoadOptions.setIncrementalSave()).
+        Every change marks the sheet as dirty, which discards it.
+     */
+    private OriginalContent originalContent = null;
+    private byte[] originalXml = null;
+    // The engine which keeps the formulas of the sheet up to date, once SpreadSheet.recalculate() is called
+    FormulaEngine formulas = null;
+    // The indexes of the columns created by createIndex(), by column. Null if there isn't any
+    private TreeMap<Integer, ColumnIndex> indexes = null;
 
     /**
      * Create an empty sheet with a given name.
@@ -74,6 +86,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             throw new IllegalArgumentException("Howmany can not be negative: " + howmany);
         if (howmany == 0)
             return;
+        markDirty();
         Row row = new Row();
         row.num_repeated = howmany;
         rows.add(row);
@@ -99,16 +112,14 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             throw new IllegalArgumentException("Howmany can not be negative: " + howmany);
         if (howmany == 0)
             return;
+        markDirty();
 
         Column column = new Column();
         column.num_repeated = howmany;
         columns.add(column);
         numColumns += howmany;
-        for (Row row : rows) {
-            Cell cell = new Cell();
-            cell.num_repeated = howmany;
-            row.cells.add(cell);
-        }
+        for (Row row : rows)
+            row.appendCells(howmany);
     }
 
     /**
@@ -120,10 +131,12 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
 
     @Override
     public Object clone() throws CloneNotSupportedException {
-        return super.clone();
+        Sheet sheet = (Sheet) super.clone();
+        sheet.indexes = null;
+        return sheet;
     }
 
-    private <T extends TableField> void deleteFields(List<T> fields, int index, int howmany)
+    private <T extends TableField> void deleteFields(TableFieldList<T> fields, int index, int howmany)
     {
         Pair<Integer,Integer> pair = getIndexDelete(fields, index);
         if (pair.first == fields.size())
@@ -134,7 +147,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             T other = (T) item.clone();
 
             int aux = item.num_repeated;
-            item.num_repeated = pair.second;
+            fields.setRepeated(pair.first, pair.second);
             other.num_repeated = aux - pair.second;
             fields.add(pair.first + 1, other);
             pair.first++;
@@ -144,7 +157,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
         while (howmany > 0) {
             T item = fields.get(pair.first);
             if (howmany < item.num_repeated) {
-                item.num_repeated -= howmany;
+                fields.setRepeated(pair.first, item.num_repeated - howmany);
                 howmany = 0;
             }
             else {
@@ -154,13 +167,13 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
         }
     }
 
-    private <T extends TableField> T getFieldForEditing(List<T> fields, Supplier<T> fieldSupplier, int index)
+    private <T extends TableField> T getFieldForEditing(TableFieldList<T> fields, Supplier<T> fieldSupplier, int index)
     {
         List<T> list = getFieldForEditingRange(fields, fieldSupplier, index, 1);
         return list.get(0);
     }
 
-    private <T extends TableField> List<T> getFieldForEditingRange(List<T> fields, Supplier<T> fieldSupplier, int index, int howmany)
+    private <T extends TableField> List<T> getFieldForEditingRange(TableFieldList<T> fields, Supplier<T> fieldSupplier, int index, int howmany)
     {
         Pair<Integer,Integer> pair = getIndexDelete(fields, index);
 
@@ -176,7 +189,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
                 T other = (T) item.clone();
 
                 int aux = item.num_repeated;
-                item.num_repeated = pair.second;
+                fields.setRepeated(pair.first, pair.second);
                 other.num_repeated = aux - pair.second;
                 fields.add(pair.first + 1, other);
                 pair.first++;
@@ -197,7 +210,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             }
             else {
                 int aux = item.num_repeated;
-                item.num_repeated -= howmany;
+                fields.setRepeated(pair.first, item.num_repeated - howmany);
                 T other = (T) item.clone();
                 other.num_repeated = aux - item.num_repeated;
                 list.add(other);
@@ -215,26 +228,27 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
         return list;
     }
 
-    private <T extends TableField> void insertField(List<T> fields, T value, int index)
+    private <T extends TableField> void insertField(TableFieldList<T> fields, T value, int index)
     {
-        for (int i = 0; i < fields.size(); i++) {
-            T item = fields.get(i);
-            if (index >= item.num_repeated) {
-                index -= item.num_repeated;
-            }
-            else {
-                int cnt = item.num_repeated;
-                item.num_repeated = item.num_repeated - index;
-                fields.add(i, value);
+        Pair<Integer,Integer> pair = getIndexDelete(fields, index);
+        int i = pair.first;
+        if (i == fields.size()) {
+            fields.add(value);
+            return;
+        }
 
-                T other = (T) item.clone();
-                other.num_repeated = cnt - item.num_repeated;
-                if (other.num_repeated > 0)
-                    fields.add(i+1, other);
-                return;
-            }
+        if (pair.second == 0) {
+            fields.add(i, value);
+            return;
         }
-        fields.add(value);
+
+        // The run is split, the new field goes between both parts
+        T item = fields.get(i);
+        T other = (T) item.clone();
+        other.num_repeated = item.num_repeated - pair.second;
+        fields.setRepeated(i, pair.second);
+        fields.add(i+1, value);
+        fields.add(i+2, other);
     }
 
     /**
@@ -267,12 +281,16 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             throw new IllegalArgumentException("The number of columns can't be negative");
         if (howmany == 0)
             return;
+        markDirty();
+        cellsMoving(Integer.MAX_VALUE, column);
 
         deleteFields(columns, column, howmany);
         for (Row row : rows)
-            deleteFields(row.cells, column, howmany);
+            deleteFields(row.getCells(), column, howmany);
 
         numColumns -= howmany;
+        moveIndexes(column, column + howmany, -howmany);
+        structureChanged();
     }
 
     /**
@@ -303,9 +321,16 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             throw new IllegalArgumentException("The number of rows can't be negative");
         if (howmany == 0)
             return;
+        markDirty();
+        cellsMoving(row, Integer.MAX_VALUE);
 
         deleteFields(rows, row, howmany);
         numRows -= howmany;
+        if (indexes != null) {
+            for (ColumnIndex index : indexes.values())
+                index.deleteRows(row, howmany);
+        }
+        structureChanged();
     }
 
     /**
@@ -368,6 +393,133 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
         return numRows;
     }
 
+    /**
+     * Creates an index of the values of a column, which makes findRows() and findRow() faster on it.
+     * The index is updated while the sheet is modified, so it has a cost on every change of the column.
+     * Nothing is done if the column already has an index.
+     *
+     * Numbers are compared as doubles, whatever their class is, and texts are case sensitive.
+     * Merged cells are indexed with the value of the cell which owns the group.
+     *
+     * @param column The index of the column
+     * @throws IndexOutOfBoundsException If the column is out of bounds
+     * @see #dropIndex(int)
+     */
+    public void createIndex(int column) {
+        checkIndexColumn(column);
+        if (indexes == null)
+            indexes = new TreeMap<>();
+        indexes.computeIfAbsent(column, key -> new ColumnIndex(this, key));
+    }
+
+    /**
+     * Removes the index of a column, if it has one
+     *
+     * @param column The index of the column
+     * @see #createIndex(int)
+     */
+    public void dropIndex(int column) {
+        if (indexes != null) {
+            indexes.remove(column);
+            if (indexes.isEmpty())
+                indexes = null;
+        }
+    }
+
+    /**
+     * Determines if a column has an index, created by createIndex()
+     *
+     * @param column The index of the column
+     * @return True if the column has an index
+     */
+    public boolean hasIndex(int column) {
+        return indexes != null && indexes.containsKey(column);
+    }
+
+    /**
+     * Finds the rows where a column contains a value.
+     * Columns without an index are scanned, see createIndex().
+     *
+     * @param column The index of the column
+     * @param value The value to find. Numbers are compared as doubles, 1 finds 1.0
+     * @return The indexes of the rows, in ascending order. It can be empty
+     * @throws IndexOutOfBoundsException If the column is out of bounds
+     * @throws NullPointerException If the value is null
+     */
+    public int[] findRows(int column, Object value) {
+        if (value == null)
+            throw new NullPointerException("The value can't be null");
+        ColumnIndex index = getColumnIndex(column);
+        return index != null ? index.find(value) : ColumnIndex.scan(this, column, value);
+    }
+
+    /**
+     * Finds the first row where a column contains a value, like VLOOKUP does with an exact match.
+     * Columns without an index are scanned up to the first match, see createIndex().
+     *
+     * @param column The index of the column
+     * @param value The value to find. Numbers are compared as doubles, 1 finds 1.0
+     * @return The index of the row, -1 if no row contains the value
+     * @throws IndexOutOfBoundsException If the column is out of bounds
+     * @throws NullPointerException If the value is null
+     */
+    public int findRow(int column, Object value) {
+        if (value == null)
+            throw new NullPointerException("The value can't be null");
+        ColumnIndex index = getColumnIndex(column);
+        return index != null ? index.findFirst(value) : ColumnIndex.scanFirst(this, column, value);
+    }
+
+    /**
+     * Finds the rows where a column contains a number between two limits, both included.
+     * Columns without an index are scanned, see createIndex().
+     *
+     * @param column The index of the column
+     * @param from The lowest number
+     * @param to The highest number
+     * @return The indexes of the rows, in ascending order. It can be empty
+     * @throws IndexOutOfBoundsException If the column is out of bounds
+     * @throws IllegalArgumentException If from is greater than to
+     */
+    public int[] findRows(int column, double from, double to) {
+        if (Double.compare(from + 0.0, to + 0.0) > 0)
+            throw new IllegalArgumentException("The lowest number (" + from + ") is greater than the highest one (" + to + ")");
+        ColumnIndex index = getColumnIndex(column);
+        return index != null ? index.findNumbers(from, to) : ColumnIndex.scanNumbers(this, column, from, to);
+    }
+
+    /**
+     * Finds the rows where a column contains a text between two limits, both included.
+     * The texts are compared with String.compareTo(). Columns without an index are scanned, see createIndex().
+     *
+     * @param column The index of the column
+     * @param from The lowest text
+     * @param to The highest text
+     * @return The indexes of the rows, in ascending order. It can be empty
+     * @throws IndexOutOfBoundsException If the column is out of bounds
+     * @throws IllegalArgumentException If from is greater than to
+     * @throws NullPointerException If from or to are null
+     */
+    public int[] findRows(int column, String from, String to) {
+        if (from == null || to == null)
+            throw new NullPointerException("The limits can't be null");
+        if (from.compareTo(to) > 0)
+            throw new IllegalArgumentException("The lowest text (" + from + ") is greater than the highest one (" + to + ")");
+        ColumnIndex index = getColumnIndex(column);
+        return index != null ? index.findTexts(from, to) : ColumnIndex.scanTexts(this, column, from, to);
+    }
+
+    // The index of the column, null if it doesn't have one and it must be scanned
+    private ColumnIndex getColumnIndex(int column) {
+        checkIndexColumn(column);
+        return indexes != null ? indexes.get(column) : null;
+    }
+
+    private void checkIndexColumn(int column) {
+        if (column < 0 || column >= getMaxColumns())
+            throw new IndexOutOfBoundsException("Column " + column + " is out of bounds (" + getMaxColumns() + ")");
+    }
+
     /**
      * Obtains the name of this sheet
      *
@@ -445,47 +597,175 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
         return getRange(row, column, numRows, numColumns);
     }
 
-    private Pair<Integer,Integer> getIndexDelete(List<? extends TableField> fields, int index)
+    private Pair<Integer,Integer> getIndexDelete(TableFieldList<? extends TableField> fields, int index)
     {
-        if (fields.isEmpty()) {
-            return new Pair<>(0, index);
-        }
+        return fields.locate(index);
+    }
+
+    private int getIndex(TableFieldList<? extends TableField> fields, int index)
+    {
+        return getIndexDelete(fields, index).first;
+    }
 
-        final int fieldsSize = fields.size();
+    StylePool getStylePool()
+    {
+        return stylePool;
+    }
 
-        int fieldIndex = 0;
-        int remainingIndex = index;
+    /*
+        The row which contains the position, without splitting its run.
+        It must not be modified, since it could be shared by several rows.
+     */
+    Row getRowForReading(int row)
+    {
+        return rows.get(rows.runIndexOf(row));
+    }
 
-        for (TableField item : fields) {
-            if (remainingIndex >= item.num_repeated) {
-                remainingIndex -= item.num_repeated;
-                fieldIndex++;
-            } else {
-                return new Pair<>(fieldIndex, remainingIndex);
-            }
+    Row getRowForEditing(int row)
+    {
+        return getFieldForEditing(rows, Row::new, row);
+    }
 
-            if (fieldIndex >= fieldsSize) {
-                break;
-            }
-        }
+    // The runs of rows which cover [row, row + howmany), split at both ends
+    List<Row> getRowsForEditing(int row, int howmany)
+    {
+        return getFieldForEditingRange(rows, Row::new, row, howmany);
+    }
 
-        return new Pair<>(fieldIndex, remainingIndex);
+    /*
+        Packs the rows which only contain plain numbers, see Row.pack()
+     */
+    void packRows()
+    {
+        for (Row row : rows)
+            row.pack();
     }
 
-    private int getIndex(List<? extends TableField> fields, int index)
+    void markDirty()
     {
-        return getIndexDelete(fields, index).first;
+        originalContent = null;
+        originalXml = null;
+    }
+
+    /*
+        The values or formulas of an area were modified, the formulas which depend on it are evaluated again.
+     */
+    void contentChanged(int row, int column, int numRows, int numColumns)
+    {
+        addToIndexes(row, column, numRows, numColumns);
+        if (formulas != null)
+            formulas.contentChanged(this, row, column, numRows, numColumns);
+    }
+
+    /*
+        The values of an area are going to be modified, they are removed from the indexes of its columns.
+        addToIndexes() adds the new ones once they are set.
+     */
+    void removeFromIndexes(int row, int column, int numRows, int numColumns)
+    {
+        if (indexes == null)
+            return;
+        for (Map.Entry<Integer, ColumnIndex> entry : indexes.subMap(column, column + numColumns).entrySet())
+            entry.getValue().remove(this, entry.getKey(), row, numRows);
+    }
+
+    void addToIndexes(int row, int column, int numRows, int numColumns)
+    {
+        if (indexes == null)
+            return;
+        for (Map.Entry<Integer, ColumnIndex> entry : indexes.subMap(column, column + numColumns).entrySet())
+            entry.getValue().add(this, entry.getKey(), row, numRows);
+    }
+
+    /*
+        The columns [from, to) were deleted, or inserted if they are the same, and the columns from to were moved.
+        The indexes of the deleted columns are dropped.
+     */
+    private void moveIndexes(int from, int to, int offset)
+    {
+        if (indexes == null)
+            return;
+        indexes.subMap(from, to).clear();
+        NavigableMap<Integer, ColumnIndex> moved = new TreeMap<>(indexes.tailMap(to));
+        indexes.tailMap(to).clear();
+        for (Map.Entry<Integer, ColumnIndex> entry : moved.entrySet())
+            indexes.put(entry.getKey() + offset, entry.getValue());
+        if (indexes.isEmpty())
+            indexes = null;
+    }
+
+    // The cells from the row, or from the column, on are going to move, the formulas which read them are frozen
+    private void cellsMoving(int row, int column)
+    {
+        if (formulas != null)
+            formulas.freeze(this, row, column);
+    }
+
+    // The positions of the cells or the name of the sheet changed, the formulas have to be parsed again
+    void structureChanged()
+    {
+        if (formulas != null)
+            formulas.invalidate();
+    }
+
+    // True if the sheet doesn't have its original XML, because it was modified or it wasn't loaded from a file
+    boolean isDirty()
+    {
+        return originalXml == null;
+    }
+
+    void setOriginalXml(OriginalContent content, byte[] xml)
+    {
+        originalContent = content;
+        originalXml = xml;
+    }
+
+    OriginalContent getOriginalContent()
+    {
+        return originalContent;
+    }
+
+    byte[] getOriginalXml()
+    {
+        return originalXml;
     }
 
     Cell getCell(int row,int column){
         Row item;
-        if (row == numRows-1) {
+        if (row == numRows-1 && rows.get(rows.size()-1).num_repeated == 1) {
             item = rows.get(rows.size()-1);
         }
         else {
             item = getFieldForEditing(rows, Row::new, row);
         }
-        return getFieldForEditing(item.cells, Cell::new, column);
+        return getFieldForEditing(item.getCells(), Cell::new, column);
+    }
+
+    /*
+        The cells [column, column + howmany) of a row, each one with num_repeated == 1, ready to be edited.
+        Unlike calling getCell() for every column, the row is looked up once and its runs are split
+        and expanded in a single pass, so editing a whole range is linear in its number of cells.
+     */
+    List<Cell> getCellsForEditing(int row, int column, int howmany)
+    {
+        TableFieldList<Cell> cells = getRowForEditing(row).getCells();
+        List<Cell> runs = getFieldForEditingRange(cells, Cell::new, column, howmany);
+        if (runs.size() == howmany)
+            return runs;
+
+        int start = cells.runIndexOf(column);
+        List<Cell> expanded = new ArrayList<>(howmany);
+        for (Cell run : runs) {
+            int repeated = run.num_repeated;
+            run.num_repeated = 1;
+            expanded.add(run);
+            for (int i = 1; i < repeated; i++)
+                expanded.add((Cell) run.clone());
+        }
+        // The runs are consecutive in the list, they are replaced at once
+        cells.subList(start, start + runs.size()).clear();
+        cells.addAll(start, expanded);
+        return expanded;
     }
 
     /**
@@ -496,6 +776,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
     public void hideRow(int row)
     {
         checkRowRange(row);
+        markDirty();
         Row item = getFieldForEditing(rows, Row::new, row);
         item.row_style.setHidden(true);
     }
@@ -520,6 +801,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
 
         checkRowRange(row);
         checkRowRange(row + howmany - 1);
+        markDirty();
 
         List<Row> list = getFieldForEditingRange(rows, Row::new, row, howmany);
         for (Row item : list)
@@ -534,6 +816,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
     public void hideColumn(int column)
     {
         checkColumnRange(column);
+        markDirty();
         Column item = getFieldForEditing(columns, Column::new, column);
         item.column_style.setHidden(true);
     }
@@ -558,6 +841,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
 
         checkColumnRange(column);
         checkColumnRange(column + howmany - 1);
+        markDirty();
 
         List<Column> list = getFieldForEditingRange(columns, Column::new, column, howmany);
         for (Column item : list)
@@ -607,6 +891,8 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             throw new IllegalArgumentException("Number of columns can't be negative");
         if (howmany == 0)
             return;
+        markDirty();
+        cellsMoving(Integer.MAX_VALUE, columnIndex);
 
         Column column = new Column();
         column.num_repeated = howmany;
@@ -616,8 +902,10 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
         for (Row row : rows) {
             Cell cell = new Cell();
             cell.num_repeated = howmany;
-            insertField(row.cells, cell, columnIndex);
+            insertField(row.getCells(), cell, columnIndex);
         }
+        moveIndexes(columnIndex, columnIndex, howmany);
+        structureChanged();
     }
 
     /**
@@ -652,11 +940,18 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             throw new IllegalArgumentException("Number of rows can't be negative");
         if (howmany == 0)
             return;
+        markDirty();
+        cellsMoving(rowIndex, Integer.MAX_VALUE);
 
         Row row = new Row();
         row.num_repeated = howmany;
         insertField(rows, row, rowIndex);
         numRows += howmany;
+        if (indexes != null) {
+            for (ColumnIndex index : indexes.values())
+                index.insertRows(rowIndex, howmany);
+        }
+        structureChanged();
     }
 
     /**
@@ -686,6 +981,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             if (width < 0.0)
                 throw new IllegalArgumentException("Width can't be negative!");
         }
+        markDirty();
         Column item = getFieldForEditing(columns, Column::new, column);
         item.column_style.setWidth(width);
     }
@@ -707,6 +1003,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             return;
         checkColumnRange(column);
         checkColumnRange(column + numColumns - 1);
+        markDirty();
 
         List<Column> list = getFieldForEditingRange(columns, Column::new, column, numColumns);
         for (Column item : list)
@@ -728,6 +1025,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             if (height < 0.0)
                 throw new IllegalArgumentException("Height can't be negative!");
         }
+        markDirty();
         Row item = getFieldForEditing(rows, Row::new, row);
         item.row_style.setHeight(height);
     }
@@ -748,6 +1046,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
             return;
         checkRowRange(row);
         checkRowRange(row + numRows - 1);
+        markDirty();
         if (numRows == 1 && row == (rows.size() - 1)) {
             rows.get(rows.size()-1).row_style.setHeight(height);
         }
@@ -768,6 +1067,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
     public void showRow(int row)
     {
         checkRowRange(row);
+        markDirty();
         Row item = getFieldForEditing(rows, Row::new, row);
         item.row_style.setHidden(false);
     }
@@ -781,6 +1081,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
     public void showColumn(int column)
     {
         checkColumnRange(column);
+        markDirty();
         Column item = getFieldForEditing(columns, Column::new, column);
         item.column_style.setHidden(false);
     }
@@ -843,6 +1144,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
      */
 
     public void hideSheet() {
+        markDirty();
         isHidden = true;
     }
 
@@ -850,6 +1152,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
      * Mark this sheet as visible
     */
     public void showSheet() {
+        markDirty();
         isHidden = false;
     }
 
@@ -883,6 +1186,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
      */
     public void setDefaultColumnCellStyle(int column, Style defaultColumnCellStyle) {
         checkColumnRange(column);
+        markDirty();
         Column item = getFieldForEditing(columns, Column::new, column);
         item.column_style.setDefaultCellStyle(defaultColumnCellStyle);
     }
@@ -915,30 +1219,54 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
     public void trim()
     {
         trim(columns);
-        for (Row row : rows)
-            trim(row.cells);
+        for (Row row : rows) {
+            if (!row.isPacked())
+                trim(row.getCells());
+        }
         trim(rows);
+        structureChanged();
     }
 
-    private <T extends TableField> void trim(List<T> fields)
+    private <T extends TableField> void trim(TableFieldList<T> fields)
     {
         T last_item = null;
+        int last_index = 0;
         for (int i = 0; i < fields.size(); i++) {
             T item = fields.get(i);
             if (last_item != null) {
-                if (item.equals(last_item)) {
-                    last_item.num_repeated += item.num_repeated;
+                if (sameContent(item, last_item)) {
+                    fields.setRepeated(last_index, last_item.num_repeated + item.num_repeated);
                     fields.remove(i);
                     i--;
                 }
-                else
+                else {
                     last_item = item;
+                    last_index = i;
+                }
             }
-            else
+            else {
                 last_item = item;
+                last_index = i;
+            }
         }
     }
 
+    /*
+        Cells include num_repeated in equals(), so two runs of the same cell with different
+        lengths would never be merged. The length is matched temporarily for the comparison.
+     */
+    private static <T extends TableField> boolean sameContent(T item, T other)
+    {
+        if (item.num_repeated == other.num_repeated)
+            return item.equals(other);
+
+        int repeated = item.num_repeated;
+        item.num_repeated = other.num_repeated;
+        boolean result = item.equals(other);
+        item.num_repeated = repeated;
+        return result;
+    }
+
     /**
      * Determines if this sheet is protected by a password or not
      * @return True if it's protected
@@ -956,13 +1284,14 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
      * @throws NoSuchAlgorithmException if your java installation doesn't have SHA-256 hash encryption
      */
     public void setPassword(String key) throws NoSuchAlgorithmException {
+        if (key != null && key.isEmpty())
+            throw new IllegalArgumentException("Key is empty");
+        markDirty();
         if (key == null) {
             this.hashed_password = null;
             this.hash_algorithm = null;
             return;
         }
-        if (key.isEmpty())
-            throw new IllegalArgumentException("Key is empty");
 
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         this.hashed_password = Base64.getEncoder().encodeToString(digest.digest(
@@ -972,6 +1301,7 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
     }
 
     void setRawPassword(String hashed_password, String algorithm) {
+        markDirty();
         if (algorithm == null)
             algorithm = "http://www.w3.org/2000/09/xmldsig#sha1";
 
@@ -994,7 +1324,11 @@ public class Sheet implements Cloneable,Comparable<Sheet> {
      * @param newName The new name of the sheet
      */
     public void setName(String newName) {
+        markDirty();
+        if (formulas != null && !Objects.equals(name, newName))
+            formulas.freeze(this);
         this.name = newName;
+        structureChanged();
     }
 
     /**
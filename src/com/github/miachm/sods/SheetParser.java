@@ -3,18 +3,25 @@ package com.github.miachm.sods;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
 
 class SheetParser {
-    private static final int BUGGED_COUNT = 10 * 1000;
+    static final int BUGGED_COUNT = 10 * 1000;
     private final Sheet sheet;
     private final StylesParser stylesParser;
     private final Map<Integer, Style> columnDefaultStyles = new HashMap<>();
     private final Map<Integer, Style> rowDefaultStyles = new HashMap<>();
     private final Set<Pair<Vector, Vector>> groupCells = new HashSet<>();
+    private final LoadOptions options;
 
     public SheetParser(Sheet sheet, StylesParser stylesParser) {
+        this(sheet, stylesParser, new LoadOptions());
+    }
+
+    public SheetParser(Sheet sheet, StylesParser stylesParser, LoadOptions options) {
         this.sheet = sheet;
         this.stylesParser = stylesParser;
+        this.options = options;
     }
 
     public void parseSheet(XmlReaderInstance reader) {
@@ -36,12 +43,14 @@ class SheetParser {
             XmlReaderInstance instance = reader.nextElement("table:table-column", "table:table-row");
             if (instance == null) break;
 
-            String styleName = instance.getAttribValue("table:default-cell-style-name");
+            String styleName = options.isValuesOnly() ? null : instance.getAttribValue("table:default-cell-style-name");
             Style style = styleName != null ? stylesParser.getCellStyle(styleName) : null;
 
             if (instance.getTag().equals("table:table-column")) {
                 parseColumnProperties(instance, style);
             } else if (instance.getTag().equals("table:table-row")) {
+                // Rows after the window are not loaded
+                if (rowCount >= options.getEndRow()) break;
                 if (style != null) rowDefaultStyles.put(rowCount, style);
 
                 int numRows = 1;
@@ -53,18 +62,15 @@ class SheetParser {
                     } catch (NumberFormatException ignored) {}
                 }
 
-                sheet.appendRows(numRows);
-
-                String visibility = instance.getAttribValue("table:visibility");
-                if ("collapse".equals(visibility)) sheet.hideRows(sheet.getMaxRows() - numRows, numRows);
-
-                String rowStyleName = instance.getAttribValue("table:style-name");
-                if (rowStyleName != null) {
-                    RowStyle rowStyle = stylesParser.getRowStyle(rowStyleName);
-                    if (rowStyle != null) sheet.setRowHeights(sheet.getMaxRows() - numRows, numRows, rowStyle.getHeight());
+                numRows = Math.min(numRows, options.getEndRow() - rowCount);
+                // Rows before the window are loaded empty
+                int skippedRows = Math.max(0, Math.min(numRows, options.getFirstRow() - rowCount));
+                if (skippedRows > 0)
+                    appendRows(instance, skippedRows);
+                if (numRows > skippedRows) {
+                    appendRows(instance, numRows - skippedRows);
+                    processCells(instance, numRows - skippedRows);
                 }
-
-                processCells(instance, numRows);
                 rowCount += numRows;
             }
         }
@@ -72,8 +78,28 @@ class SheetParser {
         for (Pair<Vector, Vector> pair : groupCells) {
             Vector cord = pair.first;
             Vector length = pair.second;
-            Range range = sheet.getRange(cord.getX(), cord.getY(), length.getX(), length.getY());
-            range.merge();
+            // A window could cut the merged cells
+            int rows = Math.min(length.getX(), sheet.getMaxRows() - cord.getX());
+            int columns = Math.min(length.getY(), sheet.getMaxColumns() - cord.getY());
+            if (rows > 1 || columns > 1) {
+                Range range = sheet.getRange(cord.getX(), cord.getY(), rows, columns);
+                range.merge();
+            }
+        }
+
+        sheet.packRows();
+    }
+
+    private void appendRows(XmlReaderInstance instance, int numRows) {
+        sheet.appendRows(numRows);
+
+        String visibility = instance.getAttribValue("table:visibility");
+        if ("collapse".equals(visibility)) sheet.hideRows(sheet.getMaxRows() - numRows, numRows);
+
+        String rowStyleName = options.isValuesOnly() ? null : instance.getAttribValue("table:style-name");
+        if (rowStyleName != null) {
+            RowStyle rowStyle = stylesParser.getRowStyle(rowStyleName);
+            if (rowStyle != null) sheet.setRowHeights(sheet.getMaxRows() - numRows, numRows, rowStyle.getHeight());
         }
     }
 
@@ -92,6 +118,9 @@ class SheetParser {
         }
 
         int index = sheet.getMaxColumns();
+        // Columns after the window are not loaded
+        numColumns = Math.min(numColumns, options.getEndColumn() - index);
+        if (numColumns <= 0) return;
         sheet.appendColumns(numColumns);
 
         if (style != null && !style.isDefault()) {
@@ -103,7 +132,7 @@ class SheetParser {
 
         if (areHidden) sheet.hideColumns(index, numColumns);
 
-        String columnStyleName = instance.getAttribValue("table:style-name");
+        String columnStyleName = options.isValuesOnly() ? null : instance.getAttribValue("table:style-name");
         if (columnStyleName != null) {
             ColumnStyle columnStyle = stylesParser.getColumnStyle(columnStyleName);
             if (columnStyle != null) sheet.setColumnWidths(sheet.getMaxColumns() - numColumns, numColumns, columnStyle.getWidth());
@@ -112,7 +141,7 @@ class SheetParser {
 
     private void processCells(XmlReaderInstance reader, int numberRowsRepeated) {
         int column = 0;
-        while (reader.hasNext()) {
+        while (reader.hasNext() && column < options.getEndColumn()) {
             int numberColumnsRepeated = 1;
             Object lastCellValue = null;
             Style lastStyle = null;
@@ -132,7 +161,7 @@ class SheetParser {
             String columnsSpanned = instance.getAttribValue("table:number-columns-spanned");
             if (columnsSpanned != null) columns = Integer.parseInt(columnsSpanned);
 
-            if (numberRowsRepeated == 1 && (rows != 1 || columns != 1)) {
+            if (numberRowsRepeated == 1 && (rows != 1 || columns != 1) && column >= options.getFirstColumn()) {
                 Pair<Vector, Vector> pair = new Pair<>();
                 pair.first = new Vector(sheet.getMaxRows() - 1, column);
                 pair.second = new Vector(rows, columns);
@@ -142,43 +171,67 @@ class SheetParser {
             int positionX = sheet.getMaxRows() - numberRowsRepeated;
             int positionY = column;
 
-            OfficeValueType valueType = OfficeValueType.ofReader(instance);
-            Object value = valueType.read(instance);
-
             String raw = instance.getAttribValue("table:number-columns-repeated");
             if (raw != null) {
                 numberColumnsRepeated = Integer.parseInt(raw);
                 if (numberColumnsRepeated > BUGGED_COUNT) continue;
             }
 
-            if (positionY + numberColumnsRepeated > sheet.getMaxColumns()) {
-                sheet.appendColumns(positionY + numberColumnsRepeated - sheet.getMaxColumns());
+            // Part of the cells inside of the window
+            int firstColumn = Math.max(positionY, options.getFirstColumn());
+            int endColumn = (int) Math.min((long) positionY + numberColumnsRepeated, options.getEndColumn());
+            if (firstColumn >= endColumn) {
+                column += numberColumnsRepeated;
+                continue;
             }
 
-            Range range = sheet.getRange(positionX, positionY, numberRowsRepeated, numberColumnsRepeated);
+            if (endColumn > sheet.getMaxColumns()) {
+                sheet.appendColumns(endColumn - sheet.getMaxColumns());
+            }
+
+            OfficeValueType valueType = OfficeValueType.ofReader(instance);
+            Object value = valueType.read(instance);
+
+            Range range = sheet.getRange(positionX, firstColumn, numberRowsRepeated, endColumn - firstColumn);
 
-            String formula = instance.getAttribValue("table:formula");
-            if (formula != null) range.setFormula(formula);
+            if (!options.isValuesOnly()) {
+                String formula = instance.getAttribValue("table:formula");
+                if (formula != null) range.setFormula(formula);
+            }
             range.setValue(value);
 
-            Style style = stylesParser.getCellStyle(instance.getAttribValue("table:style-name"));
-            if (style == null) style = columnDefaultStyles.get(column);
-            if (style == null) style = rowDefaultStyles.get(sheet.getMaxRows() - 1);
-            if (style != null && !style.isDefault()) range.setStyle(style);
+            if (!options.isValuesOnly()) {
+                Style style = stylesParser.getCellStyle(instance.getAttribValue("table:style-name"));
+                if (style == null) style = columnDefaultStyles.get(column);
+                if (style == null) style = rowDefaultStyles.get(sheet.getMaxRows() - 1);
+                if (style != null && !style.isDefault()) range.setStyle(style);
+            }
 
-            readCellText(instance, range);
+            String text = readCellText(instance, options.isValuesOnly() ? annotation -> {} : range::setAnnotation);
+            Object textValue = resolveTextValue(value, text);
+            if (textValue != value) range.setValue(textValue);
             column += numberColumnsRepeated;
         }
     }
 
-    private void readCellText(XmlReaderInstance cellReader, Range range) {
-        StringBuffer s = new StringBuffer();
+    /*
+        The text content of a cell replaces its value only when the value is empty or a string
+     */
+    static Object resolveTextValue(Object value, String text) {
+        if (text.length() > 0 && (value == null || value instanceof String)) {
+            return text;
+        }
+        return value;
+    }
+
+    static String readCellText(XmlReaderInstance cellReader, Consumer<OfficeAnnotation> annotations) {
+        StringBuilder s = new StringBuilder();
         boolean firstTextElement = true;
 
         XmlReaderInstance textElement;
         while ((textElement = cellReader.nextElement("text:p", "text:h", "office:annotation")) != null) {
             if (textElement.getTag().equals("office:annotation")) {
-                range.setAnnotation(getOfficeAnnotation(textElement));
+                annotations.accept(getOfficeAnnotation(textElement));
                 continue;
             }
 
@@ -205,13 +258,10 @@ class SheetParser {
             }
         }
 
-        Object value = range.getValue();
-        if (s.length() > 0 && (value == null || value instanceof String)) {
-            range.setValue(s.toString());
-        }
+        return s.toString();
     }
 
-    private OfficeAnnotation getOfficeAnnotation(XmlReaderInstance reader) {
+    private static OfficeAnnotation getOfficeAnnotation(XmlReaderInstance reader) {
         OfficeAnnotationBuilder annotation = new OfficeAnnotationBuilder();
         StringBuilder msg = new StringBuilder();
 
@@ -0,0 +1,196 @@
+package com.github.miachm.sods;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A row read by an OdsStreamReader.
+ *
+ * The cells of the row are stored as runs, like the ODS file does. Every run covers
+ * a number of consecutive columns which share the same value, formula and style.
+ *
+ * @see OdsStreamReader
+ */
+public final class SheetRowEvent {
+    private final String sheetName;
+    private final int sheetIndex;
+    private final int row;
+    private final int rowsRepeated;
+    private final List<Integer> columns = new ArrayList<>();
+    private final List<Integer> columnsRepeated = new ArrayList<>();
+    private final List<Object> values = new ArrayList<>();
+    private final List<String> formulas = new ArrayList<>();
+    private final List<Style> styles = new ArrayList<>();
+    private final List<OfficeAnnotation> annotations = new ArrayList<>();
+    private int lastColumnWithValue = -1;
+
+    SheetRowEvent(String sheetName, int sheetIndex, int row, int rowsRepeated)
+    {
+        this.sheetName = sheetName;
+        this.sheetIndex = sheetIndex;
+        this.row = row;
+        this.rowsRepeated = rowsRepeated;
+    }
+
+    void addRun(int column, int repeated, Object value, String formula, Style style, OfficeAnnotation annotation)
+    {
+        columns.add(column);
+        columnsRepeated.add(repeated);
+        values.add(value);
+        formulas.add(formula);
+        styles.add(style);
+        annotations.add(annotation);
+        if (value != null)
+            lastColumnWithValue = column + repeated - 1;
+    }
+
+    /**
+     * Returns the name of the sheet which contains this row
+     *
+     * @return The name of the sheet
+     */
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    /**
+     * Returns the position of the sheet which contains this row, starting in 0
+     *
+     * @return The index of the sheet
+     */
+    public int getSheetIndex() {
+        return sheetIndex;
+    }
+
+    /**
+     * Returns the index of this row in the sheet
+     *
+     * @return The row index, starting in 0
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Returns how many consecutive rows have exactly this content
+     *
+     * @return The number of repetitions, at least 1
+     */
+    public int getRowsRepeated() {
+        return rowsRepeated;
+    }
+
+    /**
+     * Returns the number of runs of cells in this row
+     *
+     * @return The number of runs
+     */
+    public int getNumRuns() {
+        return values.size();
+    }
+
+    /**
+     * Returns the first column covered by a run
+     *
+     * @param run The index of the run
+     * @return The column index, starting in 0
+     * @throws IndexOutOfBoundsException if the run index is invalid
+     */
+    public int getColumn(int run) {
+        return columns.get(run);
+    }
+
+    /**
+     * Returns how many consecutive columns are covered by a run
+     *
+     * @param run The index of the run
+     * @return The number of columns, at least 1
+     * @throws IndexOutOfBoundsException if the run index is invalid
+     */
+    public int getColumnsRepeated(int run) {
+        return columnsRepeated.get(run);
+    }
+
+    /**
+     * Returns the value of a run.
+     * The values could be String, Double, Boolean, OfficeCurrency, OfficePercentage, LocalDate, LocalDateTime or Duration
+     *
+     * @param run The index of the run
+     * @return The value, null for empty cells
+     * @throws IndexOutOfBoundsException if the run index is invalid
+     */
+    public Object getValue(int run) {
+        return values.get(run);
+    }
+
+    /**
+     * Returns the formula of a run
+     *
+     * @param run The index of the run
+     * @return The formula, it can be null
+     * @throws IndexOutOfBoundsException if the run index is invalid
+     */
+    public String getFormula(int run) {
+        return formulas.get(run);
+    }
+
+    /**
+     * Returns the style of a run.
+     * It's safe to manipulate the Style object since is a copy of the original one
+     *
+     * @param run The index of the run
+     * @return The style, it can not be null
+     * @throws IndexOutOfBoundsException if the run index is invalid
+     */
+    public Style getStyle(int run) {
+        Style style = styles.get(run);
+        if (style == null)
+            return new Style();
+        try {
+            return (Style) style.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e.toString());
+        }
+    }
+
+    /**
+     * Returns the annotation of a run
+     *
+     * @param run The index of the run
+     * @return The annotation, or null if it doesn't exist
+     * @throws IndexOutOfBoundsException if the run index is invalid
+     */
+    public OfficeAnnotation getAnnotation(int run) {
+        return annotations.get(run);
+    }
+
+    /**
+     * Returns the values of this row, one per column.
+     * The array ends in the last column which contains a value, so trailing empty cells are not included.
+     *
+     * @return An array of values, empty cells are null
+     */
+    public Object[] getValues() {
+        Object[] result = new Object[lastColumnWithValue + 1];
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            if (value == null)
+                continue;
+            int column = columns.get(i);
+            int end = Math.min(column + columnsRepeated.get(i), result.length);
+            for (int j = column; j < end; j++)
+                result[j] = value;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SheetRowEvent{" +
+                "sheetName='" + sheetName + '\'' +
+                ", row=" + row +
+                ", rowsRepeated=" + rowsRepeated +
+                ", numRuns=" + getNumRuns() +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.miachm.sods;
+
+/**
+ * A key column of Range.sort(), and the direction in which its values are ordered.
+ *
+ * @see Range#sort(SortSpec...)
+ */
+public final class SortSpec {
+    private final int column;
+    private final boolean ascending;
+
+    /**
+     * It builds an inmutable ascending sort key
+     *
+     * @param column The key column, relative to the sorted range (0 is the first column of the range)
+     */
+    public SortSpec(int column)
+    {
+        this(column, true);
+    }
+
+    /**
+     * It builds an inmutable sort key
+     *
+     * @param column The key column, relative to the sorted range (0 is the first column of the range)
+     * @param ascending True to order the values from the lowest to the highest, false for the opposite
+     */
+    public SortSpec(int column, boolean ascending)
+    {
+        this.column = column;
+        this.ascending = ascending;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        SortSpec sortSpec = (SortSpec) o;
+
+        if (column != sortSpec.column) return false;
+        return ascending == sortSpec.ascending;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = column;
+        result = 31 * result + (ascending ? 1 : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "SortSpec{" +
+                "column=" + column +
+                ", ascending=" + ascending +
+                '}';
+    }
+}
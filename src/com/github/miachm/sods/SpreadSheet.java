@@ -7,9 +7,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -24,6 +26,8 @@ public class SpreadSheet implements Cloneable {
     private final List<Sheet> sheets = new ArrayList<Sheet>();
     private final Map<String, FileEntry> extraFiles = new HashMap<>();
     private static final Set<String> reservedFiles = Stream.of("content.xml", "styles.xml", "META-INF/manifest.xml", "mimetype").collect(Collectors.toCollection(HashSet::new));
+    // Created by recalculate()
+    private FormulaEngine formulas;
 
     /**
      * Create an empty spreadsheet
@@ -35,6 +39,9 @@ public class SpreadSheet implements Cloneable {
 
     /**
      * Load a Spreadsheet from an ODS file.
+     * Unlike an inputstream, only the parts of the file with the content are read (embedded images and thumbnails are skipped).
+     * The other parts are not kept, like with an inputstream. LoadOptions.setKeepAdditionalFiles() keeps them
+     * as additional files which reference the file.
      *
      * @param file The file to load. It must be a valid readable file
      * @throws NullPointerException If the file is null
@@ -45,11 +52,14 @@ public class SpreadSheet implements Cloneable {
      * @see #SpreadSheet(InputStream)
      */
     public SpreadSheet(File file) throws IOException {
-        this(new FileInputStream(file));
+        this(file, new LoadOptions());
     }
 
     /**
      * Load a Spreadsheet from an inputstream.
+     * The parts of the file which are not parsed (embedded images, thumbnails, settings...) are not kept,
+     * see LoadOptions.setKeepAdditionalFiles().
+     *
      * @param in The inputstream to read
      * @throws NullPointerException If the inputstream is null
      * @throws NotAnOdsException If the file isn't an ODS file.
@@ -61,6 +71,40 @@ public class SpreadSheet implements Cloneable {
         OdsReader.load(in,this);
     }
 
+    /**
+     * Load a Spreadsheet from an ODS file with custom options.
+     *
+     * @param file The file to load. It must be a valid readable file
+     * @param options The options of the load
+     * @throws NullPointerException If the file or the options are null
+     * @throws FileNotFoundException If the file doesn't exist or it can be readed
+     * @throws NotAnOdsException If the file isn't an ODS file.
+     * @throws OperationNotSupportedException If the ODS file has a feature which it's not implemented in this library
+     * @throws IOException If an unexpected IO error is produced
+     * @see LoadOptions
+     */
+    public SpreadSheet(File file, LoadOptions options) throws IOException {
+        if (options == null)
+            throw new NullPointerException("The options can't be null");
+        OdsReader.load(file, this, options);
+    }
+
+    /**
+     * Load a Spreadsheet from an inputstream with custom options.
+     * @param in The inputstream to read
+     * @param options The options of the load
+     * @throws NullPointerException If the inputstream or the options are null
+     * @throws NotAnOdsException If the file isn't an ODS file.
+     * @throws OperationNotSupportedException If the ODS file has a feature which it's not implemented in this library
+     * @throws IOException If an unexpected IO error is produced
+     * @see LoadOptions
+     */
+    public SpreadSheet(InputStream in, LoadOptions options) throws IOException {
+        if (options == null)
+            throw new NullPointerException("The options can't be null");
+        OdsReader.load(in, this, options);
+    }
+
     /**
      * Append a new sheet at the end of the book
      *
@@ -84,6 +128,7 @@ public class SpreadSheet implements Cloneable {
             throw new NullPointerException();
 
         sheets.add(pos,sheet);
+        sheetsChanged();
     }
 
     /**
@@ -91,6 +136,7 @@ public class SpreadSheet implements Cloneable {
      */
     public void clear(){
         sheets.clear();
+        sheetsChanged();
     }
 
     /**
@@ -101,6 +147,7 @@ public class SpreadSheet implements Cloneable {
      */
     public void deleteSheet(int pos) {
         sheets.remove(pos);
+        sheetsChanged();
     }
 
     /**
@@ -111,7 +158,9 @@ public class SpreadSheet implements Cloneable {
      * @see #deleteSheet(Sheet)
      */
     public boolean deleteSheet(String name){
-        return sheets.removeIf((sheet) -> sheet.getName().equals(name));
+        boolean removed = sheets.removeIf((sheet) -> sheet.getName().equals(name));
+        sheetsChanged();
+        return removed;
     }
 
     /**
@@ -121,7 +170,9 @@ public class SpreadSheet implements Cloneable {
      * @see #deleteSheet(String)
      */
     public boolean deleteSheet(Sheet sheet){
-        return sheets.remove(sheet);
+        boolean removed = sheets.remove(sheet);
+        sheetsChanged();
+        return removed;
     }
 
     /**
@@ -182,6 +233,65 @@ public class SpreadSheet implements Cloneable {
         if (sheet == null)
             throw new NullPointerException();
         sheets.set(pos,sheet);
+        sheetsChanged();
+    }
+
+    /**
+     * Evaluates the formulas of every sheet and stores their results as the values of the cells.
+     *
+     * The formulas can use the arithmetic operators (+ - * / ^ %), the text concatenation (&amp;), the comparisons
+     * (= &lt;&gt; &lt; &lt;= &gt; &gt;=) and the functions SUM, AVERAGE, MIN, MAX, COUNT, IF and VLOOKUP.
+     * References can name other sheets, "Sheet2.A1" or "Sheet2!A1", and whole columns, "A:A".
+     * Circular references give Err:522. Errors are stored as their text.
+     * The formulas which use other functions or can't be parsed are not evaluated, their cells keep the value
+     * they had, as it was loaded from the file or set, and the formulas which read them use that value.
+     *
+     * Inserting or deleting rows or columns, or renaming a sheet, doesn't adjust the references of the formulas.
+     * The formulas which read the cells that were moved, or name the renamed sheet, are not evaluated anymore:
+     * they keep their last value, like the formulas which can't be evaluated, until a formula is set again in
+     * their cells. References to whole columns, like "A:A", are still evaluated when rows are inserted or deleted.
+     *
+     * After the first call, the formulas are kept up to date: setting the values or formulas of a Range
+     * evaluates again the formulas which depend on them, and only them.
+     *
+     * <pre>
+     *     sheet.getRange("A1:A2").setValues(1, 2);
+     *     sheet.getRange("A3").setFormula("=SUM(A1:A2)");
+     *     spread.recalculate();
+     *     sheet.getRange("A3").getValue(); // 3.0
+     *     sheet.getRange("A1").setValue(5);
+     *     sheet.getRange("A3").getValue(); // 7.0
+     * </pre>
+     */
+    public void recalculate()
+    {
+        recalculate(null);
+    }
+
+    /**
+     * Like recalculate(), but the formulas are evaluated in parallel in the pool.
+     *
+     * The formulas are evaluated by levels: first the ones which don't depend on other formulas,
+     * then the ones which only depend on the first ones... The formulas of a big level are evaluated
+     * in parallel, so the workbooks with many independent formulas scale with the number of cores.
+     * The pool is kept for the next updates, until recalculate() is called again.
+     *
+     * The spreadsheet must not be modified from other threads while the formulas are evaluated.
+     *
+     * @param pool The pool where the formulas are evaluated, null to evaluate them in the calling thread
+     */
+    public void recalculate(ForkJoinPool pool)
+    {
+        if (formulas == null)
+            formulas = new FormulaEngine(this);
+        formulas.setPool(pool);
+        formulas.recalculateAll();
+    }
+
+    private void sheetsChanged()
+    {
+        if (formulas != null)
+            formulas.invalidate();
     }
 
     /**
@@ -193,7 +303,29 @@ public class SpreadSheet implements Cloneable {
      * @throws IOException In case of an io error.
      */
     public void save(File out) throws IOException {
-        save(new FileOutputStream(out));
+        save(out, new SaveOptions());
+    }
+
+    /**
+     * Save this SpreadSheet in a ODS file, with the given options.
+     *
+     * @param out The file to be writted. It must be no-null and be in a valid path
+     * @param options How the file is written, for example its compression level
+     * @throws NullPointerException If the file or the options are null
+     * @throws FileNotFoundException If the file is an invalid path
+     * @throws IOException In case of an io error.
+     * @see SaveOptions
+     */
+    public void save(File out, SaveOptions options) throws IOException {
+        if (options == null)
+            throw new NullPointerException("The options can't be null");
+        checkExtraFiles();
+        // The file is overwritten, so the additional files which are read from it are kept in memory first
+        for (FileEntry entry : extraFiles.values()) {
+            if (entry.isReadFrom(out))
+                entry.detach();
+        }
+        save(new FileOutputStream(out), options);
     }
 
     /**
@@ -206,11 +338,39 @@ public class SpreadSheet implements Cloneable {
     public void save(OutputStream out) throws IOException {
         OdsWritter.save(out,this);
     }
+
+    /**
+     * Save this Spreadsheet to the stream in the ODS format, with the given options
+     *
+     * @param out The outputstream to be writted. It must be no-null
+     * @param options How the file is written, for example its compression level
+     * @throws NullPointerException If the OutputStream or the options are null
+     * @throws IOException In case of an io error.
+     * @see SaveOptions
+     */
+    public void save(OutputStream out, SaveOptions options) throws IOException {
+        if (options == null)
+            throw new NullPointerException("The options can't be null");
+        OdsWritter.save(out, this, options);
+    }
     
     Collection<FileEntry> getExtraFiles()
     {
         return extraFiles.values();
     }
+
+    /*
+        Checks the sources of the additional files before writing anything, so a save doesn't fail halfway.
+        The entries of a loaded file which was modified or deleted since are dropped.
+     */
+    void checkExtraFiles() throws IOException
+    {
+        Iterator<FileEntry> iterator = extraFiles.values().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().checkSource())
+                iterator.remove();
+        }
+    }
     
     /**
      * This function allows you to add/edit additional files inside your Spreadsheet
@@ -238,6 +398,33 @@ public class SpreadSheet implements Cloneable {
         }
         return extraFiles.put(path, new FileEntry(path, mimetype, data)) != null;
     }
+
+    /**
+     * Like setAdditionalFile(String, String, byte[]), but the content is read from a file
+     * when the Spreadsheet is saved, so it's never kept in memory.
+     *
+     * @param path: Location (inside the Spreadsheet) where the file should be placed
+     * @param mimetype: Type of the file
+     * @param file: The file with the content. It must exist when the Spreadsheet is saved
+     * @return True if the file already existed, false if not
+     * @throws IllegalArgumentException The path belongs to a reserved file
+     * @throws NullPointerException If the file is null
+     */
+    public boolean setAdditionalFile(String path, String mimetype, File file)
+    {
+        if (file == null)
+            throw new NullPointerException("The file can't be null");
+        if (reservedFiles.contains(path)) {
+            throw new IllegalArgumentException("The file " + path + " is a reserved name");
+        }
+        return extraFiles.put(path, new FileEntry(path, mimetype, file)) != null;
+    }
+
+    // Additional files of a loaded ODS file
+    void addLoadedFile(FileEntry entry)
+    {
+        extraFiles.put(entry.path, entry);
+    }
     
     /**
      * This function allows you to remove files that you have added to the Spreadsheet
@@ -0,0 +1,228 @@
+package com.github.miachm.sods;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Objects;
+
+import static com.github.miachm.sods.OpenDocumentNamespaces.*;
+
+/**
+ * Writes an ODS file row by row, without building a SpreadSheet in memory.
+ *
+ * Rows are written directly in the output, so the memory used is constant no matter the size of the file.
+ * Only values are supported, styles and formulas require the regular SpreadSheet class.
+ *
+ * <pre>
+ *     try (SpreadSheetStreamWriter writer = new SpreadSheetStreamWriter(new File("report.ods"))) {
+ *         writer.beginSheet("Report");
+ *         writer.writeRow("Name", "Amount");
+ *         writer.writeRow("Foo", 12.5);
+ *         writer.endSheet();
+ *     }
+ * </pre>
+ */
+public class SpreadSheetStreamWriter implements Closeable {
+    private static final String DATE_CELL_STYLE = "datecell";
+    private final Compressor compressor;
+    private final Writer output;
+    private final XMLStreamWriter out;
+    private boolean insideSheet = false;
+    private boolean closed = false;
+
+    /**
+     * Creates an ODS file and prepares it for writing
+     *
+     * @param file The file to be writted. It must be no-null and be in a valid path
+     * @throws NullPointerException If the file is null
+     * @throws java.io.FileNotFoundException If the file is an invalid path
+     * @throws IOException In case of an io error.
+     */
+    public SpreadSheetStreamWriter(File file) throws IOException {
+        this(new FileOutputStream(file));
+    }
+
+    /**
+     * Prepares an outputstream for writing an ODS file. The stream will be closed when this writer is closed.
+     *
+     * @param o The outputstream to be writted. It must be no-null
+     * @throws NullPointerException If the OutputStream is null
+     * @throws IOException In case of an io error.
+     */
+    public SpreadSheetStreamWriter(OutputStream o) throws IOException {
+        if (o == null)
+            throw new NullPointerException("The outputstream can't be null");
+
+        compressor = new Compressor(o);
+        OdsWritter.writeMymeType(compressor);
+        OdsWritter.writeManifest(compressor, Collections.emptyList());
+
+        try {
+            output = new OutputStreamWriter(compressor.startEntry("content.xml"), StandardCharsets.UTF_8);
+            out = XmlFactories.createWriter(output);
+            OdsWritter.writeStartContent(out);
+
+            out.writeStartElement(OFFICE, "automatic-styles");
+            OdsWritter.writeDataFormatStyles(out);
+            out.writeStartElement(STYLE, "style");
+            out.writeAttribute(STYLE, "family", "table-cell");
+            out.writeAttribute(STYLE, "name", DATE_CELL_STYLE);
+            out.writeAttribute(STYLE, "data-style-name", "datestyle");
+            out.writeEndElement();
+            out.writeEndElement();
+
+            out.writeStartElement(OFFICE, "body");
+            out.writeStartElement(OFFICE, "spreadsheet");
+        } catch (XMLStreamException e) {
+            throw new GenerateOdsException(e);
+        }
+    }
+
+    /**
+     * Starts a new sheet. Next rows will be written in it.
+     *
+     * @param name The name of the sheet
+     * @throws NullPointerException If the name is null
+     * @throws IllegalStateException If there is a sheet already started or the writer is closed
+     */
+    public void beginSheet(String name) {
+        beginSheet(name, 0);
+    }
+
+    /**
+     * Starts a new sheet declaring its number of columns. Next rows will be written in it.
+     *
+     * @param name The name of the sheet
+     * @param numColumns The number of columns of the sheet
+     * @throws NullPointerException If the name is null
+     * @throws IllegalArgumentException If the number of columns is negative
+     * @throws IllegalStateException If there is a sheet already started or the writer is closed
+     */
+    public void beginSheet(String name, int numColumns) {
+        if (name == null)
+            throw new NullPointerException("The name of the sheet can't be null");
+        if (numColumns < 0)
+            throw new IllegalArgumentException("Columns can't be negative");
+        checkNotClosed();
+        if (insideSheet)
+            throw new IllegalStateException("The sheet must be ended before starting a new one");
+
+        try {
+            out.writeStartElement(TABLE, "table");
+            out.writeAttribute(TABLE, "name", name);
+            if (numColumns > 0) {
+                out.writeStartElement(TABLE, "table-column");
+                if (numColumns > 1)
+                    out.writeAttribute(TABLE, "number-columns-repeated", "" + numColumns);
+                out.writeEndElement();
+            }
+        } catch (XMLStreamException e) {
+            throw new GenerateOdsException(e);
+        }
+        insideSheet = true;
+    }
+
+    /**
+     * Writes a row at the end of the current sheet.
+     * The values could be String, Number, Boolean, LocalDate, LocalDateTime, Duration, OfficeCurrency or OfficePercentage.
+     * Null values are written as empty cells.
+     *
+     * @param values The values of the row, one per column
+     * @throws IllegalStateException If there is no sheet started
+     */
+    public void writeRow(Object... values) {
+        checkNotClosed();
+        if (!insideSheet)
+            throw new IllegalStateException("A sheet must be started before writing rows");
+
+        try {
+            out.writeStartElement(TABLE, "table-row");
+            int i = 0;
+            while (i < values.length) {
+                int repeated = 1;
+                while (i + repeated < values.length && Objects.equals(values[i], values[i + repeated]))
+                    repeated++;
+                writeCell(values[i], repeated);
+                i += repeated;
+            }
+            if (values.length == 0) {
+                out.writeStartElement(TABLE, "table-cell");
+                out.writeEndElement();
+            }
+            out.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new GenerateOdsException(e);
+        }
+    }
+
+    private void writeCell(Object value, int repeated) throws XMLStreamException {
+        out.writeStartElement(TABLE, "table-cell");
+        if (repeated > 1)
+            out.writeAttribute(TABLE, "number-columns-repeated", "" + repeated);
+        if (value instanceof LocalDate)
+            out.writeAttribute(TABLE, "style-name", DATE_CELL_STYLE);
+        OdsWritter.writeValue(out, value, null);
+        out.writeEndElement();
+    }
+
+    /**
+     * Ends the current sheet
+     *
+     * @throws IllegalStateException If there is no sheet started
+     */
+    public void endSheet() {
+        checkNotClosed();
+        if (!insideSheet)
+            throw new IllegalStateException("There is no sheet started");
+
+        try {
+            out.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new GenerateOdsException(e);
+        }
+        insideSheet = false;
+    }
+
+    /**
+     * Finishes the ODS file and closes the output. A sheet still started is ended.
+     *
+     * @throws IOException In case of an io error.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        if (insideSheet)
+            endSheet();
+        closed = true;
+
+        try {
+            out.writeEndElement();
+            out.writeEndElement();
+            out.writeEndElement();
+            out.writeEndDocument();
+            out.close();
+            output.close();
+
+            OdsWritter.writeSettingsStyleFile(compressor);
+        } catch (XMLStreamException e) {
+            throw new GenerateOdsException(e);
+        }
+        compressor.flush();
+        compressor.close();
+    }
+
+    private void checkNotClosed() {
+        if (closed)
+            throw new IllegalStateException("The writer is closed");
+    }
+}
@@ -3,10 +3,16 @@ package com.github.miachm.sods;
 class SpreadsheetParser {
     private final StylesParser stylesParser;
     private final SpreadSheet spread;
+    private final LoadOptions options;
 
     public SpreadsheetParser(StylesParser stylesParser, SpreadSheet spread) {
+        this(stylesParser, spread, new LoadOptions());
+    }
+
+    public SpreadsheetParser(StylesParser stylesParser, SpreadSheet spread, LoadOptions options) {
         this.stylesParser = stylesParser;
         this.spread = spread;
+        this.options = options;
     }
 
     public void parseContent(XmlReaderInstance bodyInstance) {
@@ -16,13 +22,28 @@ class SpreadsheetParser {
             while (spreadsheetInstance.hasNext()) {
                 XmlReaderInstance tableInstance = spreadsheetInstance.nextElement("table:table");
                 if (tableInstance != null) {
-                    String name = tableInstance.getAttribValue("table:name");
-                    Sheet sheet = new Sheet(name, 0, 0);
-                    SheetParser sheetParser = new SheetParser(sheet, stylesParser);
-                    sheetParser.parseSheet(tableInstance);
-                    spread.appendSheet(sheet);
+                    Sheet sheet = parseSheet(tableInstance);
+                    if (sheet != null) spread.appendSheet(sheet);
                 }
             }
         }
     }
+
+    /*
+        Returns null if the sheet is skipped by the load options.
+        It only reads the styles parser, so several sheets can be parsed at the same time.
+     */
+    Sheet parseSheet(XmlReaderInstance tableInstance) {
+        String name = tableInstance.getAttribValue("table:name");
+        if (!options.isSheetLoaded(name)) {
+            // Skip the whole table
+            tableInstance.nextElement();
+            return null;
+        }
+
+        Sheet sheet = new Sheet(name, 0, 0);
+        SheetParser sheetParser = new SheetParser(sheet, stylesParser, options);
+        sheetParser.parseSheet(tableInstance);
+        return sheet;
+    }
 }
\ No newline at end of file
@@ -73,7 +73,9 @@ public final class Style implements Cloneable {
      */
     public boolean isDefault()
     {
-        return this.equals(new Style());
+        return !bold && !italic && !underline && fontColor == null && backgroundColor == null
+                && fontSize == -1 && borders == null && !wrap && horizontal_alignment == null
+                && vertical_alignment == null && dataStyle == null && conditionalFormats.isEmpty();
     }
 
     /**
@@ -334,7 +336,11 @@ public final class Style implements Cloneable {
     }
 
     public Object clone() throws CloneNotSupportedException {
-        return super.clone();
+        Style style = (Style) super.clone();
+        style.conditionalFormats = new ArrayList<>(conditionalFormats);
+        if (borders != null)
+            style.borders = borders.copy();
+        return style;
     }
 
     @Override
@@ -0,0 +1,5 @@
+package com.github.miachm.sods;
+
+interface StyleModifier {
+    void modify(Style style, int row, int column);
+}
@@ -0,0 +1,90 @@
+package com.github.miachm.sods;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/*
+    Interns the styles of the cells of a sheet.
+    Cells with the same formatting share a single Style instance, so a style stored here
+    must never be mutated. Changes are made on a copy which is interned again (copy on write).
+    Styles are not removed while the sheet is edited, the pool is a superset of the styles used by it.
+    The ones which no cell uses anymore are dropped by removeUnused() when the sheet is saved.
+ */
+class StylePool {
+    private final Map<Style, Style> styles = new LinkedHashMap<>();
+
+    /*
+        Returns the shared instance equal to the given style.
+        The given style is copied if it's not in the pool yet, so the caller keeps the ownership.
+     */
+    Style intern(Style style)
+    {
+        if (style == Style.default_style || style.isDefault())
+            return Style.default_style;
+
+        Style shared = styles.get(style);
+        if (shared == null) {
+            shared = copy(style);
+            styles.put(shared, shared);
+        }
+        return shared;
+    }
+
+    /*
+        Returns the shared instance of the style resulting of applying the modifier to a copy of base.
+     */
+    Style modify(Style base, Consumer<Style> modifier)
+    {
+        Style style = copy(base);
+        modifier.accept(style);
+        if (style.isDefault())
+            return Style.default_style;
+
+        Style shared = styles.get(style);
+        if (shared == null) {
+            shared = style;
+            styles.put(shared, shared);
+        }
+        return shared;
+    }
+
+    Collection<Style> getStyles()
+    {
+        return styles.values();
+    }
+
+    /*
+        Removes the styles which are not used by any cell of the rows. The cells hold the instances
+        of the pool, so they are compared by identity.
+     */
+    void removeUnused(Iterable<Row> rows)
+    {
+        if (styles.isEmpty())
+            return;
+
+        Set<Style> used = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Row row : rows) {
+            // Packed rows only have default styles
+            TableFieldList<Cell> cells = row.getCellsForReading();
+            if (cells == null)
+                continue;
+            for (Cell cell : cells)
+                used.add(cell.getStyleDangerous());
+        }
+        styles.values().removeIf(style -> !used.contains(style));
+    }
+
+    private static Style copy(Style style)
+    {
+        try {
+            return (Style) style.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e.toString());
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.github.miachm.sods;
+
+import java.util.ArrayList;
+
+/*
+    List of run-length encoded fields (rows, columns or cells) which keeps an index
+    of the starting offset of every run.
+
+    The index is a prefix sum which is lazily repaired: any change in a run invalidates
+    only the offsets after it. Editing a sheet usually happens in ascending order, so the
+    repair cost stays close to the distance between two consecutive accesses and a lookup
+    is a binary search over the valid prefix.
+
+    So lookups are O(log n) amortized for forward edits only. An edit near the front followed
+    by an access near the end repairs every run in between, which is O(n) per edit. Splitting
+    a run inserts into the list, which is O(n) too, so filling a sheet from the bottom up is O(n^2).
+
+    Changes in num_repeated must be notified using setRepeated() or invalidateFrom().
+ */
+class TableFieldList<T extends TableField> extends ArrayList<T> {
+    private static final long serialVersionUID = 1L;
+
+    // offsets[i] is the sum of num_repeated of the fields [0, i)
+    private int[] offsets = new int[16];
+    // offsets[0..validUpTo] are up to date
+    private int validUpTo = 0;
+    private int knownModCount = modCount;
+
+    TableFieldList()
+    {
+    }
+
+    TableFieldList(int capacity)
+    {
+        super(capacity);
+    }
+
+    void setRepeated(int index, int numRepeated)
+    {
+        get(index).num_repeated = numRepeated;
+        invalidateFrom(index);
+    }
+
+    void invalidateFrom(int index)
+    {
+        if (index < validUpTo)
+            validUpTo = index;
+    }
+
+    /*
+        Translates a position (row or column number) to the field which contains it.
+        first is the index of the field, second the remaining offset inside of that field.
+        If the position is beyond the end, first is size() and second the distance to the end.
+     */
+    Pair<Integer, Integer> locate(int position)
+    {
+        int index = runIndexOf(position);
+        return new Pair<>(index, position - offsets[index]);
+    }
+
+    /*
+        Index of the field which contains the position, or size() if it's beyond the end.
+        Unlike locate(), it doesn't allocate.
+     */
+    int runIndexOf(int position)
+    {
+        syncModifications();
+        final int size = size();
+        if (offsets.length < size + 1) {
+            int[] aux = new int[Math.max(size + 1, offsets.length * 2)];
+            System.arraycopy(offsets, 0, aux, 0, validUpTo + 1);
+            offsets = aux;
+        }
+
+        while (validUpTo < size && offsets[validUpTo] <= position) {
+            offsets[validUpTo + 1] = offsets[validUpTo] + get(validUpTo).num_repeated;
+            validUpTo++;
+        }
+
+        if (offsets[validUpTo] <= position)
+            return size;
+
+        int low = 0;
+        int high = validUpTo - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= position)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return low;
+    }
+
+    /*
+        Starting position of a field. Only valid for the fields up to the one returned by the last runIndexOf().
+     */
+    int offsetOf(int index)
+    {
+        return offsets[index];
+    }
+
+    private void syncModifications()
+    {
+        if (modCount != knownModCount) {
+            validUpTo = 0;
+            knownModCount = modCount;
+        }
+    }
+
+    @Override
+    public boolean add(T field)
+    {
+        syncModifications();
+        boolean result = super.add(field);
+        knownModCount = modCount;
+        return result;
+    }
+
+    @Override
+    public void add(int index, T field)
+    {
+        syncModifications();
+        super.add(index, field);
+        knownModCount = modCount;
+        invalidateFrom(index);
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        syncModifications();
+        T result = super.remove(index);
+        knownModCount = modCount;
+        invalidateFrom(index);
+        return result;
+    }
+
+    @Override
+    public T set(int index, T field)
+    {
+        T result = super.set(index, field);
+        invalidateFrom(index);
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object clone()
+    {
+        TableFieldList<T> list = (TableFieldList<T>) super.clone();
+        list.offsets = offsets.clone();
+        list.knownModCount = list.modCount;
+        return list;
+    }
+}
@@ -1,33 +1,38 @@
 package com.github.miachm.sods;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.nio.file.FileSystemException;
+import java.util.zip.ZipException;
 
-class Uncompressor implements Closeable{
-    private final ZipInputStream zip;
+/*
+    Reads the entries of an ODS file one after another
+ */
+interface Uncompressor extends Closeable {
+    // Returns the name of the next entry, null if there are no more entries
+    String nextFile() throws IOException;
 
-    Uncompressor(InputStream in){
-        this.zip = new ZipInputStream(in);
-    }
-
-    String nextFile() throws IOException {
-        ZipEntry entry = zip.getNextEntry();
-        if (entry != null)
-            return entry.getName();
-        else
-            return null;
-    }
-
-    InputStream getInputStream()
-    {
-        return new UncompressorInputStream(zip);
-    }
+    // Returns the content of the current entry. The stream can't be closed
+    InputStream getInputStream() throws IOException;
 
-    @Override
-    public void close() throws IOException {
-        zip.close();
+    /*
+        Files are read using their central directory, so the entries which are not needed are never read.
+        Files without a valid central directory are read as a stream.
+     */
+    static Uncompressor open(File file) throws IOException {
+        try {
+            return new UncompressorZipFileImpl(file);
+        } catch (ZipException e) {
+            return new UncompressorStreamImpl(new FileInputStream(file));
+        } catch (FileSystemException e) {
+            // ZipFile reports a missing or unreadable file with the nio exceptions, FileInputStream didn't
+            FileNotFoundException exception = new FileNotFoundException(e.getMessage());
+            exception.initCause(e);
+            throw exception;
+        }
     }
 }
@@ -2,15 +2,14 @@ package com.github.miachm.sods;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.zip.ZipInputStream;
 
 /*
 Wrapper to the input steam, disallowing the use of close
  */
 class UncompressorInputStream extends InputStream {
-    private ZipInputStream inputStream;
+    private InputStream inputStream;
 
-    UncompressorInputStream(ZipInputStream inputStream)
+    UncompressorInputStream(InputStream inputStream)
     {
         this.inputStream = inputStream;
     }
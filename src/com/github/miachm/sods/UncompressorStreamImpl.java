@@ -0,0 +1,37 @@
+package com.github.miachm.sods;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/*
+    Reads the entries in the order of the stream. Skipped entries are still read.
+ */
+class UncompressorStreamImpl implements Uncompressor {
+    private final ZipInputStream zip;
+
+    UncompressorStreamImpl(InputStream in){
+        this.zip = new ZipInputStream(in);
+    }
+
+    @Override
+    public String nextFile() throws IOException {
+        ZipEntry entry = zip.getNextEntry();
+        if (entry != null)
+            return entry.getName();
+        else
+            return null;
+    }
+
+    @Override
+    public InputStream getInputStream()
+    {
+        return new UncompressorInputStream(zip);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zip.close();
+    }
+}
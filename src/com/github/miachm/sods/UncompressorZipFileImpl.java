@@ -0,0 +1,74 @@
+package com.github.miachm.sods;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/*
+    Reads the entries of a file using its central directory. The mimetype is returned first,
+    so the file is checked before parsing anything, then the styles, so they are known when the content
+    is parsed, and then the rest of the entries in the order of the file.
+    The content of an entry is only read if it's requested.
+ */
+class UncompressorZipFileImpl implements Uncompressor {
+    private static final String[] FIRST_ENTRIES = {"mimetype", "styles.xml", "content.xml"};
+    private final ZipFile zip;
+    private final Iterator<ZipEntry> entries;
+    private ZipEntry current;
+    private InputStream currentStream;
+
+    UncompressorZipFileImpl(File file) throws IOException {
+        zip = new ZipFile(file);
+
+        List<ZipEntry> ordered = new ArrayList<>();
+        for (String name : FIRST_ENTRIES) {
+            ZipEntry entry = zip.getEntry(name);
+            if (entry != null)
+                ordered.add(entry);
+        }
+
+        Enumeration<? extends ZipEntry> all = zip.entries();
+        while (all.hasMoreElements()) {
+            ZipEntry entry = all.nextElement();
+            if (!Arrays.asList(FIRST_ENTRIES).contains(entry.getName()))
+                ordered.add(entry);
+        }
+        entries = ordered.iterator();
+    }
+
+    @Override
+    public String nextFile() throws IOException {
+        closeCurrent();
+        current = entries.hasNext() ? entries.next() : null;
+        return current != null ? current.getName() : null;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (current == null)
+            throw new IllegalStateException("There is no current entry");
+        if (currentStream == null)
+            currentStream = zip.getInputStream(current);
+        return new UncompressorInputStream(currentStream);
+    }
+
+    private void closeCurrent() throws IOException {
+        if (currentStream != null) {
+            currentStream.close();
+            currentStream = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+        zip.close();
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.miachm.sods;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+/*
+    The StAX factories used to read and write the XML of the files.
+
+    Looking up a factory (XMLInputFactory.newInstance()) goes through the service loader, which is slow
+    when many small files are loaded or saved. So a single input factory and a single output factory
+    are shared by every thread. They are configured once when they are created and never modified after,
+    and then creating readers and writers is safe from several threads, both in the JDK implementation
+    and in Woodstox. The readers and writers belong to a single load or save.
+
+    Per-thread factories would keep the classloader of the StAX provider in every thread of a pool,
+    which matters in application servers (see #77).
+ */
+final class XmlFactories {
+    private static volatile XMLInputFactory input;
+    private static volatile XMLOutputFactory output;
+
+    private XmlFactories() {
+    }
+
+    /*
+        Drops the cached factories, so the next load or save looks them up again
+        (after changing the StAX implementation with the system properties, for example).
+     */
+    static void clear() {
+        input = null;
+        output = null;
+    }
+
+    // Two threads may create a factory at the same time, then one of them is simply discarded
+    private static XMLInputFactory inputFactory() {
+        XMLInputFactory factory = input;
+        if (factory == null) {
+            factory = newInputFactory();
+            input = factory;
+        }
+        return factory;
+    }
+
+    private static XMLOutputFactory outputFactory() {
+        XMLOutputFactory factory = output;
+        if (factory == null) {
+            factory = XMLOutputFactory.newInstance();
+            output = factory;
+        }
+        return factory;
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // #77 Make the ODS files with DTD work on the JBoss-bundled Woodstox,
+        //     or ensure they work on another StAX implementation set to validate by default.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        return factory;
+    }
+
+    static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        return inputFactory().createXMLStreamReader(in);
+    }
+
+    static XMLStreamReader createReader(Reader in) throws XMLStreamException {
+        return inputFactory().createXMLStreamReader(in);
+    }
+
+    static XMLStreamWriter createWriter(Writer out) throws XMLStreamException {
+        return outputFactory().createXMLStreamWriter(out);
+    }
+}
@@ -5,5 +5,5 @@ import java.io.IOException;
 import java.io.InputStream;
 
 interface XmlReader extends Closeable{
-    XmlReaderInstanceEventImpl load(InputStream in) throws IOException;
+    XmlReaderInstance load(InputStream in) throws IOException;
 }
@@ -0,0 +1,78 @@
+package com.github.miachm.sods;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+
+/*
+    XmlReader which doesn't allocate per element. Instances are reused (one per depth level),
+    names are compared in place against the prefix and local name of the underlying reader
+    and attributes are read from it on demand.
+
+    Because of that, an instance is only valid until its parent returns the next element,
+    and its attributes are only available until it's advanced.
+ */
+class XmlReaderCursorImpl implements XmlReader {
+    XMLStreamReader reader = null;
+    int depth;
+    long position;
+    private XmlReaderInstanceCursorImpl[] instances = new XmlReaderInstanceCursorImpl[16];
+
+    @Override
+    public XmlReaderInstance load(InputStream in) throws IOException {
+        try {
+            return start(XmlFactories.createReader(in));
+        } catch (XMLStreamException e) {
+            throw new NotAnOdsException(e);
+        }
+    }
+
+    XmlReaderInstance load(Reader in) {
+        try {
+            return start(XmlFactories.createReader(in));
+        } catch (XMLStreamException e) {
+            throw new NotAnOdsException(e);
+        }
+    }
+
+    private XmlReaderInstance start(XMLStreamReader streamReader) throws XMLStreamException {
+        reader = streamReader;
+        // Skip start of document
+        try {
+            reader.next();
+        }
+        catch (XMLStreamException e)
+        {
+            // Empty file, skipping
+            reader.close();
+            return null;
+        }
+        position = 0;
+        depth = reader.isStartElement() ? 1 : 0;
+        return instance(0).reset(null, 0, position, null);
+    }
+
+    XmlReaderInstanceCursorImpl instance(int depth) {
+        if (depth >= instances.length)
+            instances = Arrays.copyOf(instances, Math.max(depth + 1, instances.length * 2));
+
+        XmlReaderInstanceCursorImpl instance = instances[depth];
+        if (instance == null) {
+            instance = new XmlReaderInstanceCursorImpl(this);
+            instances[depth] = instance;
+        }
+        return instance;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new NotAnOdsException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.miachm.sods;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+class XmlReaderInstanceCursorImpl implements XmlReaderInstance {
+    private final XmlReaderCursorImpl cursor;
+    private String tag;
+    private int depth;
+    private long position;
+    private String characters;
+    private boolean end;
+
+    XmlReaderInstanceCursorImpl(XmlReaderCursorImpl cursor)
+    {
+        this.cursor = cursor;
+    }
+
+    XmlReaderInstanceCursorImpl reset(String tag, int depth, long position, String characters)
+    {
+        this.tag = tag;
+        this.depth = depth;
+        this.position = position;
+        this.characters = characters;
+        this.end = characters != null;
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return cursor.reader.hasNext() && !end;
+        } catch (XMLStreamException e) {
+            throw new NotAnOdsException(e);
+        }
+    }
+
+    @Override
+    public XmlReaderInstance nextElement(String... names) {
+        XMLStreamReader reader = cursor.reader;
+        try {
+            while (reader.hasNext() && !end) {
+                int event = reader.next();
+                cursor.position++;
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    int elementDepth = ++cursor.depth;
+                    String name = match(names, reader.getPrefix(), reader.getLocalName());
+                    if (name != null)
+                        return cursor.instance(elementDepth).reset(name, elementDepth, cursor.position, null);
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (cursor.depth-- == depth) {
+                        end = true;
+                        return null;
+                    }
+                }
+                else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    for (String name : names) {
+                        if (name.equals(CHARACTERS))
+                            return cursor.instance(cursor.depth + 1).reset(CHARACTERS, cursor.depth + 1, cursor.position, reader.getText());
+                    }
+                }
+            }
+            return null;
+        }
+        catch(XMLStreamException e){
+            throw new NotAnOdsException(e);
+        }
+    }
+
+    @Override
+    public String getAttribValue(String name) {
+        if (characters != null)
+            return null;
+        if (position != cursor.position)
+            throw new IllegalStateException("The attributes of " + tag + " are not available after reading its content");
+
+        XMLStreamReader reader = cursor.reader;
+        for (int i = 0, n = reader.getAttributeCount(); i < n; i++) {
+            if (matches(name, reader.getAttributePrefix(i), reader.getAttributeLocalName(i)))
+                return reader.getAttributeValue(i);
+        }
+        return null;
+    }
+
+    @Override
+    public String getContent()
+    {
+        return characters;
+    }
+
+    @Override
+    public String getTag() {
+        return tag;
+    }
+
+    private static String match(String[] names, String prefix, String localName)
+    {
+        for (String name : names) {
+            if (matches(name, prefix, localName))
+                return name;
+        }
+        return null;
+    }
+
+    // Equivalent to name.equals(prefix + ":" + localName), without building the string
+    private static boolean matches(String name, String prefix, String localName)
+    {
+        if (prefix == null)
+            prefix = "";
+        int length = prefix.length();
+        return name.length() == length + 1 + localName.length()
+                && name.charAt(length) == ':'
+                && name.startsWith(prefix)
+                && name.endsWith(localName);
+    }
+}
@@ -0,0 +1,346 @@
+package com.github.miachm.sods;
+
+import java.text.NumberFormat;
+import java.text.ParseException;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/*
+    Parsing and formatting of the values of the office: attributes, which use the XML Schema types
+    (xsd:double, xsd:date, xsd:dateTime and xsd:duration).
+
+    The usual forms ("3.14", "2003-04-17T03:30:00", "PT03H30M00S") are parsed by hand, without allocating
+    formatters or throwing exceptions. Anything else goes through the lenient parsers which were used before,
+    so the files which were readable are still read in the same way.
+ */
+final class XsdValues {
+    // Powers of ten which are exact in a double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // Integers up to 2^53 are exact in a double
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private XsdValues() {
+    }
+
+    /*
+        Returns null if the text is not a number.
+     */
+    static Double parseDouble(String text) {
+        if (text == null)
+            return null;
+        switch (text) {
+            case "NaN":
+                return Double.NaN;
+            case "INF":
+                return Double.POSITIVE_INFINITY;
+            case "-INF":
+                return Double.NEGATIVE_INFINITY;
+        }
+
+        int length = text.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        // The value is mantissa * 10^exponent
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean digits = false;
+        boolean exact = true;
+        for (; i < length && isDigit(text.charAt(i)); i++) {
+            digits = true;
+            int digit = text.charAt(i) - '0';
+            if (mantissa == 0 && digit == 0)
+                continue;
+            if (significantDigits < 18) {
+                mantissa = mantissa * 10 + digit;
+                significantDigits++;
+            } else {
+                exact = false;
+            }
+        }
+        if (i < length && text.charAt(i) == '.') {
+            for (i++; i < length && isDigit(text.charAt(i)); i++) {
+                digits = true;
+                int digit = text.charAt(i) - '0';
+                if (mantissa == 0 && digit == 0) {
+                    exponent--;
+                } else if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + digit;
+                    significantDigits++;
+                    exponent--;
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (!digits)
+            return parseLenient(text);
+
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int start = i;
+            int value = 0;
+            for (; i < length && isDigit(text.charAt(i)); i++) {
+                if (i - start < 6)
+                    value = value * 10 + (text.charAt(i) - '0');
+                else
+                    exact = false;
+            }
+            if (i == start)
+                return parseLenient(text);
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != length)
+            return parseLenient(text);
+
+        if (mantissa == 0 && exact)
+            return negative ? -0.0 : 0.0;
+        if (!exact || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22)
+            return Double.parseDouble(text);
+
+        // Both numbers are exact, so the result of the operation is correctly rounded
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
+    }
+
+    // The parser of the previous versions, which accepts grouping separators and text after the number
+    private static Double parseLenient(String text) {
+        try {
+            return NumberFormat.getInstance(Locale.US).parse(text).doubleValue();
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    /*
+        Formats a number as a xsd:double. Integers are written without decimals.
+     */
+    static String formatDouble(double value) {
+        if (Double.isNaN(value))
+            return "NaN";
+        if (Double.isInfinite(value))
+            return value > 0 ? "INF" : "-INF";
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long) value);
+        return Double.toString(value);
+    }
+
+    /*
+        Returns a LocalDate (xsd:date) or a LocalDateTime (xsd:dateTime), or null if the text is not a date.
+     */
+    static Object parseDate(String text) {
+        if (text == null)
+            return null;
+        int length = text.length();
+        if (length == 10 && isDate(text)) {
+            try {
+                return LocalDate.of(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2));
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+        if (length >= 19 && isDate(text) && text.charAt(10) == 'T' && isTime(text, 11)) {
+            int nanos = 0;
+            if (length > 19) {
+                int fractionDigits = length - 20;
+                if (text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9 || !areDigits(text, 20, length))
+                    return parseDateLenient(text);
+                nanos = digits(text, 20, fractionDigits);
+                for (int i = fractionDigits; i < 9; i++)
+                    nanos *= 10;
+            }
+            try {
+                return LocalDateTime.of(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2),
+                        digits(text, 11, 2), digits(text, 14, 2), digits(text, 17, 2), nanos);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+        return parseDateLenient(text);
+    }
+
+    private static Object parseDateLenient(String text) {
+        try {
+            return LocalDateTime.parse(text, DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        } catch (DateTimeParseException dateTimeEx) {
+            try {
+                return LocalDate.parse(text, DateTimeFormatter.ISO_LOCAL_DATE);
+            } catch (DateTimeParseException dateEx) {
+                return null;
+            }
+        }
+    }
+
+    // yyyy-MM-dd
+    private static boolean isDate(String text) {
+        return areDigits(text, 0, 4) && text.charAt(4) == '-' && areDigits(text, 5, 7)
+                && text.charAt(7) == '-' && areDigits(text, 8, 10);
+    }
+
+    // HH:mm:ss
+    private static boolean isTime(String text, int offset) {
+        return areDigits(text, offset, offset + 2) && text.charAt(offset + 2) == ':'
+                && areDigits(text, offset + 3, offset + 5) && text.charAt(offset + 5) == ':'
+                && areDigits(text, offset + 6, offset + 8);
+    }
+
+    /*
+        Formats a date as xsd:date, like DateTimeFormatter.ISO_LOCAL_DATE.
+     */
+    static String formatDate(LocalDate date) {
+        if (date.getYear() < 0 || date.getYear() > 9999)
+            return date.format(DateTimeFormatter.ISO_LOCAL_DATE);
+        char[] text = new char[10];
+        writeDate(text, date);
+        return new String(text);
+    }
+
+    /*
+        Formats a date as xsd:dateTime, like DateTimeFormatter.ISO_LOCAL_DATE_TIME:
+        the seconds are always written, the fraction without trailing zeros.
+     */
+    static String formatDateTime(LocalDateTime dateTime) {
+        if (dateTime.getYear() < 0 || dateTime.getYear() > 9999)
+            return dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+
+        int nanos = dateTime.getNano();
+        int fractionDigits = 0;
+        if (nanos != 0) {
+            fractionDigits = 9;
+            while (nanos % 10 == 0) {
+                nanos /= 10;
+                fractionDigits--;
+            }
+        }
+
+        char[] text = new char[fractionDigits > 0 ? 20 + fractionDigits : 19];
+        writeDate(text, dateTime.toLocalDate());
+        text[10] = 'T';
+        writeDigits(text, 11, 2, dateTime.getHour());
+        text[13] = ':';
+        writeDigits(text, 14, 2, dateTime.getMinute());
+        text[16] = ':';
+        writeDigits(text, 17, 2, dateTime.getSecond());
+        if (fractionDigits > 0) {
+            text[19] = '.';
+            writeDigits(text, 20, fractionDigits, nanos);
+        }
+        return new String(text);
+    }
+
+    private static void writeDate(char[] text, LocalDate date) {
+        writeDigits(text, 0, 4, date.getYear());
+        text[4] = '-';
+        writeDigits(text, 5, 2, date.getMonthValue());
+        text[7] = '-';
+        writeDigits(text, 8, 2, date.getDayOfMonth());
+    }
+
+    private static void writeDigits(char[] text, int offset, int count, int value) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            text[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /*
+        Returns null if the text is not a duration.
+        The form of the files, PTnHnMn.nS, is parsed by hand. Any other form (days, signs) goes through Duration.parse.
+     */
+    static Duration parseDuration(String text) {
+        if (text == null)
+            return null;
+        int length = text.length();
+        if (length < 4 || !text.startsWith("PT"))
+            return parseDurationLenient(text);
+
+        long seconds = 0;
+        int nanos = 0;
+        // Units which can come next: hours, minutes, seconds
+        int nextUnit = 0;
+        int i = 2;
+        while (i < length) {
+            int start = i;
+            while (i < length && isDigit(text.charAt(i)))
+                i++;
+            int count = i - start;
+            if (count == 0 || count > 9 || i == length)
+                return parseDurationLenient(text);
+            long value = digits(text, start, count);
+
+            char unit = text.charAt(i);
+            if (unit == '.') {
+                int fractionStart = ++i;
+                while (i < length && isDigit(text.charAt(i)))
+                    i++;
+                int fractionDigits = i - fractionStart;
+                if (fractionDigits == 0 || fractionDigits > 9 || i == length || text.charAt(i) != 'S' || nextUnit > 2)
+                    return parseDurationLenient(text);
+                nanos = digits(text, fractionStart, fractionDigits);
+                for (int j = fractionDigits; j < 9; j++)
+                    nanos *= 10;
+                unit = 'S';
+            }
+
+            if (unit == 'H' && nextUnit == 0) {
+                seconds += value * 3600;
+                nextUnit = 1;
+            } else if (unit == 'M' && nextUnit <= 1) {
+                seconds += value * 60;
+                nextUnit = 2;
+            } else if (unit == 'S' && nextUnit <= 2) {
+                seconds += value;
+                nextUnit = 3;
+            } else {
+                return parseDurationLenient(text);
+            }
+            i++;
+        }
+        return Duration.ofSeconds(seconds, nanos);
+    }
+
+    private static Duration parseDurationLenient(String text) {
+        try {
+            return Duration.parse(text);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean areDigits(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!isDigit(text.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    private static int digits(String text, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++)
+            value = value * 10 + (text.charAt(i) - '0');
+        return value;
+    }
+}
@@ -0,0 +1,171 @@
+package com.github.miachm.sods;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/*
+    Reads the central directory of a zip file, which java.util.zip.ZipFile doesn't expose:
+    where each entry starts in the file and how it's compressed.
+    It's used to copy entries raw, without inflating them.
+ */
+class ZipDirectory {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_END_OF_DIRECTORY = 0x06064b50;
+    private static final int END_OF_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    static class Entry {
+        final String name;
+        final int method;
+        final int flags;
+        final long crc;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(String name, int method, int flags, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.flags = flags;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        boolean isEncrypted() {
+            return (flags & 1) != 0;
+        }
+
+        /*
+            Offset of the compressed data. The extra field of the local header
+            may be different than the one of the central directory.
+         */
+        long dataOffset(RandomAccessFile file) throws IOException {
+            byte[] header = new byte[30];
+            file.seek(localHeaderOffset);
+            file.readFully(header);
+            if (readInt(header, 0) != LOCAL_HEADER)
+                throw new ZipException("Invalid local header of " + name);
+            return localHeaderOffset + 30 + readShort(header, 26) + readShort(header, 28);
+        }
+    }
+
+    private ZipDirectory() {
+    }
+
+    // The entries of the file by name, in the order of the directory
+    static Map<String, Entry> read(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            return read(in);
+        }
+    }
+
+    private static Map<String, Entry> read(RandomAccessFile in) throws IOException {
+        long length = in.length();
+        int tailLength = (int) Math.min(length, END_OF_DIRECTORY_SIZE + MAX_COMMENT);
+        byte[] tail = new byte[tailLength];
+        in.seek(length - tailLength);
+        in.readFully(tail);
+
+        int end = tailLength - END_OF_DIRECTORY_SIZE;
+        while (end >= 0 && readInt(tail, end) != END_OF_DIRECTORY)
+            end--;
+        if (end < 0)
+            throw new ZipException("End of central directory not found");
+
+        long count = readShort(tail, end + 10);
+        long directorySize = readInt(tail, end + 12) & 0xFFFFFFFFL;
+        long directoryOffset = readInt(tail, end + 16) & 0xFFFFFFFFL;
+
+        long endOffset = length - tailLength + end;
+        if ((count == 0xFFFF || directorySize == 0xFFFFFFFFL || directoryOffset == 0xFFFFFFFFL) && endOffset >= 20) {
+            byte[] locator = new byte[20];
+            in.seek(endOffset - 20);
+            in.readFully(locator);
+            if (readInt(locator, 0) == ZIP64_LOCATOR) {
+                byte[] zip64 = new byte[56];
+                in.seek(readLong(locator, 8));
+                in.readFully(zip64);
+                if (readInt(zip64, 0) != ZIP64_END_OF_DIRECTORY)
+                    throw new ZipException("Invalid zip64 end of central directory");
+                count = readLong(zip64, 32);
+                directorySize = readLong(zip64, 40);
+                directoryOffset = readLong(zip64, 48);
+            }
+        }
+
+        if (directorySize > Integer.MAX_VALUE || directoryOffset + directorySize > length)
+            throw new ZipException("Invalid central directory");
+
+        byte[] directory = new byte[(int) directorySize];
+        in.seek(directoryOffset);
+        in.readFully(directory);
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        int pos = 0;
+        for (long i = 0; i < count; i++) {
+            if (pos + 46 > directory.length || readInt(directory, pos) != CENTRAL_HEADER)
+                throw new ZipException("Invalid central directory header");
+
+            int flags = readShort(directory, pos + 8);
+            int method = readShort(directory, pos + 10);
+            long crc = readInt(directory, pos + 16) & 0xFFFFFFFFL;
+            long compressedSize = readInt(directory, pos + 20) & 0xFFFFFFFFL;
+            long size = readInt(directory, pos + 24) & 0xFFFFFFFFL;
+            int nameLength = readShort(directory, pos + 28);
+            int extraLength = readShort(directory, pos + 30);
+            int commentLength = readShort(directory, pos + 32);
+            long offset = readInt(directory, pos + 42) & 0xFFFFFFFFL;
+            if (pos + 46 + nameLength + extraLength > directory.length)
+                throw new ZipException("Invalid central directory header");
+            String name = new String(directory, pos + 46, nameLength, StandardCharsets.UTF_8);
+
+            // Zip64 extended information, only with the fields which don't fit in the header
+            int extra = pos + 46 + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = readShort(directory, extra);
+                int dataSize = readShort(directory, extra + 2);
+                int data = extra + 4;
+                if (id == 0x0001) {
+                    if (size == 0xFFFFFFFFL && data + 8 <= extraEnd) {
+                        size = readLong(directory, data);
+                        data += 8;
+                    }
+                    if (compressedSize == 0xFFFFFFFFL && data + 8 <= extraEnd) {
+                        compressedSize = readLong(directory, data);
+                        data += 8;
+                    }
+                    if (offset == 0xFFFFFFFFL && data + 8 <= extraEnd)
+                        offset = readLong(directory, data);
+                }
+                extra += 4 + dataSize;
+            }
+
+            entries.put(name, new Entry(name, method, flags, crc, compressedSize, size, offset));
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static int readShort(byte[] b, int pos) {
+        return (b[pos] & 0xFF) | (b[pos + 1] & 0xFF) << 8;
+    }
+
+    private static int readInt(byte[] b, int pos) {
+        return readShort(b, pos) | readShort(b, pos + 2) << 16;
+    }
+
+    private static long readLong(byte[] b, int pos) {
+        return (readInt(b, pos) & 0xFFFFFFFFL) | (long) readInt(b, pos + 4) << 32;
+    }
+}
@@ -0,0 +1,286 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+public class FormulaTest {
+    private static Object evaluate(String formula)
+    {
+        Sheet sheet = new Sheet("A", 1, 1);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0).setFormula(formula);
+        spread.recalculate();
+        return sheet.getRange(0, 0).getValue();
+    }
+
+    @Test
+    public void testOperators() throws Exception {
+        assertEquals(7.0, evaluate("=1+2*3"));
+        assertEquals(9.0, evaluate("=(1+2)*3"));
+        assertEquals(4.1, evaluate("=-2^2+10%"));
+        assertEquals(0.5, evaluate("=1/2"));
+        assertEquals("a1", evaluate("=\"a\"&1"));
+        assertEquals("say \"hi\"", evaluate("=\"say \"\"hi\"\"\""));
+        assertEquals(true, evaluate("=\"x\"=\"X\""));
+        assertEquals(true, evaluate("=1<\"a\""));
+        assertEquals(false, evaluate("=2<>2"));
+        assertEquals(1500.0, evaluate("=1.5e3"));
+    }
+
+    @Test
+    public void testFunctions() throws Exception {
+        Sheet sheet = new Sheet("A", 4, 4);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0, 4, 2).setValues(1, "a", 2, "b", 3, "c", 4, "d");
+        sheet.getRange(0, 2).setFormula("=SUM(A1:A4)");
+        sheet.getRange(1, 2).setFormula("=AVERAGE(A1:A4)");
+        sheet.getRange(2, 2).setFormula("=IF(MAX(A:A)>3;\"big\";\"small\")&MIN(A1:A4)");
+        sheet.getRange(3, 2).setFormula("=VLOOKUP(3;A1:B4;2;FALSE)");
+        sheet.getRange(0, 3).setFormula("=COUNT(A1:B4)");
+        sheet.getRange(1, 3).setFormula("=SUM(1,\"2\",TRUE)");
+        sheet.getRange(2, 3).setFormula("=VLOOKUP(2.5;A1:B4;2)");
+        sheet.getRange(3, 3).setFormula("=VLOOKUP(9;A1:B4;2;FALSE)");
+        spread.recalculate();
+
+        assertEquals(10.0, sheet.getRange(0, 2).getValue());
+        assertEquals(2.5, sheet.getRange(1, 2).getValue());
+        assertEquals("big1", sheet.getRange(2, 2).getValue());
+        assertEquals("c", sheet.getRange(3, 2).getValue());
+        assertEquals(4.0, sheet.getRange(0, 3).getValue());
+        assertEquals(4.0, sheet.getRange(1, 3).getValue());
+        assertEquals("b", sheet.getRange(2, 3).getValue());
+        assertEquals("#N/A", sheet.getRange(3, 3).getValue());
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        assertEquals("#DIV/0!", evaluate("=1/0"));
+        assertEquals("#DIV/0!", evaluate("=1+1/0"));
+        assertEquals("#VALUE!", evaluate("=1+\"a\""));
+        assertEquals("#REF!", evaluate("=Missing.A1"));
+        assertEquals("#DIV/0!", evaluate("=AVERAGE(B1:B4)"));
+    }
+
+    @Test
+    public void testSheets() throws Exception {
+        Sheet data = new Sheet("Data", 2, 1);
+        Sheet other = new Sheet("My sheet", 1, 3);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(data);
+        spread.appendSheet(other);
+        data.getRange(0, 0, 2, 1).setValues(5, 7);
+        data.getRange(1, 0).setFormula("='My sheet'.A1*2");
+        other.getRange(0, 0).setFormula("=Data!A1+1");
+        other.getRange(0, 1).setFormula("=SUM($Data.A1:A2)");
+        other.getRange(0, 2).setFormula("=$'Data'.$A$2");
+        spread.recalculate();
+
+        assertEquals(6.0, other.getRange(0, 0).getValue());
+        assertEquals(12.0, data.getRange(1, 0).getValue());
+        assertEquals(17.0, other.getRange(0, 1).getValue());
+        assertEquals(12.0, other.getRange(0, 2).getValue());
+    }
+
+    @Test
+    public void testCycles() throws Exception {
+        Sheet sheet = new Sheet("A", 2, 3);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0).setFormula("=B1+1");
+        sheet.getRange(0, 1).setFormula("=A1+1");
+        sheet.getRange(0, 2).setFormula("=C1");
+        sheet.getRange(1, 0).setFormula("=A1*2");
+        sheet.getRange(1, 1).setFormula("=COUNT(A1:C1)+1");
+        spread.recalculate();
+
+        assertEquals("Err:522", sheet.getRange(0, 0).getValue());
+        assertEquals("Err:522", sheet.getRange(0, 1).getValue());
+        assertEquals("Err:522", sheet.getRange(0, 2).getValue());
+        // The formulas which depend on a cycle are evaluated with its error
+        assertEquals("Err:522", sheet.getRange(1, 0).getValue());
+        assertEquals(1.0, sheet.getRange(1, 1).getValue());
+
+        sheet.getRange(0, 1).clear();
+        sheet.getRange(0, 1).setValue(3);
+        assertEquals(4.0, sheet.getRange(0, 0).getValue());
+        assertEquals(8.0, sheet.getRange(1, 0).getValue());
+        assertEquals(3.0, sheet.getRange(1, 1).getValue());
+    }
+
+    @Test
+    public void testIncremental() throws Exception {
+        Sheet sheet = new Sheet("A", 5, 2);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0, 3, 1).setValues(1, 2, 3);
+        sheet.getRange(0, 1).setFormula("=SUM(A:A)");
+        sheet.getRange(1, 1).setFormula("=B1*2");
+        spread.recalculate();
+        assertEquals(12.0, sheet.getRange(1, 1).getValue());
+
+        sheet.getRange(0, 0).setValue(10);
+        assertEquals(15.0, sheet.getRange(0, 1).getValue());
+        assertEquals(30.0, sheet.getRange(1, 1).getValue());
+
+        sheet.getRange(4, 0).setFormula("=1+1");
+        assertEquals(17.0, sheet.getRange(0, 1).getValue());
+        assertEquals(34.0, sheet.getRange(1, 1).getValue());
+
+        sheet.getRange(4, 0).clear();
+        sheet.getRange(1, 0, 2, 1).setDoubles(new double[][]{{0}, {0}});
+        assertEquals(10.0, sheet.getRange(0, 1).getValue());
+        assertEquals(20.0, sheet.getRange(1, 1).getValue());
+
+        // The sheet is scanned again when its structure changes
+        sheet.insertRowBefore(0);
+        sheet.getRange(0, 1).setFormula("=A2+1");
+        assertEquals(11.0, sheet.getRange(0, 1).getValue());
+    }
+
+    @Test
+    public void testStructureChanges() throws Exception {
+        Sheet sheet = new Sheet("A", 3, 4);
+        Sheet other = new Sheet("B", 1, 1);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        spread.appendSheet(other);
+        sheet.getRange(0, 0, 3, 1).setValues(1, 2, 3);
+        sheet.getRange(2, 1).setFormula("=A2*2");
+        sheet.getRange(0, 2).setFormula("=SUM(A:A)");
+        other.getRange(0, 0).setFormula("=A.A1*10");
+        spread.recalculate();
+        assertEquals(4.0, sheet.getRange(2, 1).getValue());
+
+        // The references are not adjusted, the formulas which read the moved cells keep their value
+        sheet.insertRowBefore(0);
+        sheet.getRange(2, 0).setValue(5);
+        sheet.getRange(1, 0).setValue(7);
+        assertEquals(4.0, sheet.getRange(3, 1).getValue());
+        assertEquals(10.0, other.getRange(0, 0).getValue());
+        assertEquals(15.0, sheet.getRange(1, 2).getValue());
+        spread.recalculate();
+        assertEquals(4.0, sheet.getRange(3, 1).getValue());
+
+        sheet.getRange(3, 1).setFormula("=A3*2");
+        assertEquals(10.0, sheet.getRange(3, 1).getValue());
+
+        // The columns before the deleted ones don't move
+        sheet.getRange(1, 3).setFormula("=A2+1");
+        sheet.deleteColumn(2);
+        sheet.getRange(1, 0).setValue(8);
+        assertEquals(9.0, sheet.getRange(1, 2).getValue());
+
+        sheet.setName("Renamed");
+        sheet.getRange(1, 0).setValue(9);
+        // Only the formulas which name the sheet are frozen
+        assertEquals(10.0, other.getRange(0, 0).getValue());
+        assertEquals(10.0, sheet.getRange(1, 2).getValue());
+    }
+
+    @Test
+    public void testWithoutRecalculate() throws Exception {
+        Sheet sheet = new Sheet("A", 1, 2);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0).setValue(1);
+        sheet.getRange(0, 1).setFormula("=A1+1");
+        assertEquals(null, sheet.getRange(0, 1).getValue());
+    }
+
+    @Test
+    public void testLoadedFormulas() throws Exception {
+        Sheet sheet = new Sheet("A", 2, 2);
+        Sheet other = new Sheet("B C", 1, 1);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        spread.appendSheet(other);
+        sheet.getRange(0, 0).setValue(1.5);
+        other.getRange(0, 0).setValue(2);
+        sheet.getRange(1, 0).setFormula("=SUM(A1:A1)*2.5+'B C'.A1");
+        spread.recalculate();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        SpreadSheet loaded = new SpreadSheet(new ByteArrayInputStream(out.toByteArray()));
+        Sheet first = loaded.getSheet(0);
+        first.getRange(0, 0).setValue(3);
+        loaded.recalculate();
+        assertEquals(9.5, first.getRange(1, 0).getValue());
+    }
+
+    @Test
+    public void testUnsupportedFormulas() throws Exception {
+        // The formulas the engine can't evaluate keep their value, and they are a plain value for the other formulas
+        assertEquals(null, evaluate("=FOO(1)"));
+        assertEquals(null, evaluate("=1+"));
+        assertEquals(null, evaluate("=MyRange*2"));
+
+        Sheet sheet = new Sheet("A", 2, 4);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0).setValue(2.6);
+        sheet.getRange(0, 1).setFormula("=ROUND(A1;0)");
+        sheet.getRange(0, 1).setValue(3.0);
+        sheet.getRange(0, 2).setFormula("=SUMIF(A1:A2;\">1\")");
+        sheet.getRange(0, 2).setValue(2.6);
+        sheet.getRange(0, 3).setFormula("=TODAY(");
+        sheet.getRange(0, 3).setValue("today");
+        sheet.getRange(1, 1).setFormula("=B1*2+C1");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        SpreadSheet loaded = new SpreadSheet(new ByteArrayInputStream(out.toByteArray()));
+        Sheet first = loaded.getSheet(0);
+        loaded.recalculate();
+        assertEquals(3.0, first.getRange(0, 1).getValue());
+        assertEquals(2.6, first.getRange(0, 2).getValue());
+        assertEquals("today", first.getRange(0, 3).getValue());
+        assertEquals(8.6, first.getRange(1, 1).getValue());
+
+        first.getRange(0, 0).setValue(5);
+        assertEquals(3.0, first.getRange(0, 1).getValue());
+        assertEquals(8.6, first.getRange(1, 1).getValue());
+        first.getRange(0, 1).setValue(4.0);
+        assertEquals(10.6, first.getRange(1, 1).getValue());
+    }
+
+    @Test
+    public void testParallelRecalculate() throws Exception {
+        int rows = 2000;
+        Sheet sheet = new Sheet("A", rows, 4);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        for (int i = 0; i < rows; i++) {
+            int row = i + 1;
+            sheet.getRange(i, 0).setValue(i);
+            sheet.getRange(i, 1).setFormula("=A" + row + "*2");
+            sheet.getRange(i, 2).setFormula("=B" + row + "+A" + row);
+        }
+        sheet.getRange(0, 3).setFormula("=SUM(C1:C" + rows + ")");
+        spread.recalculate(ForkJoinPool.commonPool());
+
+        assertEquals(3.0 * 1999, sheet.getRange(1999, 2).getValue());
+        assertEquals(3.0 * rows * (rows - 1) / 2, sheet.getRange(0, 3).getValue());
+
+        Object[][] values = new Object[rows][1];
+        for (int i = 0; i < rows; i++)
+            values[i][0] = 1;
+        sheet.getRange(0, 0, rows, 1).setValues(values);
+        assertEquals(3.0, sheet.getRange(1999, 2).getValue());
+        assertEquals(3.0 * rows, sheet.getRange(0, 3).getValue());
+    }
+
+    @Test
+    public void testOpenFormula() throws Exception {
+        assertEquals("=SUM(A1:C2)+D1*1.5", Cell.parseFormula("of:=SUM([.A1:.C2])+[.D1]*1.5"));
+        assertEquals("=$Sheet2.A1&\"[.x]\"", Cell.parseFormula("of:=[$Sheet2.A1]&\"[.x]\""));
+        assertEquals(3.0, evaluate(Cell.parseFormula("of:=[.B1]+1.5*2")));
+    }
+}
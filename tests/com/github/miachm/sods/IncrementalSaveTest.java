@@ -0,0 +1,214 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.testng.AssertJUnit.*;
+
+public class IncrementalSaveTest {
+
+    private static LoadOptions incrementalOptions() {
+        LoadOptions options = new LoadOptions();
+        options.setIncrementalSave(true);
+        return options;
+    }
+
+    private static byte[] save(SpreadSheet spread) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        return out.toByteArray();
+    }
+
+    private static String content(byte[] ods) throws Exception {
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(ods))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.getName().equals("content.xml")) {
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1)
+                        content.write(buffer, 0, read);
+                    return new String(content.toByteArray(), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static SpreadSheet generate() {
+        SpreadSheet spread = new SpreadSheet();
+        for (String name : new String[]{"A", "B", "C"}) {
+            Sheet sheet = new Sheet(name, 10, 5);
+            for (int row = 0; row < 10; row++)
+                for (int column = 0; column < 5; column++)
+                    sheet.getRange(row, column).setValue(name + (row * 5 + column));
+            sheet.getRange(0, 0, 1, 5).setFontBold(true);
+            sheet.getRange(2, 0, 3, 1).setBackgroundColor(new Color("#ff0000"));
+            sheet.setColumnWidth(1, 40.0);
+            sheet.setRowHeight(3, 12.0);
+            sheet.getRange(5, 1, 2, 2).merge();
+            spread.appendSheet(sheet);
+        }
+        spread.getSheet("C").hideSheet();
+        return spread;
+    }
+
+    @Test
+    public void testModifyOneSheet() throws Exception {
+        // A file written by this library, its style names are the same than the generated ones
+        byte[] bytes = save(generate());
+        SpreadSheet spread = new SpreadSheet(new ByteArrayInputStream(bytes), incrementalOptions());
+        for (Sheet sheet : spread.getSheets())
+            assertFalse(sheet.isDirty());
+
+        spread.getSheet("B").getRange(1, 1).setValue("Modified");
+        spread.getSheet("B").getRange(9, 4).setFontItalic(true);
+        assertTrue(spread.getSheet("B").isDirty());
+        assertFalse(spread.getSheet("A").isDirty());
+
+        byte[] saved = save(spread);
+        String content = content(saved);
+        for (String name : new String[]{"A", "C"}) {
+            byte[] original = spread.getSheet(name).getOriginalXml();
+            assertTrue(content.contains(new String(original, StandardCharsets.UTF_8)));
+        }
+
+        // The copied sheets are the same than in the file, the generated one is the same than with a regular save
+        SpreadSheet loaded = new SpreadSheet(new ByteArrayInputStream(saved));
+        SpreadSheet original = new SpreadSheet(new ByteArrayInputStream(bytes));
+        assertEquals(original.getSheet("A"), loaded.getSheet("A"));
+        assertEquals(original.getSheet("C"), loaded.getSheet("C"));
+
+        original.getSheet("B").getRange(1, 1).setValue("Modified");
+        original.getSheet("B").getRange(9, 4).setFontItalic(true);
+        SpreadSheet regular = new SpreadSheet(new ByteArrayInputStream(save(original)));
+        assertEquals(regular.getSheet("B"), loaded.getSheet("B"));
+    }
+
+    @Test
+    public void testSameResultThanRegularSave() throws Exception {
+        File[] files = new File("resources").listFiles((dir, name) -> name.endsWith(".ods"));
+        assertNotNull(files);
+        for (File file : files) {
+            SpreadSheet expected;
+            try {
+                expected = new SpreadSheet(file);
+            } catch (NotAnOdsException e) {
+                continue;
+            }
+            SpreadSheet spread = new SpreadSheet(file, incrementalOptions());
+            SpreadSheet regular = new SpreadSheet(file);
+            regular.getSheet(0).getRange(0, 0).setValue("Modified");
+            spread.getSheet(0).getRange(0, 0).setValue("Modified");
+
+            // The modified sheet is generated, the others are the same than in the file
+            SpreadSheet saved = new SpreadSheet(new ByteArrayInputStream(save(spread)));
+            SpreadSheet regularSaved = new SpreadSheet(new ByteArrayInputStream(save(regular)));
+            assertEquals(file.getName(), expected.getNumSheets(), saved.getNumSheets());
+            assertEquals(file.getName(), regularSaved.getSheet(0), saved.getSheet(0));
+            for (int i = 1; i < expected.getNumSheets(); i++)
+                assertEquals(file.getName(), expected.getSheet(i), saved.getSheet(i));
+        }
+    }
+
+    @Test
+    public void testChangesMarkTheSheetAsDirty() throws Exception {
+        byte[] bytes = save(generate());
+        SpreadSheet spread = new SpreadSheet(new ByteArrayInputStream(bytes), incrementalOptions());
+        Sheet sheet = spread.getSheet(0);
+        sheet.getRange(0, 0, 2, 2).getValues();
+        sheet.getRange(0, 0).getStyle();
+        assertFalse(sheet.isDirty());
+
+        Runnable[] changes = {
+                () -> sheet.getRange(0, 0).setValue(1.0),
+                () -> sheet.getRange(0, 0).setFormula("=1+1"),
+                () -> sheet.getRange(0, 0, 2, 2).setDoubles(new double[2][2]),
+                () -> sheet.getRange(0, 0).setFontUnderline(true),
+                () -> sheet.getRange(0, 0).clear(),
+                () -> sheet.getRange(8, 0, 2, 2).merge(),
+                () -> sheet.insertRowBefore(0),
+                () -> sheet.deleteColumn(0),
+                () -> sheet.hideRow(1),
+                () -> sheet.setColumnWidth(0, 10.0),
+                () -> sheet.hideSheet(),
+                () -> sheet.setName("Other"),
+        };
+        for (int i = 0; i < changes.length; i++) {
+            sheet.setOriginalXml(spread.getSheet(1).getOriginalContent(), new byte[0]);
+            changes[i].run();
+            assertTrue("Change " + i, sheet.isDirty());
+        }
+    }
+
+    @Test
+    public void testNotKeptWithPartialLoad() throws Exception {
+        byte[] bytes = save(generate());
+        LoadOptions options = incrementalOptions();
+        options.setWindow(0, 0, 2, 2);
+        SpreadSheet spread = new SpreadSheet(new ByteArrayInputStream(bytes), options);
+        for (Sheet sheet : spread.getSheets())
+            assertTrue(sheet.isDirty());
+
+        spread = new SpreadSheet(new ByteArrayInputStream(bytes));
+        for (Sheet sheet : spread.getSheets())
+            assertTrue(sheet.isDirty());
+    }
+
+    @Test
+    public void testInvalidChangesKeepTheSheet() throws Exception {
+        SpreadSheet spread = new SpreadSheet(new ByteArrayInputStream(save(generate())), incrementalOptions());
+        Sheet sheet = spread.getSheet("A");
+        Runnable[] changes = {
+            () -> sheet.appendRows(-1),
+            () -> sheet.appendColumns(0),
+            () -> sheet.deleteRows(5, 10),
+            () -> sheet.deleteColumns(-1, 1),
+            () -> sheet.insertRowsBefore(20, 1),
+            () -> sheet.hideRows(0, -1),
+            () -> sheet.setColumnWidth(10, 5.0),
+            () -> sheet.setRowHeights(8, 5, 2.0),
+        };
+        for (Runnable change : changes) {
+            try {
+                change.run();
+            } catch (IndexOutOfBoundsException | IllegalArgumentException e) {}
+            assertFalse(sheet.isDirty());
+        }
+    }
+
+    @Test
+    public void testKeepsTheOriginalStyles() throws Exception {
+        SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"), incrementalOptions());
+        byte[] saved = save(spread);
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(saved))) {
+            ZipEntry entry;
+            boolean styles = false;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.getName().equals("styles.xml")) {
+                    styles = true;
+                    assertTrue(readAll(in).length > 500);
+                }
+            }
+            assertTrue(styles);
+        }
+        assertEquals(new SpreadSheet(new File("resources/CAS.ods")), new SpreadSheet(new ByteArrayInputStream(saved)));
+    }
+
+    private static byte[] readAll(InputStream in) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+}
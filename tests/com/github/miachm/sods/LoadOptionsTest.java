@@ -0,0 +1,111 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.testng.AssertJUnit.*;
+
+public class LoadOptionsTest {
+
+    private static byte[] generate() throws Exception {
+        SpreadSheet spread = new SpreadSheet();
+        for (String name : new String[]{"A", "B", "C"}) {
+            Sheet sheet = new Sheet(name, 20, 10);
+            for (int row = 0; row < 20; row++)
+                for (int column = 0; column < 10; column++)
+                    sheet.getRange(row, column).setValue((double) (row * 10 + column));
+            sheet.getRange(0, 0, 20, 10).setFontBold(true);
+            sheet.getRange(1, 1).setFormula("=A1+1");
+            OfficeAnnotationBuilder annotation = new OfficeAnnotationBuilder();
+            annotation.setMsg("Note");
+            sheet.getRange(6, 3).setAnnotation(annotation.build());
+            sheet.getRange(7, 3, 3, 3).merge();
+            spread.appendSheet(sheet);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        return out.toByteArray();
+    }
+
+    private static SpreadSheet load(byte[] bytes, LoadOptions options, boolean parallel) throws Exception {
+        options.setParallel(parallel);
+        return new SpreadSheet(new ByteArrayInputStream(bytes), options);
+    }
+
+    @Test
+    public void testSheetNames() throws Exception {
+        byte[] bytes = generate();
+        SpreadSheet complete = new SpreadSheet(new ByteArrayInputStream(bytes));
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            LoadOptions options = new LoadOptions();
+            options.setSheetNames("C", "A", "Missing");
+            SpreadSheet spread = load(bytes, options, parallel);
+
+            assertEquals(2, spread.getNumSheets());
+            assertEquals(complete.getSheet("A"), spread.getSheet(0));
+            assertEquals(complete.getSheet("C"), spread.getSheet(1));
+        }
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        byte[] bytes = generate();
+        for (boolean parallel : new boolean[]{false, true}) {
+            LoadOptions options = new LoadOptions();
+            options.setWindow(5, 2, 4, 3);
+            SpreadSheet spread = load(bytes, options, parallel);
+
+            assertEquals(3, spread.getNumSheets());
+            Sheet sheet = spread.getSheet("B");
+            assertEquals(9, sheet.getMaxRows());
+            assertEquals(5, sheet.getMaxColumns());
+            for (int row = 0; row < 9; row++) {
+                for (int column = 0; column < 5; column++) {
+                    Object value = sheet.getRange(row, column).getValue();
+                    if (row >= 7 && column >= 3)
+                        assertEquals("Merged cells have the value of the first one", 73.0, value);
+                    else if (row >= 5 && column >= 2)
+                        assertEquals((double) (row * 10 + column), value);
+                    else
+                        assertNull(value);
+                }
+            }
+            assertTrue(sheet.getRange(6, 3).getStyle().isBold());
+            assertNotNull(sheet.getRange(6, 3).getAnnotation());
+
+            // The merged cells are cut by the window
+            Range[] merged = sheet.getRange(7, 3).getMergedCells();
+            assertEquals(1, merged.length);
+            assertEquals(2, merged[0].getNumRows());
+            assertEquals(2, merged[0].getNumColumns());
+        }
+    }
+
+    @Test
+    public void testValuesOnly() throws Exception {
+        byte[] bytes = generate();
+        for (boolean parallel : new boolean[]{false, true}) {
+            LoadOptions options = new LoadOptions();
+            options.setValuesOnly(true);
+            SpreadSheet spread = load(bytes, options, parallel);
+
+            Sheet sheet = spread.getSheet("A");
+            assertEquals(20, sheet.getMaxRows());
+            assertEquals(10, sheet.getMaxColumns());
+            assertEquals(66.0, sheet.getRange(6, 6).getValue());
+            assertFalse(sheet.getRange(6, 6).getStyle().isBold());
+            assertNull(sheet.getRange(1, 1).getFormula());
+            assertNull(sheet.getRange(6, 3).getAnnotation());
+            assertTrue(sheet.getRange(8, 4).isPartOfMerge());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeWindow() {
+        new LoadOptions().setWindow(0, -1, 10, 10);
+    }
+}
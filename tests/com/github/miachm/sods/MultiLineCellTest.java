@@ -2,6 +2,8 @@ package com.github.miachm.sods;
 
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 
@@ -33,6 +35,24 @@ public class MultiLineCellTest {
         assertValueInCellEquals(2, 1, 1, "jk\nlm\nno");
     }
 
+    @Test
+    public void testWriteTextRuns() throws Exception {
+        String[] texts = {"plain", "two  spaces and one", " leading", "trailing ", "line\nbreak\n", "emoji \uD83D\uDE00 in\ttext", ""};
+        Sheet sheet = new Sheet("Text", texts.length, 1);
+        for (int i = 0; i < texts.length; i++)
+            sheet.getRange(i, 0).setValue(texts[i]);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        Sheet loaded = new SpreadSheet(new ByteArrayInputStream(out.toByteArray())).getSheet(0);
+        for (int i = 0; i < texts.length - 2; i++)
+            assertEquals(texts[i], loaded.getRange(i, 0).getValue());
+        // The reader drops the tabs
+        assertEquals("emoji \uD83D\uDE00 intext", loaded.getRange(texts.length - 2, 0).getValue());
+    }
+
     private void assertValueInCellEquals(int sheetNumber, int row, int column, String expectedValue) throws IOException {
         // Load example spreadsheet
         File testFile = new File("resources/CAS.ods");
@@ -0,0 +1,97 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.NoSuchElementException;
+
+import static org.testng.AssertJUnit.*;
+
+public class OdsStreamReaderTest {
+
+    private void assertSameContent(SpreadSheet spread, OdsStreamReader reader) throws Exception {
+        while (reader.hasNext()) {
+            SheetRowEvent event = reader.next();
+            Sheet sheet = spread.getSheet(event.getSheetIndex());
+            assertEquals(sheet.getName(), event.getSheetName());
+
+            for (int i = 0; i < event.getNumRuns(); i++) {
+                for (int r = 0; r < event.getRowsRepeated(); r++) {
+                    for (int c = 0; c < event.getColumnsRepeated(i); c++) {
+                        Range range = sheet.getRange(event.getRow() + r, event.getColumn(i) + c);
+                        assertEquals(range.getValue(), event.getValue(i));
+                        assertEquals(range.getFormula(), event.getFormula(i));
+                        assertEquals(range.getAnnotation(), event.getAnnotation(i));
+                    }
+                }
+            }
+        }
+        reader.close();
+    }
+
+    @Test
+    public void testSameContentThanLoad() throws Exception {
+        String[] files = {"resources/Jay.ods", "resources/Timelog.ods", "resources/currency.ods",
+                "resources/repeatedRows.ods", "resources/cellEmptyValues.ods"};
+        for (String file : files) {
+            SpreadSheet spread = new SpreadSheet(new File(file));
+            assertSameContent(spread, new OdsStreamReader(new File(file)));
+        }
+    }
+
+    @Test
+    public void testSavedSpreadsheet() throws Exception {
+        SpreadSheet spread = new SpreadSheet();
+        Sheet first = new Sheet("First", 3, 3);
+        first.getDataRange().setValues(1, 2, 3, "a", "b", "c", null, null, 9);
+        first.getRange(0, 0).setFontBold(true);
+        first.getRange(1, 1).setFormula("A1+B1");
+        Sheet second = new Sheet("Second", 2, 2);
+        second.getRange(1, 1).setValue("last");
+        spread.appendSheet(first);
+        spread.appendSheet(second);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+
+        OdsStreamReader reader = new OdsStreamReader(new ByteArrayInputStream(out.toByteArray()));
+        SheetRowEvent row = reader.next();
+        assertEquals("First", row.getSheetName());
+        assertEquals(0, row.getRow());
+        assertEquals(3, row.getValues().length);
+        assertEquals(1.0, row.getValues()[0]);
+        assertTrue(row.getStyle(0).isBold());
+
+        row = reader.next();
+        assertEquals("A1+B1", row.getFormula(1));
+
+        row = reader.next();
+        assertEquals(2, row.getRow());
+        assertNull(row.getValues()[0]);
+        assertEquals(9.0, row.getValues()[2]);
+
+        row = reader.next();
+        assertEquals("Second", row.getSheetName());
+        assertEquals(1, row.getSheetIndex());
+        assertEquals(0, row.getValues().length);
+
+        row = reader.next();
+        assertEquals(1, row.getRow());
+        assertEquals("last", row.getValues()[1]);
+
+        assertFalse(reader.hasNext());
+        try {
+            reader.next();
+            fail();
+        } catch (NoSuchElementException e) {}
+        reader.close();
+    }
+
+    @Test(expectedExceptions = NotAnOdsException.class)
+    public void testNotAnOds() throws Exception {
+        OdsStreamReader reader = new OdsStreamReader(new ByteArrayInputStream(new byte[16]));
+        reader.hasNext();
+    }
+}
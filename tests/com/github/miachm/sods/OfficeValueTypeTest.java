@@ -19,6 +19,8 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
 import java.util.Map;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -77,11 +79,25 @@ public class OfficeValueTypeTest {
     }
 
     @Test
-    public void testReadCurrency() {
+    public void testReadCurrency() throws Exception {
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put("office:value", "12.5");
+        attributes.put("office:currency", "EUR");
+        assertEquals(new OfficeCurrency(Currency.getInstance("EUR"), 12.5), OfficeValueType.CURRENCY.read(new FakeReader(attributes)));
+
+        attributes.put("office:value", "abc");
+        assertEquals(new OfficeCurrency(Currency.getInstance("EUR"), null), OfficeValueType.CURRENCY.read(new FakeReader(attributes)));
     }
 
     @Test
-    public void testWriteCurrency() {
+    public void testWriteCurrency() throws Exception {
+        assertWrite(OfficeValueType.CURRENCY, new OfficeCurrency(Currency.getInstance("EUR"), 1234.56789))
+                .containsAttribute("office:value-type", "currency")
+                .containsAttribute("office:value", "1234.56789")
+                .containsAttribute("office:currency", "EUR");
+
+        assertWrite(OfficeValueType.CURRENCY, new OfficeCurrency(Currency.getInstance("USD"), 5.0))
+                .containsAttribute("office:value", "5");
     }
 
     @Test
@@ -97,6 +113,19 @@ public class OfficeValueTypeTest {
 
         assertRead(OfficeValueType.DATE, "", "2003-04-17")
                 .isNull();
+
+        assertRead(OfficeValueType.DATE, "office:date-value", "2003-04-17T03:30:00.125")
+                .isEqualTo(LocalDateTime.of(2003, 4, 17, 3, 30, 0, 125_000_000));
+
+        // Other forms of ISO dates are still read
+        assertRead(OfficeValueType.DATE, "office:date-value", "2003-04-17T03:30")
+                .isEqualTo(LocalDateTime.of(2003, 4, 17, 3, 30, 0));
+
+        assertRead(OfficeValueType.DATE, "office:date-value", "2003-02-30")
+                .isNull();
+
+        assertRead(OfficeValueType.DATE, "office:date-value", "2003-04-17T25:30:00")
+                .isNull();
     }
 
     @Test
@@ -109,6 +138,9 @@ public class OfficeValueTypeTest {
                 .containsAttribute("office:value-type", "date")
                 .containsAttribute("office:date-value", "2003-04-17T03:30:00");
 
+        assertWrite(OfficeValueType.DATE, LocalDateTime.of(2003, 4, 17, 3, 30, 0, 120_000_000))
+                .containsAttribute("office:date-value", "2003-04-17T03:30:00.12");
+
         assertWrite(OfficeValueType.DATE, "")
                 .doesNotContainAttribute("office:value-type")
                 .doesNotContainAttribute("office:date-value");
@@ -128,6 +160,23 @@ public class OfficeValueTypeTest {
 
         assertRead(OfficeValueType.FLOAT, "", "3.14")
                 .isNull();
+
+        String[] numbers = {"0", "-0", "42", "-17.25", "0.1", "0.000123", "1E10", "1.5e-7", "123456789012345678",
+                "3.141592653589793238", "1.7976931348623157E308", "4.9E-324", "2.2250738585072014E-308", ".5", "7."};
+        for (String number : numbers) {
+            assertRead(OfficeValueType.FLOAT, "office:value", number)
+                    .isEqualTo(Double.parseDouble(number));
+        }
+
+        assertRead(OfficeValueType.FLOAT, "office:value", "INF")
+                .isEqualTo(Double.POSITIVE_INFINITY);
+
+        // Numbers with grouping separators are still read
+        assertRead(OfficeValueType.FLOAT, "office:value", "1,234.5")
+                .isEqualTo(1234.5);
+
+        assertRead(OfficeValueType.FLOAT, "office:value", "abc")
+                .isNull();
     }
 
     @Test
@@ -146,11 +195,22 @@ public class OfficeValueTypeTest {
     }
 
     @Test
-    public void testReadPercentage() {
+    public void testReadPercentage() throws Exception {
+        assertRead(OfficeValueType.PERCENTAGE, "office:value", "0.255")
+                .isEqualTo(new OfficePercentage(0.255));
+
+        assertRead(OfficeValueType.PERCENTAGE, "office:value", "")
+                .isEqualTo(new OfficePercentage((Double) null));
     }
 
     @Test
-    public void testWritePercentage() {
+    public void testWritePercentage() throws Exception {
+        assertWrite(OfficeValueType.PERCENTAGE, new OfficePercentage(0.123456))
+                .containsAttribute("office:value-type", "percentage")
+                .containsAttribute("office:value", "0.123456");
+
+        assertWrite(OfficeValueType.PERCENTAGE, new OfficePercentage(1500.0))
+                .containsAttribute("office:value", "1500");
     }
 
     @Test
@@ -183,6 +243,22 @@ public class OfficeValueTypeTest {
 
         assertRead(OfficeValueType.TIME, "", "PT03H30M00S")
                 .isNull();
+
+        assertRead(OfficeValueType.TIME, "office:time-value", "PT1.5S")
+                .isEqualTo(Duration.ofMillis(1500));
+
+        assertRead(OfficeValueType.TIME, "office:time-value", "PT30M")
+                .isEqualTo(Duration.ofMinutes(30));
+
+        // Other forms of durations are still read
+        assertRead(OfficeValueType.TIME, "office:time-value", "P1DT2H")
+                .isEqualTo(Duration.ofHours(26));
+
+        assertRead(OfficeValueType.TIME, "office:time-value", "-PT1H")
+                .isEqualTo(Duration.ofHours(-1));
+
+        assertRead(OfficeValueType.TIME, "office:time-value", "PT1M2H")
+                .isNull();
     }
 
     @Test
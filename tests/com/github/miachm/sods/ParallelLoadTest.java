@@ -0,0 +1,100 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.AssertJUnit.*;
+
+public class ParallelLoadTest {
+
+    private static LoadOptions parallelOptions() {
+        LoadOptions options = new LoadOptions();
+        options.setParallel(true);
+        options.setPool(new ForkJoinPool(4));
+        return options;
+    }
+
+    @Test
+    public void testSameResultThanSequential() throws Exception {
+        File[] files = new File("resources").listFiles((dir, name) -> name.endsWith(".ods"));
+        assertNotNull(files);
+        for (File file : files) {
+            SpreadSheet expected;
+            try {
+                expected = new SpreadSheet(file);
+            } catch (NotAnOdsException e) {
+                continue;
+            }
+            assertEquals(file.getName(), expected, new SpreadSheet(file, parallelOptions()));
+        }
+    }
+
+    @Test
+    public void testManySheets() throws Exception {
+        SpreadSheet spread = new SpreadSheet();
+        for (int i = 0; i < 8; i++) {
+            Sheet sheet = new Sheet("Sheet " + i, 50, 6);
+            for (int row = 0; row < 50; row++)
+                for (int column = 0; column < 6; column++)
+                    sheet.getRange(row, column).setValue(row % 3 == 0 ? "Text " + row : (Object) (double) (row * column + i));
+            sheet.getRange(0, 0, 1, 6).setFontBold(true);
+            sheet.getRange(10, 1, 2, 2).merge();
+            sheet.getRange(20, 2).setFormula("=SUM(A1:A5)");
+            spread.appendSheet(sheet);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        byte[] bytes = out.toByteArray();
+
+        SpreadSheet expected = new SpreadSheet(new ByteArrayInputStream(bytes));
+        SpreadSheet actual = new SpreadSheet(new ByteArrayInputStream(bytes), parallelOptions());
+        assertEquals(8, actual.getNumSheets());
+        for (int i = 0; i < 8; i++)
+            assertEquals("Sheet " + i, actual.getSheet(i).getName());
+        assertEquals(expected, actual);
+    }
+
+    private static void assertSameContent(String xml, int sheets) throws Exception {
+        SpreadSheet expected = new SpreadSheet();
+        StylesParser stylesParser = new StylesParser();
+        OdsReader.parseContent(new XmlReaderCursorImpl().load(new StringReader(xml)), stylesParser, new SpreadsheetParser(stylesParser, expected));
+
+        SpreadSheet actual = new SpreadSheet();
+        stylesParser = new StylesParser();
+        new ParallelContentParser(stylesParser, new SpreadsheetParser(stylesParser, actual), actual, ForkJoinPool.commonPool())
+                .parse(xml.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(sheets, actual.getNumSheets());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testTablesLocation() throws Exception {
+        String tables = "<table:table table:name=\"First\"><table:table-row><table:table-cell office:value-type=\"string\">"
+                + "<text:p>a &gt; b <![CDATA[</table:table>]]></text:p></table:table-cell></table:table-row></table:table>"
+                + "<!-- <table:table> --><table:table table:name=\"Empty\"/>"
+                + "<table:table table:name=\"Third\" table:print=\"false\"><table:table-row><table:table-cell/></table:table-row></table:table>";
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<office:document-content xmlns:office=\"urn:oasis:names:tc:opendocument:xmlns:office:1.0\""
+                + " xmlns:table=\"urn:oasis:names:tc:opendocument:xmlns:table:1.0\">"
+                + "<office:automatic-styles/><office:body><office:spreadsheet xmlns:text='urn:oasis:names:tc:opendocument:xmlns:text:1.0'>"
+                + tables
+                + "</office:spreadsheet></office:body></office:document-content>";
+        assertSameContent(xml, 3);
+
+        // A DTD could declare entities, the content is parsed sequentially
+        assertSameContent(xml.replace("<office:document-content ", "<!DOCTYPE office:document-content><office:document-content "), 3);
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void testNullOptions() throws Exception {
+        new SpreadSheet(new ByteArrayInputStream(new byte[0]), null);
+    }
+}
@@ -2,11 +2,17 @@ package com.github.miachm.sods;
 
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.time.LocalDateTime;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.testng.Assert.fail;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
 
 public class RangeTest {
     @Test
@@ -931,4 +937,389 @@ public class RangeTest {
         assertEquals(arr[1][1], null);
         assertEquals(arr[1][2], annotation);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStylesAreShared() {
+        Sheet sheet = new Sheet("A", 20, 20);
+        sheet.getDataRange().setFontBold(true);
+        Style shared = sheet.getCell(0, 0).getStyleDangerous();
+        assertSame(shared, sheet.getCell(19, 19).getStyleDangerous());
+
+        Style style = new Style();
+        style.setBold(true);
+        sheet.getRange(5, 5).setStyle(style);
+        assertSame(shared, sheet.getCell(5, 5).getStyleDangerous());
+
+        sheet.getRange(0, 0).setFontItalic(true);
+        assertTrue(sheet.getRange(0, 0).getStyle().isItalic());
+        assertFalse(sheet.getRange(0, 1).getStyle().isItalic());
+        assertFalse(shared.isItalic());
+
+        sheet.getRange(1, 1).getStyle().setUnderline(true);
+        assertFalse(sheet.getRange(1, 1).getStyle().isUnderline());
+        style.setUnderline(true);
+        assertFalse(sheet.getRange(5, 5).getStyle().isUnderline());
+    }
+
+    @Test
+    public void testDoubles() throws Exception {
+        Sheet sheet = new Sheet("A", 4, 5);
+        sheet.getRange(3, 4).setValue("text");
+        double[][] values = {
+                {1, 2, 2, Double.NaN, 5},
+                {0.5, -1, Double.NaN, 7, 7},
+                {1e10, 3, 3, 3, 3},
+                {4, 4, 4, 4, Double.NaN}
+        };
+        sheet.getDataRange().setDoubles(values);
+
+        assertTrue(sheet.getRowForReading(0).isPacked());
+        assertFalse(sheet.getRowForReading(3).isPacked());
+        assertEquals(2.0, sheet.getRange(0, 2).getValue());
+        assertNull(sheet.getRange(0, 3).getValue());
+        assertNull(sheet.getRange(3, 4).getValue());
+
+        double[][] read = sheet.getDataRange().getDoubles();
+        for (int i = 0; i < values.length; i++)
+            for (int j = 0; j < values[i].length; j++)
+                assertEquals(values[i][j], read[i][j]);
+
+        Sheet expected = new Sheet("A", 4, 5);
+        Object[][] boxed = sheet.getDataRange().getValues();
+        expected.getDataRange().setValues(boxed);
+        assertEquals(expected, sheet);
+
+        sheet.getRange(1, 1).setFontBold(true);
+        assertFalse(sheet.getRowForReading(1).isPacked());
+        assertEquals(-1.0, sheet.getRange(1, 1).getValue());
+
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        Sheet loaded = new SpreadSheet(new ByteArrayInputStream(out.toByteArray())).getSheet(0);
+        assertTrue(loaded.getRowForReading(0).isPacked());
+        assertTrue(loaded.getRange(1, 1).getStyle().isBold());
+        assertEquals(sheet, loaded);
+    }
+
+    @Test
+    public void testColumnValues() throws Exception {
+        Sheet sheet = new Sheet("A", 4, 4);
+        Range range = sheet.getRange(1, 1, 3, 2);
+        range.setColumnValues(1, new Object[]{1.0, "two", null});
+        range.setColumnValues(0, new Object[]{"a", "b", "c"});
+
+        assertEquals("two", sheet.getRange(2, 2).getValue());
+        assertNull(sheet.getRange(3, 2).getValue());
+        assertEquals("c", sheet.getRange(3, 1).getValue());
+        assertNull(sheet.getRange(0, 1).getValue());
+
+        Object[] column = range.getColumnValues(1);
+        assertEquals(3, column.length);
+        assertEquals(1.0, column[0]);
+        assertEquals("two", column[1]);
+        assertNull(column[2]);
+
+        try {
+            range.setColumnValues(2, new Object[3]);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            range.getColumnValues(-1);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+        }
+        try {
+            range.setColumnValues(0, new Object[2]);
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void testBulkEditSplitsRuns() throws Exception {
+        // Runs of equal cells, a merged group and a packed row, edited by a range which covers them partially
+        Sheet sheet = runsSheet();
+        Sheet expected = runsSheet();
+        Object[][] values = new Object[5][5];
+        for (int i = 0; i < 5; i++)
+            for (int j = 0; j < 5; j++)
+                values[i][j] = i * 10.0 + j;
+
+        sheet.getRange(1, 1, 5, 5).setValues(values);
+        sheet.getRange(1, 1, 5, 5).setFontItalic(true);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                expected.getRange(1 + i, 1 + j).setValue(values[i][j]);
+                expected.getRange(1 + i, 1 + j).setFontItalic(true);
+            }
+        }
+        assertEquals(expected, sheet);
+        assertEquals("same", sheet.getRange(1, 0).getValue());
+        assertEquals("same", sheet.getRange(1, 6).getValue());
+        assertEquals(8.0, sheet.getRange(5, 7).getValue());
+    }
+
+    @Test
+    public void testCursor() {
+        Sheet sheet = runsSheet();
+        sheet.getRange(0, 2, 2, 3).setFontBold(true);
+        sheet.getRange(2, 3).setFormula("=1+1");
+
+        assertCursor(sheet.getDataRange());
+        assertCursor(sheet.getRange(1, 1, 4, 5));
+        assertCursor(sheet.getRange(3, 1, 2, 1));
+
+        CellCursor cursor = new Sheet("B", 2, 8).getDataRange().cursor();
+        int runs = 0;
+        while (cursor.next())
+            runs++;
+        assertEquals(2, runs);
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void testCursorPackedAndEmpty() {
+        Sheet sheet = new Sheet("A", 3, 6);
+        sheet.getRange(0, 0, 2, 3).setDoubles(new double[][]{{1, 2, 3}, {4, Double.NaN, 6}});
+        sheet.packRows();
+        assertCursor(sheet.getRange(0, 0, 2, 6));
+
+        sheet.packRows();
+        CellCursor cursor = sheet.getRange(1, 1, 1, 5).cursor();
+        assertTrue(cursor.next());
+        assertTrue(Double.isNaN(cursor.doubleValue()));
+        assertTrue(cursor.next());
+        assertEquals(6.0, cursor.doubleValue());
+        assertEquals(6.0, cursor.value());
+        assertNull(cursor.stringValue());
+        assertTrue(cursor.next());
+        assertEquals(3, cursor.column());
+        assertEquals(3, cursor.repeatCount());
+        assertNull(cursor.value());
+        assertFalse(cursor.next());
+
+        assertFalse(new Range(sheet, 0, 0, 2, 0).cursor().next());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCursorBeforeNext() {
+        new Sheet("A").getDataRange().cursor().value();
+    }
+
+    @Test
+    public void testStats() {
+        Sheet sheet = runsSheet();
+        sheet.getRange(0, 0, 3, 8).setValue(2.5);
+        sheet.getRange(3, 0).setValue(-1);
+        sheet.packRows();
+        assertStats(sheet.getDataRange());
+        assertStats(sheet.getRange(1, 3, 5, 4));
+        assertStats(sheet.getRange(4, 1, 2, 3));
+
+        RangeStatistics stats = sheet.getDataRange().stats();
+        assertEquals(3 * 8 + 4 + 8, stats.getCount());
+        assertEquals(2.5 * 24 - 4 + 36, stats.getSum());
+        assertEquals(-1.0, stats.getMin());
+        assertEquals(8.0, stats.getMax());
+
+        Range texts = sheet.getRange(3, 2, 2, 6);
+        assertEquals(0, texts.count());
+        assertEquals(0.0, texts.sum());
+        assertTrue(Double.isNaN(texts.min()));
+        assertTrue(Double.isNaN(texts.average()));
+    }
+
+    @Test
+    public void testParallelStats() {
+        Sheet sheet = new Sheet("A", 100000, 4);
+        sheet.getRange(0, 0, 50000, 4).setValue(1);
+        sheet.getRange(0, 3, 100000, 1).setValue(3);
+        sheet.trim();
+        double[][] numbers = new double[1000][4];
+        for (int i = 0; i < numbers.length; i++)
+            numbers[i] = new double[]{i, -i, Double.NaN, i * 2};
+        sheet.getRange(60000, 0, 1000, 4).setDoubles(numbers);
+
+        Range range = sheet.getRange(10, 0, 99980, 4);
+        RangeStatistics sequential = range.stats();
+        RangeStatistics parallel = range.stats(ForkJoinPool.commonPool());
+        assertEquals(sequential.getCount(), parallel.getCount());
+        assertEquals(sequential.getSum(), parallel.getSum(), 1e-6);
+        assertEquals(-999.0, parallel.getMin());
+        assertEquals(1998.0, parallel.getMax());
+        assertEquals(49990L * 3 + 99980 + 2000, parallel.getCount());
+    }
+
+    // Checks that the cursor covers every cell of the range once, with the content of getValues() and getStyles()
+    private static void assertCursor(Range range) {
+        Object[][] values = range.getValues();
+        int[][] visits = new int[range.getNumRows()][range.getNumColumns()];
+
+        CellCursor cursor = range.cursor();
+        while (cursor.next()) {
+            assertTrue(cursor.repeatCount() > 0);
+            int row = cursor.row() - range.getRow();
+            for (int i = 0; i < cursor.repeatCount(); i++) {
+                int column = cursor.column() - range.getColumn() + i;
+                visits[row][column]++;
+                assertEquals(values[row][column], cursor.value());
+            }
+        }
+
+        for (int[] row : visits)
+            for (int visit : row)
+                assertEquals(1, visit);
+
+        // getFormulas() and getStyles() can unpack the rows, so they are compared with a new cursor
+        String[][] formulas = range.getFormulas();
+        Style[][] styles = range.getStyles();
+        cursor = range.cursor();
+        while (cursor.next()) {
+            int row = cursor.row() - range.getRow();
+            for (int i = 0; i < cursor.repeatCount(); i++) {
+                int column = cursor.column() - range.getColumn() + i;
+                assertEquals(formulas[row][column], cursor.formula());
+                assertEquals(styles[row][column], cursor.style());
+            }
+        }
+    }
+
+    @Test
+    public void testSortRows() {
+        Sheet sheet = new Sheet("A", 8, 3);
+        sheet.getRange(0, 0, 8, 3).setValues(
+                "b", 2, "r0",
+                "a", 1, "r1",
+                null, 0, "r2",
+                "B", 1, "r3",
+                3, 9, "r4",
+                "a", 5, "r5",
+                true, 0, "r6",
+                "a", 5, "r7");
+        sheet.getRange(1, 0, 1, 3).setFontBold(true);
+        sheet.getRange(5, 0, 1, 3).setValue("a");
+        sheet.getRange(5, 1).setValue(5);
+        sheet.trim();
+
+        sheet.getDataRange().sort(new SortSpec(0), new SortSpec(1, false));
+        assertEquals("[3, a, a, a, b, B, true, null]", java.util.Arrays.toString(sheet.getDataRange().getColumnValues(0)));
+        assertEquals("[9, 5, 5, 1, 2, 1, 0, 0]", java.util.Arrays.toString(sheet.getDataRange().getColumnValues(1)));
+        assertEquals("r4", sheet.getRange(0, 2).getValue());
+        assertEquals("r1", sheet.getRange(3, 2).getValue());
+        assertTrue(sheet.getRange(3, 2).getStyle().isBold());
+        assertFalse(sheet.getRange(1, 2).getStyle().isBold());
+        assertEquals("r2", sheet.getRange(7, 2).getValue());
+
+        sheet.getRange(0, 0, 8, 1).sort(new SortSpec(0, false));
+        assertEquals("[true, b, B, a, a, a, 3, null]", java.util.Arrays.toString(sheet.getDataRange().getColumnValues(0)));
+        assertEquals("r4", sheet.getRange(0, 2).getValue());
+    }
+
+    @Test
+    public void testSortMergedCells() {
+        Sheet sheet = new Sheet("A", 3, 4);
+        sheet.getRange(0, 0, 3, 1).setValues(3, 1, 2);
+        sheet.getRange(0, 1, 1, 2).merge();
+        sheet.getRange(0, 1).setValue("merged");
+
+        sheet.getRange(0, 0, 3, 3).sort(new SortSpec(0));
+        assertEquals(1, sheet.getRange(0, 0).getValue());
+        assertEquals("merged", sheet.getRange(2, 1).getValue());
+        Range[] merged = sheet.getDataRange().getMergedCells();
+        assertEquals(1, merged.length);
+        assertEquals(2, merged[0].getRow());
+        assertEquals(1, merged[0].getColumn());
+        assertEquals(2, merged[0].getNumColumns());
+
+        sheet.getRange(0, 3, 2, 1).merge();
+        try {
+            sheet.getDataRange().sort(new SortSpec(0, false));
+            fail();
+        } catch (IllegalArgumentException e) {}
+        try {
+            sheet.getRange(0, 0, 3, 2).sort(new SortSpec(0, false));
+            fail();
+        } catch (IllegalArgumentException e) {}
+        assertEquals(1, sheet.getRange(0, 0).getValue());
+    }
+
+    @Test
+    public void testSortLargeRange() {
+        int rows = 50000;
+        Sheet sheet = new Sheet("A", rows, 2);
+        double[][] numbers = new double[rows][2];
+        for (int i = 0; i < rows; i++)
+            numbers[i] = new double[]{(i * 7919L) % 1000, i};
+        sheet.getDataRange().setDoubles(numbers);
+        sheet.getDataRange().sort(new SortSpec(0));
+
+        double[][] sorted = sheet.getDataRange().getDoubles();
+        for (int i = 1; i < rows; i++) {
+            assertTrue(sorted[i - 1][0] <= sorted[i][0]);
+            if (sorted[i - 1][0] == sorted[i][0])
+                assertTrue(sorted[i - 1][1] < sorted[i][1]);
+        }
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testSortInvalidColumn() {
+        new Sheet("A", 2, 2).getRange(0, 0, 2, 1).sort(new SortSpec(1));
+    }
+
+    // Checks the statistics of the range against the numbers returned by getDoubles()
+    private static void assertStats(Range range) {
+        long count = 0;
+        double sum = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        for (double[] row : range.getDoubles()) {
+            for (double value : row) {
+                if (Double.isNaN(value))
+                    continue;
+                count++;
+                sum += value;
+                min = count == 1 ? value : Math.min(min, value);
+                max = count == 1 ? value : Math.max(max, value);
+            }
+        }
+        RangeStatistics stats = range.stats();
+        assertEquals(count, stats.getCount());
+        assertEquals(sum, stats.getSum(), 1e-9);
+        assertEquals(min, stats.getMin());
+        assertEquals(max, stats.getMax());
+        assertEquals(count, range.count());
+        assertEquals(sum / count, range.average(), 1e-9);
+    }
+
+    private static Sheet runsSheet() {
+        Sheet sheet = new Sheet("A", 6, 8);
+        sheet.getRange(0, 0, 6, 8).setValue("same");
+        sheet.trim();
+        sheet.getRange(3, 0, 2, 2).merge();
+        sheet.getRange(5, 0, 1, 8).setDoubles(new double[][]{{1, 2, 3, 4, 5, 6, 7, 8}});
+        return sheet;
+    }
+
+    @Test
+    public void testUnusedStylesAreNotSaved() throws Exception {
+        Sheet sheet = new Sheet("A", 2, 2);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        for (int i = 0; i < 100; i++)
+            sheet.getRange(0, 0).setFontSize(i + 1);
+        sheet.getRange(1, 0, 1, 2).setFontBold(true);
+        assertTrue(sheet.getStylePool().getStyles().size() > 100);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out);
+        assertEquals(2, sheet.getStylePool().getStyles().size());
+
+        Sheet loaded = new SpreadSheet(new ByteArrayInputStream(out.toByteArray())).getSheet(0);
+        assertEquals(100, loaded.getRange(0, 0).getStyle().getFontSize());
+        assertTrue(loaded.getRange(1, 1).getStyle().isBold());
+        assertEquals(2, loaded.getStylePool().getStyles().size());
+    }
+}
@@ -0,0 +1,188 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.testng.AssertJUnit.*;
+
+public class SaveOptionsTest {
+
+    private static SpreadSheet generate(int rows) {
+        SpreadSheet spread = new SpreadSheet();
+        Sheet sheet = new Sheet("Data", rows, 4);
+        for (int row = 0; row < rows; row++) {
+            sheet.getRange(row, 0).setValue("Row " + row);
+            sheet.getRange(row, 1).setValue((double) row * 3);
+            sheet.getRange(row, 2).setValue(row % 7 == 0 ? "Repeated" : "Text " + (row * 31 % 1000));
+        }
+        sheet.getRange(0, 0, 1, 4).setFontBold(true);
+        spread.appendSheet(sheet);
+        return spread;
+    }
+
+    private static byte[] save(SpreadSheet spread, SaveOptions options) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        spread.save(out, options);
+        return out.toByteArray();
+    }
+
+    // Reads every entry, so the CRC and the sizes of the entries are checked
+    private static void checkEntries(byte[] ods) throws Exception {
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(ods))) {
+            byte[] buffer = new byte[4096];
+            int entries = 0;
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                long size = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                    size += read;
+                assertEquals(entry.getName(), entry.getSize(), size);
+                entries++;
+            }
+            assertTrue(entries > 0);
+        }
+    }
+
+    @Test
+    public void testCompressionLevels() throws Exception {
+        SpreadSheet spread = generate(2000);
+        int previous = -1;
+        for (int level = 0; level <= 9; level++) {
+            SaveOptions options = new SaveOptions();
+            options.setCompressionLevel(level);
+            byte[] bytes = save(spread, options);
+            checkEntries(bytes);
+            assertEquals(spread, new SpreadSheet(new ByteArrayInputStream(bytes)));
+            if (level == 0)
+                previous = bytes.length;
+            else if (level == 1)
+                assertTrue(bytes.length < previous);
+        }
+    }
+
+    @Test
+    public void testInvalidLevel() {
+        SaveOptions options = new SaveOptions();
+        try {
+            options.setCompressionLevel(10);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(-1, options.getCompressionLevel());
+        }
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        // Several blocks of content.xml
+        SpreadSheet spread = generate(20000);
+        byte[] sequential = save(spread, new SaveOptions());
+
+        SaveOptions options = new SaveOptions();
+        options.setParallel(true);
+        options.setPool(new ForkJoinPool(4));
+        byte[] parallel = save(spread, options);
+        checkEntries(parallel);
+        assertEquals(spread, new SpreadSheet(new ByteArrayInputStream(parallel)));
+
+        // The dictionary of each block keeps the compression close to a sequential one
+        assertTrue(parallel.length < sequential.length * 1.1);
+    }
+
+    @Test
+    public void testParallelSmallFile() throws Exception {
+        SpreadSheet spread = generate(3);
+        SaveOptions options = new SaveOptions();
+        options.setParallel(true);
+        byte[] bytes = save(spread, options);
+        checkEntries(bytes);
+        assertEquals(spread, new SpreadSheet(new ByteArrayInputStream(bytes)));
+    }
+
+    private static Map<String, Integer> methods(File file) throws Exception {
+        Map<String, Integer> methods = new HashMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                methods.put(entry.getName(), entry.getMethod());
+            }
+        }
+        return methods;
+    }
+
+    @Test
+    public void testMimetypeFirstAndStored() throws Exception {
+        byte[] bytes = save(generate(3), new SaveOptions());
+        checkEntries(bytes);
+
+        // Local header of the first entry: no compression, no data descriptor, no extra field
+        String mimetype = "application/vnd.oasis.opendocument.spreadsheet";
+        assertEquals(0, bytes[8] | bytes[9]);
+        assertEquals(0, bytes[6] & 0x08);
+        assertEquals(8, bytes[26] | bytes[27] << 8);
+        assertEquals(0, bytes[28] | bytes[29]);
+        assertEquals("mimetype", new String(bytes, 30, 8, StandardCharsets.US_ASCII));
+        assertEquals(mimetype, new String(bytes, 38, mimetype.length(), StandardCharsets.US_ASCII));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (SpreadSheetStreamWriter writer = new SpreadSheetStreamWriter(out)) {
+            writer.beginSheet("A");
+            writer.writeRow("text", 1.0);
+            writer.endSheet();
+        }
+        bytes = out.toByteArray();
+        assertEquals(0, bytes[8] | bytes[9]);
+        assertEquals(mimetype, new String(bytes, 38, mimetype.length(), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testStoredEntries() throws Exception {
+        SpreadSheet spread = generate(10);
+        byte[] image = new byte[5000];
+        for (int i = 0; i < image.length; i++)
+            image[i] = (byte) (i * 7 % 251);
+        File picture = File.createTempFile("sods", ".jpg");
+        picture.deleteOnExit();
+        Files.write(picture.toPath(), image);
+        spread.setAdditionalFile("Pictures/image.png", "image/png", image);
+        spread.setAdditionalFile("Pictures/photo.jpg", "image/jpeg", picture);
+        spread.setAdditionalFile("notes.txt", "text/plain", "Some notes".getBytes(StandardCharsets.UTF_8));
+
+        File file = File.createTempFile("sods", ".ods");
+        file.deleteOnExit();
+        spread.save(file, new SaveOptions());
+        Map<String, Integer> methods = methods(file);
+        assertEquals(ZipEntry.STORED, (int) methods.get("mimetype"));
+        assertEquals(ZipEntry.STORED, (int) methods.get("Pictures/image.png"));
+        assertEquals(ZipEntry.STORED, (int) methods.get("Pictures/photo.jpg"));
+        assertEquals(ZipEntry.DEFLATED, (int) methods.get("notes.txt"));
+        assertEquals(ZipEntry.DEFLATED, (int) methods.get("content.xml"));
+        checkEntries(Files.readAllBytes(file.toPath()));
+
+        SaveOptions options = new SaveOptions();
+        options.setStoreCompressedFiles(false);
+        options.setStoredThreshold(100);
+        spread.save(file, options);
+        methods = methods(file);
+        assertEquals(ZipEntry.DEFLATED, (int) methods.get("Pictures/image.png"));
+        assertEquals(ZipEntry.DEFLATED, (int) methods.get("Pictures/photo.jpg"));
+        assertEquals(ZipEntry.STORED, (int) methods.get("notes.txt"));
+        checkEntries(Files.readAllBytes(file.toPath()));
+
+        SpreadSheet loaded = new SpreadSheet(file);
+        assertEquals(spread, loaded);
+    }
+}
@@ -6,6 +6,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -614,4 +615,228 @@ public class SheetTest {
         Sheet sheet = spreadSheet.getSheet(0);
         assertTrue(sheet.isProtected());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRandomEditsKeepCellPositions() throws Exception {
+        Sheet sheet = new Sheet("A", 50, 20);
+        List<List<Integer>> model = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            List<Integer> row = new ArrayList<>();
+            for (int j = 0; j < 20; j++)
+                row.add(null);
+            model.add(row);
+        }
+
+        Random rnd = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            int operation = rnd.nextInt(10);
+            if (operation == 0 && sheet.getMaxRows() > 1) {
+                int row = rnd.nextInt(sheet.getMaxRows() - 1);
+                int howmany = 1 + rnd.nextInt(Math.min(3, sheet.getMaxRows() - row - 1));
+                sheet.deleteRows(row, howmany);
+                model.subList(row, row + howmany).clear();
+            }
+            else if (operation == 1 && sheet.getMaxColumns() > 1) {
+                int column = rnd.nextInt(sheet.getMaxColumns() - 1);
+                sheet.deleteColumn(column);
+                for (List<Integer> row : model)
+                    row.remove(column);
+            }
+            else if (operation == 2) {
+                int row = rnd.nextInt(sheet.getMaxRows() + 1);
+                int howmany = 1 + rnd.nextInt(3);
+                sheet.insertRowsBefore(row, howmany);
+                for (int i = 0; i < howmany; i++) {
+                    List<Integer> newRow = new ArrayList<>();
+                    for (int j = 0; j < sheet.getMaxColumns(); j++)
+                        newRow.add(null);
+                    model.add(row, newRow);
+                }
+            }
+            else if (operation == 3) {
+                int column = rnd.nextInt(sheet.getMaxColumns() + 1);
+                sheet.insertColumnBefore(column);
+                for (List<Integer> row : model)
+                    row.add(column, null);
+            }
+            else {
+                int row = rnd.nextInt(sheet.getMaxRows());
+                int column = rnd.nextInt(sheet.getMaxColumns());
+                sheet.getRange(row, column).setValue(step);
+                model.get(row).set(column, step);
+            }
+        }
+
+        assertEquals(model.size(), sheet.getMaxRows());
+        Object[][] values = sheet.getDataRange().getValues();
+        for (int i = 0; i < model.size(); i++)
+            for (int j = 0; j < model.get(i).size(); j++)
+                assertEquals(model.get(i).get(j), values[i][j]);
+    }
+
+    @Test
+    public void testStylesModifiedBeforeSave()
+    {
+        Sheet sheet = new Sheet("A", 3, 3);
+        sheet.getRange(0, 0, 2, 2).setFontBold(true);
+        sheet.getRange(0, 0).setFontItalic(true);
+        sheet.getRange(1, 1).setFontBold(false);
+        sheet.getRange(2, 2).setValue(LocalDate.of(2021, 5, 3));
+        sheet.deleteRow(1);
+
+        assertNull(Style.default_style.getDataStyle());
+        assertNull(sheet.getRange(0, 2).getStyle().getDataStyle());
+
+        sheet = saveAndLoad(sheet);
+        Style style = sheet.getRange(0, 0).getStyle();
+        assertTrue(style.isBold());
+        assertTrue(style.isItalic());
+        assertTrue(sheet.getRange(0, 1).getStyle().isBold());
+        assertFalse(sheet.getRange(0, 1).getStyle().isItalic());
+        assertTrue(sheet.getRange(0, 2).getStyle().isDefault());
+        assertEquals(LocalDate.of(2021, 5, 3), sheet.getRange(1, 2).getValue());
+        assertTrue(sheet.getRange(1, 1).getStyle().isDefault());
+    }
+
+    @Test
+    public void testIndex() {
+        Sheet sheet = new Sheet("A", 10, 3);
+        sheet.getRange(0, 0, 10, 1).setValue("x");
+        sheet.getRange(2, 0, 3, 1).setValues(1, 2.0, "b");
+        sheet.getRange(7, 0).setValue(true);
+        sheet.createIndex(0);
+        assertTrue(sheet.hasIndex(0));
+        assertFalse(sheet.hasIndex(1));
+
+        assertArrayEquals(new int[]{0, 1, 5, 6, 8, 9}, sheet.findRows(0, "x"));
+        assertArrayEquals(new int[]{2}, sheet.findRows(0, 1.0));
+        assertArrayEquals(new int[]{7}, sheet.findRows(0, true));
+        assertArrayEquals(new int[0], sheet.findRows(0, "y"));
+        assertEquals(3, sheet.findRow(0, 2));
+        assertEquals(-1, sheet.findRow(0, 3));
+        assertArrayEquals(new int[]{2, 3}, sheet.findRows(0, 0.5, 2));
+        assertArrayEquals(new int[]{0, 1, 4, 5, 6, 8, 9}, sheet.findRows(0, "a", "z"));
+
+        sheet.getRange(5, 0, 2, 1).setValue(2);
+        assertArrayEquals(new int[]{3, 5, 6}, sheet.findRows(0, 2));
+        sheet.insertRowsBefore(4, 2);
+        sheet.deleteRows(0, 1);
+        assertArrayEquals(new int[]{2, 6, 7}, sheet.findRows(0, 2));
+        assertArrayEquals(new int[]{0, 9, 10}, sheet.findRows(0, "x"));
+
+        sheet.insertColumnBefore(0);
+        assertTrue(sheet.hasIndex(1));
+        assertArrayEquals(new int[]{2, 6, 7}, sheet.findRows(1, 2));
+        sheet.deleteColumn(1);
+        assertFalse(sheet.hasIndex(1));
+        assertFalse(sheet.hasIndex(0));
+    }
+
+    @Test
+    public void testFindWithoutIndex() {
+        Sheet sheet = new Sheet("A", 10, 3);
+        sheet.getRange(0, 0, 10, 1).setValue("x");
+        sheet.getRange(2, 0, 3, 1).setValues(1, 2.0, "b");
+        sheet.getRange(7, 0).setValue(true);
+        sheet.getRange(8, 0).setValue(-0.0);
+
+        assertArrayEquals(new int[]{0, 1, 5, 6, 9}, sheet.findRows(0, "x"));
+        assertArrayEquals(new int[]{2}, sheet.findRows(0, 1.0));
+        assertArrayEquals(new int[]{7}, sheet.findRows(0, true));
+        assertArrayEquals(new int[]{8}, sheet.findRows(0, 0));
+        assertArrayEquals(new int[0], sheet.findRows(0, "y"));
+        assertEquals(3, sheet.findRow(0, 2));
+        assertEquals(0, sheet.findRow(0, "x"));
+        assertEquals(-1, sheet.findRow(0, 3));
+        assertArrayEquals(new int[]{2, 3, 8}, sheet.findRows(0, -0.5, 2));
+        assertArrayEquals(new int[]{0, 1, 4, 5, 6, 9}, sheet.findRows(0, "a", "z"));
+        assertFalse(sheet.hasIndex(0));
+
+        int[][] scanned = {sheet.findRows(0, "x"), sheet.findRows(0, 0.0, 2.0), sheet.findRows(0, "a", "c")};
+        sheet.createIndex(0);
+        assertArrayEquals(scanned[0], sheet.findRows(0, "x"));
+        assertArrayEquals(scanned[1], sheet.findRows(0, 0.0, 2.0));
+        assertArrayEquals(scanned[2], sheet.findRows(0, "a", "c"));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testFindInvalidInterval() {
+        Sheet sheet = new Sheet("A", 10, 3);
+        sheet.findRows(0, 2.0, 1.0);
+    }
+
+    @Test
+    public void testIndexFormulas() {
+        Sheet sheet = new Sheet("A", 3, 2);
+        SpreadSheet spread = new SpreadSheet();
+        spread.appendSheet(sheet);
+        sheet.getRange(0, 0, 3, 1).setValues(1, 2, 3);
+        sheet.getRange(0, 1, 3, 1).setFormulas("=A1*10", "=A2*10", "=A3*10");
+        sheet.createIndex(1);
+        spread.recalculate();
+        assertArrayEquals(new int[]{1}, sheet.findRows(1, 20));
+
+        sheet.getRange(1, 0).setValue(5);
+        assertArrayEquals(new int[0], sheet.findRows(1, 20));
+        assertArrayEquals(new int[]{1}, sheet.findRows(1, 50));
+    }
+
+    @Test
+    public void testIndexRandomEdits() {
+        Random random = new Random(7);
+        Sheet sheet = new Sheet("A", 200, 2);
+        sheet.getRange(0, 0, 200, 1).setValue(0);
+        sheet.trim();
+        sheet.createIndex(0);
+        for (int i = 0; i < 300; i++) {
+            int row = random.nextInt(sheet.getMaxRows());
+            int howmany = 1 + random.nextInt(Math.min(10, sheet.getMaxRows() - row));
+            switch (random.nextInt(4)) {
+                case 0:
+                    sheet.insertRowsBefore(row, howmany);
+                    break;
+                case 1:
+                    if (sheet.getMaxRows() > 50)
+                        sheet.deleteRows(row, howmany);
+                    break;
+                case 2:
+                    sheet.getRange(row, 0, howmany, 2).setValue(random.nextInt(5));
+                    break;
+                default:
+                    sheet.getRange(row, 0, howmany, 1).clear();
+                    break;
+            }
+
+            double value = random.nextInt(5);
+            Object[] values = sheet.getDataRange().getColumnValues(0);
+            List<Integer> expected = new ArrayList<>();
+            for (int j = 0; j < values.length; j++) {
+                if (values[j] != null && ((Number) values[j]).doubleValue() == value)
+                    expected.add(j);
+            }
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), sheet.findRows(0, value));
+        }
+    }
+
+    @Test
+    public void testInsertRowsInsideRun() {
+        Sheet sheet = new Sheet("A", 6, 1);
+        sheet.getRange(0, 0, 6, 1).setValue(1);
+        sheet.trim();
+        sheet.insertRowsBefore(4, 2);
+        assertArrayEquals(new Object[]{1, 1, 1, 1, null, null, 1, 1}, sheet.getDataRange().getColumnValues(0));
+    }
+
+    @Test
+    public void testInsertColumnsInsideRun() {
+        Sheet sheet = new Sheet("A", 1, 6);
+        sheet.getRange(0, 0, 1, 6).setValue(1);
+        sheet.setColumnWidths(0, 6, 5.0);
+        sheet.trim();
+        sheet.insertColumnsBefore(2, 1);
+        assertArrayEquals(new Object[]{1, 1, null, 1, 1, 1, 1}, sheet.getDataRange().getValues()[0]);
+        assertEquals(5.0, sheet.getColumnWidth(1));
+        assertNull(sheet.getColumnWidth(2));
+        assertEquals(5.0, sheet.getColumnWidth(3));
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+
+import static org.testng.AssertJUnit.*;
+
+public class SpreadSheetStreamWriterTest {
+
+    @Test
+    public void testWriteAndLoad() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        SpreadSheetStreamWriter writer = new SpreadSheetStreamWriter(output);
+        writer.beginSheet("First", 3);
+        writer.writeRow("Name", "Amount", "Date");
+        writer.writeRow("Foo", 12.5, LocalDate.of(2020, 1, 31));
+        writer.writeRow(null, null, "x  y\nz");
+        writer.endSheet();
+        writer.beginSheet("Second");
+        writer.writeRow(1, 1, 1, 2);
+        writer.close();
+
+        SpreadSheet spread = new SpreadSheet(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(2, spread.getNumSheets());
+
+        Sheet first = spread.getSheet("First");
+        assertEquals(3, first.getMaxRows());
+        assertEquals(3, first.getMaxColumns());
+        assertEquals("Name", first.getRange(0, 0).getValue());
+        assertEquals(12.5, first.getRange(1, 1).getValue());
+        assertEquals(LocalDate.of(2020, 1, 31), first.getRange(1, 2).getValue());
+        assertNull(first.getRange(2, 0).getValue());
+        assertEquals("x  y\nz", first.getRange(2, 2).getValue());
+
+        Sheet second = spread.getSheet("Second");
+        assertEquals(4, second.getMaxColumns());
+        assertEquals(1.0, second.getRange(0, 2).getValue());
+        assertEquals(2.0, second.getRange(0, 3).getValue());
+    }
+
+    @Test
+    public void testInvalidStates() throws Exception {
+        SpreadSheetStreamWriter writer = new SpreadSheetStreamWriter(new ByteArrayOutputStream());
+        try {
+            writer.writeRow(1);
+            fail();
+        } catch (IllegalStateException e) {}
+
+        try {
+            writer.endSheet();
+            fail();
+        } catch (IllegalStateException e) {}
+
+        writer.beginSheet("A");
+        try {
+            writer.beginSheet("B");
+            fail();
+        } catch (IllegalStateException e) {}
+
+        writer.close();
+        try {
+            writer.beginSheet("C");
+            fail();
+        } catch (IllegalStateException e) {}
+    }
+}
@@ -5,9 +5,20 @@ import org.testng.annotations.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static org.testng.AssertJUnit.*;
 
@@ -202,6 +213,238 @@ public class SpreadSheetTest {
         }
     }
 
+    @Test
+    public void testLoadFileSameThanStream() throws Exception {
+        File[] files = new File("resources").listFiles((dir, name) -> name.endsWith(".ods"));
+        assertNotNull(files);
+        for (File file : files) {
+            SpreadSheet expected;
+            try (InputStream in = new FileInputStream(file)) {
+                expected = new SpreadSheet(in);
+            } catch (NotAnOdsException e) {
+                continue;
+            }
+            assertEquals(file.getName(), expected, new SpreadSheet(file));
+        }
+    }
+
+    @Test
+    public void testLoadFileWithMimetypeAtTheEnd() throws Exception {
+        File file = File.createTempFile("sods", ".ods");
+        file.deleteOnExit();
+
+        List<String> names = new ArrayList<>();
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new FileInputStream("resources/CAS.ods"))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1)
+                    content.write(buffer, 0, read);
+                names.add(entry.getName());
+                entries.put(entry.getName(), content.toByteArray());
+            }
+        }
+        Collections.reverse(names);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            out.putNextEntry(new ZipEntry("Pictures/big.bin"));
+            out.write(new byte[1 << 20]);
+            for (String name : names) {
+                out.putNextEntry(new ZipEntry(name));
+                out.write(entries.get(name));
+            }
+        }
+
+        assertEquals(new SpreadSheet(new File("resources/CAS.ods")), new SpreadSheet(file));
+    }
+
+    @Test
+    public void testLoadInvalidFiles() throws Exception {
+        try {
+            new SpreadSheet(new File("resources/doesNotExist.ods"));
+            fail();
+        } catch (FileNotFoundException e) {}
+
+        File file = File.createTempFile("sods", ".ods");
+        file.deleteOnExit();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("This is not a zip".getBytes());
+        }
+        try {
+            new SpreadSheet(file);
+            fail();
+        } catch (NotAnOdsException e) {}
+    }
+
+    private static Map<String, byte[]> readEntries(File file) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipFile zip = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                try (InputStream in = zip.getInputStream(entry)) {
+                    ByteArrayOutputStream content = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while ((read = in.read(buffer)) != -1)
+                        content.write(buffer, 0, read);
+                    entries.put(entry.getName(), content.toByteArray());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private static LoadOptions keepAdditionalFiles() {
+        LoadOptions options = new LoadOptions();
+        options.setKeepAdditionalFiles(true);
+        return options;
+    }
+
+    @Test
+    public void testKeepAdditionalFilesOfLoadedFile() throws Exception {
+        File picture = File.createTempFile("sods", ".bin");
+        picture.deleteOnExit();
+        byte[] pictureContent = new byte[300000];
+        new Random(7).nextBytes(pictureContent);
+        try (FileOutputStream out = new FileOutputStream(picture)) {
+            out.write(pictureContent);
+        }
+
+        byte[] macro = "Sub Main\nEnd Sub".getBytes();
+        SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"));
+        spread.setAdditionalFile("Basic/Standard/Module1.xml", "text/xml", macro);
+        spread.setAdditionalFile("Pictures/picture.bin", "image/png", picture);
+
+        File first = File.createTempFile("sods", ".ods");
+        first.deleteOnExit();
+        spread.save(first);
+
+        SpreadSheet loaded = new SpreadSheet(first, keepAdditionalFiles());
+        File second = File.createTempFile("sods", ".ods");
+        second.deleteOnExit();
+        loaded.save(second);
+
+        Map<String, byte[]> entries = readEntries(second);
+        assertTrue(Arrays.equals(macro, entries.get("Basic/Standard/Module1.xml")));
+        assertTrue(Arrays.equals(pictureContent, entries.get("Pictures/picture.bin")));
+        String manifest = new String(entries.get("META-INF/manifest.xml"), "UTF-8");
+        assertTrue(manifest.contains("manifest:full-path=\"Pictures/picture.bin\" manifest:media-type=\"image/png\""));
+        assertEquals(loaded, new SpreadSheet(second));
+
+        // The entries are copied without being compressed again
+        try (ZipFile original = new ZipFile(first); ZipFile copy = new ZipFile(second)) {
+            ZipEntry expected = original.getEntry("Pictures/picture.bin");
+            ZipEntry actual = copy.getEntry("Pictures/picture.bin");
+            assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+            assertEquals(expected.getCrc(), actual.getCrc());
+        }
+
+        // Overwriting the loaded file
+        loaded.save(first);
+        entries = readEntries(first);
+        assertTrue(Arrays.equals(pictureContent, entries.get("Pictures/picture.bin")));
+        assertEquals(loaded, new SpreadSheet(first));
+    }
+
+    @Test
+    public void testKeepAdditionalFilesOfLoadedStream() throws Exception {
+        byte[] macro = "Sub Main\nEnd Sub".getBytes();
+        SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"));
+        spread.setAdditionalFile("Basic/Standard/Module1.xml", "text/xml", macro);
+        File file = File.createTempFile("sods", ".ods");
+        file.deleteOnExit();
+        spread.save(file);
+
+        // A file and a stream keep the same entries
+        File fromFile = File.createTempFile("sods", ".ods");
+        fromFile.deleteOnExit();
+        new SpreadSheet(file, keepAdditionalFiles()).save(fromFile);
+        File fromStream = File.createTempFile("sods", ".ods");
+        fromStream.deleteOnExit();
+        try (InputStream in = new FileInputStream(file)) {
+            new SpreadSheet(in, keepAdditionalFiles()).save(fromStream);
+        }
+
+        Map<String, byte[]> expected = readEntries(fromFile);
+        Map<String, byte[]> actual = readEntries(fromStream);
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String path : expected.keySet())
+            assertTrue(path, Arrays.equals(expected.get(path), actual.get(path)));
+        assertTrue(Arrays.equals(macro, actual.get("Basic/Standard/Module1.xml")));
+        String manifest = new String(actual.get("META-INF/manifest.xml"), "UTF-8");
+        assertTrue(manifest.contains("manifest:full-path=\"Basic/Standard/Module1.xml\" manifest:media-type=\"text/xml\""));
+    }
+
+    @Test
+    public void testAdditionalFilesNotKeptByDefault() throws Exception {
+        SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"));
+        spread.setAdditionalFile("Basic/Standard/Module1.xml", "text/xml", "Sub Main\nEnd Sub".getBytes());
+        File file = File.createTempFile("sods", ".ods");
+        file.deleteOnExit();
+        spread.save(file);
+
+        File fromFile = File.createTempFile("sods", ".ods");
+        fromFile.deleteOnExit();
+        new SpreadSheet(file).save(fromFile);
+        File fromStream = File.createTempFile("sods", ".ods");
+        fromStream.deleteOnExit();
+        try (InputStream in = new FileInputStream(file)) {
+            new SpreadSheet(in).save(fromStream);
+        }
+
+        Set<String> expected = new HashSet<>(Arrays.asList("mimetype", "content.xml", "styles.xml", "META-INF/manifest.xml"));
+        assertEquals(expected, readEntries(fromFile).keySet());
+        assertEquals(expected, readEntries(fromStream).keySet());
+    }
+
+    @Test
+    public void testLoadedFileModified() throws Exception {
+        SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"));
+        spread.setAdditionalFile("Pictures/picture.bin", "image/png", new byte[1000]);
+        File file = File.createTempFile("sods", ".ods");
+        file.deleteOnExit();
+        spread.save(file);
+
+        // The entries of a modified or deleted file are dropped, the rest is saved
+        SpreadSheet loaded = new SpreadSheet(file, keepAdditionalFiles());
+        SpreadSheet deleted = new SpreadSheet(file, keepAdditionalFiles());
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(new byte[10]);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        loaded.save(out);
+        SpreadSheet saved = new SpreadSheet(new ByteArrayInputStream(out.toByteArray()), keepAdditionalFiles());
+        assertEquals(loaded, saved);
+        assertTrue(saved.getExtraFiles().isEmpty());
+
+        assertTrue(file.delete());
+        File target = File.createTempFile("sods", ".ods");
+        target.deleteOnExit();
+        deleted.save(target);
+        assertEquals(deleted, new SpreadSheet(target));
+        assertFalse(readEntries(target).containsKey("Pictures/picture.bin"));
+    }
+
+    @Test
+    public void testMissingAdditionalFile() throws Exception {
+        File picture = File.createTempFile("sods", ".bin");
+        SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"));
+        spread.setAdditionalFile("Pictures/picture.bin", "image/png", picture);
+        assertTrue(picture.delete());
+
+        // Nothing is written, the target keeps its content
+        File target = File.createTempFile("sods", ".ods");
+        target.deleteOnExit();
+        new SpreadSheet(new File("resources/CAS.ods")).save(target);
+        long length = target.length();
+        try {
+            spread.save(target);
+            fail();
+        } catch (FileNotFoundException e) {}
+        assertEquals(length, target.length());
+    }
+
     @Test
     public void testLoad() throws Exception {
         SpreadSheet spread = new SpreadSheet(new File("resources/CAS.ods"));
@@ -503,4 +746,31 @@ public class SpreadSheetTest {
         SpreadSheet spread = new SpreadSheet(new File("resources/missingColumnTag.ods"));
         // No crash? It's green then
     }
+
+    @Test
+    public void testConcurrentLoadAndSave() throws Exception {
+        SpreadSheet expected = new SpreadSheet(new File("resources/CAS.ods"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        expected.save(out);
+        byte[] bytes = out.toByteArray();
+
+        // Each thread loads and saves its own spreadsheets, sharing only the cached XML factories
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<SpreadSheet>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    SpreadSheet spread = new SpreadSheet(new ByteArrayInputStream(bytes));
+                    ByteArrayOutputStream saved = new ByteArrayOutputStream();
+                    spread.save(saved);
+                    return new SpreadSheet(new ByteArrayInputStream(saved.toByteArray()));
+                }));
+            }
+            SpreadSheet reference = new SpreadSheet(new ByteArrayInputStream(bytes));
+            for (Future<SpreadSheet> result : results)
+                assertEquals(reference, result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -10,9 +10,7 @@ import static org.testng.AssertJUnit.*;
 
 public class XMLInputFactoriesTest {
 
-    // Disable this test by default, because XmlReaderEventImpl stores a static XMLInputFactory
-    // instance, which is not reset after the test.
-    @Test(enabled = false)
+    @Test
     public void testLoadUsingBundledXMLInputFactory() throws Exception {
         testUsingFactory("com.sun.xml.internal.stream.XMLInputFactoryImpl");
     }
@@ -32,12 +30,14 @@ public class XMLInputFactoriesTest {
 
         try {
             System.setProperty(XMLInputFactory.class.getName(), factoryName);
+            XmlFactories.clear();
 
             SpreadSheet spread = new SpreadSheet(new File("resources/metadataWithDtd.ods"));
             assertEquals(spread.getNumSheets(),1);
 
         } finally {
             System.clearProperty(XMLInputFactory.class.getName());
+            XmlFactories.clear();
         }
     }
 
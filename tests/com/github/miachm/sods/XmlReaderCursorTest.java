@@ -0,0 +1,64 @@
+package com.github.miachm.sods;
+
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.fail;
+import static org.testng.AssertJUnit.*;
+
+public class XmlReaderCursorTest {
+
+    @Test
+    public void testSameResultThanEventReader() throws Exception {
+        File[] files = new File("resources").listFiles((dir, name) -> name.endsWith(".ods"));
+        assertNotNull(files);
+        for (File file : files) {
+            SpreadSheet expected = new SpreadSheet();
+            SpreadSheet actual = new SpreadSheet();
+            try (InputStream in = new FileInputStream(file)) {
+                OdsReader.load(in, expected, new XmlReaderEventImpl());
+            } catch (NotAnOdsException e) {
+                continue;
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                OdsReader.load(in, actual, new XmlReaderCursorImpl());
+            }
+            assertEquals(file.getName(), expected, actual);
+        }
+    }
+
+    @Test
+    public void testNestedElements() throws Exception {
+        String xml = "<a:root xmlns:a=\"urn:a\" xmlns:b=\"urn:b\"><a:item a:id=\"1\"><a:item a:id=\"2\">x<![CDATA[y]]></a:item></a:item>"
+                + "<a:item a:id=\"3\"/><b:other/></a:root>";
+        XmlReader reader = new XmlReaderCursorImpl();
+        XmlReaderInstance root = reader.load(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+        XmlReaderInstance item = root.nextElement("a:item");
+        assertEquals("1", item.getAttribValue("a:id"));
+        assertNull(item.getAttribValue("b:id"));
+
+        XmlReaderInstance inner = item.nextElement("a:item");
+        assertEquals("a:item", inner.getTag());
+        assertEquals("2", inner.getAttribValue("a:id"));
+        assertEquals("x", inner.nextElement(XmlReaderInstance.CHARACTERS).getContent());
+        assertEquals("y", inner.nextElement(XmlReaderInstance.CHARACTERS).getContent());
+        try {
+            inner.getAttribValue("a:id");
+            fail();
+        } catch (IllegalStateException e) {}
+        assertNull(inner.nextElement(XmlReaderInstance.CHARACTERS));
+        assertFalse(inner.hasNext());
+
+        assertNull(item.nextElement("a:item"));
+        assertEquals("3", root.nextElement("a:item").getAttribValue("a:id"));
+        assertEquals("b:other", root.nextElement("a:item", "b:other").getTag());
+        assertNull(root.nextElement("a:item"));
+        reader.close();
+    }
+}
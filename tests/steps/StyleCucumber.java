@@ -39,7 +39,9 @@ public class StyleCucumber {
 
     @When("^apply the conditionalFormat to the cell (\\d+),(\\d+)$")
     public void apply_the_conditionalFormat_to_the_cell(int row, int column) throws Throwable {
-        World.sheet.getRange(row, column).getStyle().addCondition(World.conditionalFormat);
+        Style style = World.sheet.getRange(row, column).getStyle();
+        style.addCondition(World.conditionalFormat);
+        World.sheet.getRange(row, column).setStyle(style);
     }
 
     @Then("^the style of the conditionalFormat is World\\.style$")